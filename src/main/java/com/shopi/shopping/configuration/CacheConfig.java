@@ -1,26 +1,127 @@
 package com.shopi.shopping.configuration;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 @Configuration
 @EnableCaching
 
 public class CacheConfig {
 
-    // This method defines a bean for CaffeineCacheManager, which is responsible for managing the caches
+    public static final String PRODUCTS_CACHE = "products"; // Products by ID
+    public static final String SHOPPING_CARTS_CACHE = "shoppingCarts"; // Shopping carts by ID
+    public static final String SHOPPING_CARTS_BY_STATUS_CACHE = "shoppingCartsByStatus"; // Cart listings by status
+    public static final String ACTIVE_DISCOUNTS_CACHE = "activeDiscounts"; // Active discounts by date
+
+    // Limits for any cache that is not configured explicitly below
+    static final long DEFAULT_MAX_SIZE = 1_000;
+    static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(5);
+
+    // Limits for the products cache
+    static final long PRODUCTS_MAX_SIZE = 10_000;
+    static final Duration PRODUCTS_EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+    static final Duration PRODUCTS_EXPIRE_AFTER_ACCESS = Duration.ofMinutes(5);
+
+    // Limits for the shopping carts cache (carts change more often than products)
+    static final long SHOPPING_CARTS_MAX_SIZE = 5_000;
+    static final Duration SHOPPING_CARTS_EXPIRE_AFTER_WRITE = Duration.ofMinutes(5);
+    static final Duration SHOPPING_CARTS_EXPIRE_AFTER_ACCESS = Duration.ofMinutes(2);
+
+    // Limits for the carts-by-status cache, weighted by the number of carts held in each cached list
+    static final long SHOPPING_CARTS_BY_STATUS_MAX_WEIGHT = 20_000;
+    static final Duration SHOPPING_CARTS_BY_STATUS_EXPIRE_AFTER_WRITE = Duration.ofMinutes(1);
+    static final Duration SHOPPING_CARTS_BY_STATUS_EXPIRE_AFTER_ACCESS = Duration.ofSeconds(30);
+
+    // Limits for the active discounts cache (one entry per day)
+    static final long ACTIVE_DISCOUNTS_MAX_SIZE = 8;
+    static final Duration ACTIVE_DISCOUNTS_EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+    // Limits for the negative entries ("ID not found") kept next to the products and shopping carts caches
+    static final long NEGATIVE_MAX_SIZE = 10_000;
+    static final Duration NEGATIVE_EXPIRE_AFTER_WRITE = Duration.ofSeconds(30);
+    static final Set<String> NEGATIVE_CACHING_CACHES = Set.of(PRODUCTS_CACHE, SHOPPING_CARTS_CACHE);
+
+    // This method defines a bean for CaffeineCacheManager, which is responsible for managing the caches.
+    // Every named cache is bounded and expires its entries; Caffeine applies W-TinyLFU admission when a bound is hit.
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("products","shoppingCarts","shoppingCartsByStatus");
-    }
-}
+    public CacheManager cacheManager(ApplicationEventPublisher eventPublisher) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            // Every cache announces its evictions so that they reach the other nodes (see ClusterCacheInvalidator).
+            // Lookups by ID also remember missing IDs, in a separate short-lived and size-bounded store
+            @Override
+            protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+                if (NEGATIVE_CACHING_CACHES.contains(name)) {
+                    return new NegativeCachingCaffeineCache(name, cache, negativeEntries(), eventPublisher);
+                }
+                return new CoherentCaffeineCache(name, cache, eventPublisher);
+            }
+        };
+        // Fallback for caches created on demand by name, so that no cache is ever unbounded
+        cacheManager.setCaffeine(baseBuilder()
+                .maximumSize(DEFAULT_MAX_SIZE)
+                .expireAfterWrite(DEFAULT_EXPIRE_AFTER_WRITE));
+
+        cacheManager.registerCustomCache(PRODUCTS_CACHE, baseBuilder()
+                .maximumSize(PRODUCTS_MAX_SIZE)
+                .expireAfterWrite(PRODUCTS_EXPIRE_AFTER_WRITE)
+                .expireAfterAccess(PRODUCTS_EXPIRE_AFTER_ACCESS)
+                .build());
 
+        cacheManager.registerCustomCache(SHOPPING_CARTS_CACHE, baseBuilder()
+                .maximumSize(SHOPPING_CARTS_MAX_SIZE)
+                .expireAfterWrite(SHOPPING_CARTS_EXPIRE_AFTER_WRITE)
+                .expireAfterAccess(SHOPPING_CARTS_EXPIRE_AFTER_ACCESS)
+                .build());
 
+        cacheManager.registerCustomCache(SHOPPING_CARTS_BY_STATUS_CACHE, baseBuilder()
+                .maximumWeight(SHOPPING_CARTS_BY_STATUS_MAX_WEIGHT)
+                .weigher((Object status, Object carts) -> weightOf(carts))
+                .expireAfterWrite(SHOPPING_CARTS_BY_STATUS_EXPIRE_AFTER_WRITE)
+                .expireAfterAccess(SHOPPING_CARTS_BY_STATUS_EXPIRE_AFTER_ACCESS)
+                .build());
 
+        cacheManager.registerCustomCache(ACTIVE_DISCOUNTS_CACHE, baseBuilder()
+                .maximumSize(ACTIVE_DISCOUNTS_MAX_SIZE)
+                .expireAfterWrite(ACTIVE_DISCOUNTS_EXPIRE_AFTER_WRITE)
+                .build());
+
+        return cacheManager;
+    }
 
+    // Settings shared by every cache: statistics are recorded (see CacheStatsEndpoint and /actuator/metrics),
+    // maintenance (eviction, expiration, removal) runs on the common pool
+    // and expired entries are cleaned up by the system scheduler instead of on the request thread
+    private static Caffeine<Object, Object> baseBuilder() {
+        return Caffeine.newBuilder()
+                .recordStats()
+                .executor(ForkJoinPool.commonPool())
+                .scheduler(Scheduler.systemScheduler());
+    }
 
+    // Store for missing IDs: short TTL so that a newly created entity is never hidden for long
+    private static Cache<Object, Boolean> negativeEntries() {
+        return baseBuilder()
+                .maximumSize(NEGATIVE_MAX_SIZE)
+                .expireAfterWrite(NEGATIVE_EXPIRE_AFTER_WRITE)
+                .build();
+    }
 
+    // A cached collection weighs one unit per element, any other value weighs one unit
+    static int weightOf(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        return 1;
+    }
+}
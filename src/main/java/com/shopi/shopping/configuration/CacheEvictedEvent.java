@@ -0,0 +1,10 @@
+package com.shopi.shopping.configuration;
+
+// Application event published when an entry (or, with a null key, a whole cache) is evicted on this node
+public record CacheEvictedEvent(String cacheName, Object key) {
+
+    // True when the whole cache was cleared rather than a single key
+    public boolean allEntries() {
+        return key == null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.shopi.shopping.configuration;
+import com.shopi.shopping.datasource.CartResharder;
+import com.shopi.shopping.datasource.CartShardRoutingDataSource;
+import com.shopi.shopping.datasource.CartShardingInterceptor;
+import com.shopi.shopping.datasource.CartShards;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// Cart sharding (enabled by shopi.sharding.shard-urls): shopping_carts and shopping_cart_products are spread over the
+// shard databases by consistent hashing of the customer ID, everything else stays in the main database.
+// ShoppingCartRepository calls are routed by CartShardingInterceptor; the application data source is wrapped so that
+// connections go to the shard of the current call. Wrapping, rather than declaring a data source of our own, keeps
+// whatever the main database is (a single pool, or the primary and its replicas of ReadReplicaConfig).
+// A shard can be added at runtime with CartResharder (actuator endpoint cartshards)
+@Configuration
+@ConditionalOnProperty("shopi.sharding.shard-urls")
+public class CartShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public CartShards cartShards(DataSourceProperties properties,
+                                 @Value("${shopi.sharding.shard-urls}") List<String> shardUrls,
+                                 @Value("${shopi.sharding.virtual-nodes:64}") int virtualNodes,
+                                 @Value("${shopi.sharding.pool-size:10}") int poolSize) {
+        return new CartShards(shardUrls, virtualNodes, poolSize,
+                properties.determineUrl(), properties.determineUsername(), properties.determinePassword());
+    }
+
+    // Static, as bean post-processors are created before the rest of the configuration
+    @Bean
+    public static BeanPostProcessor cartShardRoutingDataSource(ObjectProvider<CartShards> cartShards) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return new CartShardRoutingDataSource(dataSource, cartShards.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    public CartShardingInterceptor cartShardingInterceptor(CartShards cartShards,
+                                                           ObjectProvider<PlatformTransactionManager> transactionManager,
+                                                           @Value("${shopi.sharding.scatter-threads:8}") int scatterThreads,
+                                                           @Value("${shopi.sharding.location-cache-size:100000}") long locationCacheSize) {
+        return new CartShardingInterceptor(cartShards, transactionManager, scatterThreads, locationCacheSize);
+    }
+
+    // Puts the interceptor first on the ShoppingCartRepository proxy, ahead of the repository's transaction
+    @Bean
+    public static BeanPostProcessor cartRepositorySharding(ObjectProvider<CartShardingInterceptor> interceptor) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaRepositoryFactoryBean<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repository) -> {
+                                if (ShoppingCartRepository.class.equals(repository.getRepositoryInterface())) {
+                                    proxyFactory.addAdvice(0, interceptor.getObject());
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public CartResharder cartResharder(CartShards cartShards) {
+        return new CartResharder(cartShards);
+    }
+
+    // Every cart call has its own transactions on its shard, so a connection must not outlive its transaction
+    // (Hibernate would otherwise keep the first one for the whole session, a whole request with open-in-view)
+    @Bean
+    public HibernatePropertiesCustomizer shardConnectionReleaseCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,61 @@
+package com.shopi.shopping.configuration;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
+
+// Caffeine-backed Spring cache that announces its evictions with a CacheEvictedEvent, so that they can be
+// relayed to the other nodes (see ClusterCacheInvalidator). Evictions received from other nodes are applied
+// through the *Locally methods, which do not announce anything and therefore never echo back.
+public class CoherentCaffeineCache extends CaffeineCache {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CoherentCaffeineCache(String name, Cache<Object, Object> cache, ApplicationEventPublisher eventPublisher) {
+        super(name, cache, true);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictLocally(key);
+        eventPublisher.publishEvent(new CacheEvictedEvent(getName(), key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = evictIfPresentLocally(key);
+        eventPublisher.publishEvent(new CacheEvictedEvent(getName(), key));
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        clearLocally();
+        eventPublisher.publishEvent(new CacheEvictedEvent(getName(), null));
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean hadEntries = invalidateLocally();
+        eventPublisher.publishEvent(new CacheEvictedEvent(getName(), null));
+        return hadEntries;
+    }
+
+    // Evict a key on this node only
+    public void evictLocally(Object key) {
+        super.evict(key);
+    }
+
+    // Clear this cache on this node only
+    public void clearLocally() {
+        super.clear();
+    }
+
+    protected boolean evictIfPresentLocally(Object key) {
+        return super.evictIfPresent(key);
+    }
+
+    protected boolean invalidateLocally() {
+        return super.invalidate();
+    }
+}
@@ -0,0 +1,84 @@
+package com.shopi.shopping.configuration;
+import com.shopi.shopping.datasource.ConnectionPoolMonitor;
+import com.shopi.shopping.datasource.InstrumentedDataSource;
+import com.shopi.shopping.datasource.PoolSizeController;
+import com.shopi.shopping.datasource.RepositoryCallSiteInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import javax.sql.DataSource;
+
+// Connection pool instrumentation: the application data source is wrapped to time every connection taken from it,
+// by repository call site (ConnectionPoolMonitor), and every repository proxy names its calls for it
+// (RepositoryCallSiteInterceptor). PoolSizeController (shopi.datasource.pool.adaptive.enabled) resizes the pool from
+// the same measures. Everything is on /actuator/connectionpool and /actuator/metrics (shopi.db.connection.*, hikaricp.*)
+@Configuration
+public class ConnectionPoolConfig {
+
+    @Bean
+    public ConnectionPoolMonitor connectionPoolMonitor(MeterRegistry meterRegistry,
+                                                       @Value("${shopi.datasource.pool.leak-threshold-ms:10000}") long leakThresholdMillis,
+                                                       @Value("${shopi.datasource.pool.leak-stack-traces:false}") boolean leakStackTraces) {
+        return new ConnectionPoolMonitor(meterRegistry, leakThresholdMillis, leakStackTraces);
+    }
+
+    // Static, as bean post-processors are created before the rest of the configuration
+    @Bean
+    public static BeanPostProcessor instrumentedDataSource(ObjectProvider<ConnectionPoolMonitor> monitor) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return new InstrumentedDataSource(dataSource, monitor.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Right ahead of the repository's transaction, which takes the connection
+    @Bean
+    public static BeanPostProcessor repositoryCallSites() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof JpaRepositoryFactoryBean<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repository) -> {
+                                int position = 0;
+                                Advisor[] advisors = proxyFactory.getAdvisors();
+                                for (int i = 0; i < advisors.length; i++) {
+                                    if (advisors[i].getAdvice() instanceof TransactionInterceptor) {
+                                        position = i;
+                                    }
+                                }
+                                proxyFactory.addAdvice(position,
+                                        new RepositoryCallSiteInterceptor(repository.getRepositoryInterface()));
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "shopi.datasource.pool.adaptive.enabled", havingValue = "true")
+    public PoolSizeController poolSizeController(DataSource dataSource, ConnectionPoolMonitor connectionPoolMonitor,
+                                                 @Value("${shopi.datasource.pool.adaptive.min-size:5}") int minSize,
+                                                 @Value("${shopi.datasource.pool.adaptive.max-size:30}") int maxSize,
+                                                 @Value("${shopi.datasource.pool.adaptive.step:2}") int step,
+                                                 @Value("${shopi.datasource.pool.adaptive.wait-ratio:0.5}") double waitRatio,
+                                                 @Value("${shopi.datasource.pool.adaptive.latency-tolerance:1.5}") double latencyTolerance,
+                                                 @Value("${shopi.datasource.pool.adaptive.calm-windows:3}") int calmWindows) {
+        return new PoolSizeController(dataSource, connectionPoolMonitor, minSize, maxSize, step, waitRatio,
+                latencyTolerance, calmWindows);
+    }
+}
@@ -0,0 +1,55 @@
+package com.shopi.shopping.configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// File-backed database (profile "file", settings in application-file.properties). Hibernate keeps the schema up to
+// date; the seed script runs after it (spring.jpa.defer-datasource-initialization) and only into an empty catalog,
+// so a restart goes straight to the data already on disk
+@Configuration
+@Profile("file")
+public class FileDatabaseConfig {
+
+    static final String SEED_SCRIPT = "classpath:data.sql";
+
+    @Bean
+    public DataSourceScriptDatabaseInitializer seedDataInitializer(DataSource dataSource) {
+        DatabaseInitializationSettings settings = new DatabaseInitializationSettings();
+        settings.setDataLocations(List.of(SEED_SCRIPT));
+        settings.setMode(DatabaseInitializationMode.ALWAYS); // Not an embedded database for Spring: it is a file
+        return new SeedDataInitializer(dataSource, settings);
+    }
+
+    // Runs the seed script on the first start only, when the products table is still empty
+    static class SeedDataInitializer extends DataSourceScriptDatabaseInitializer {
+
+        private static final Logger logger = LoggerFactory.getLogger(SeedDataInitializer.class);
+
+        private final JdbcTemplate jdbcTemplate;
+
+        SeedDataInitializer(DataSource dataSource, DatabaseInitializationSettings settings) {
+            super(dataSource, settings);
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+
+        @Override
+        public boolean initializeDatabase() {
+            Long products = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Long.class);
+            if (products != null && products > 0) {
+                logger.info("Database already holds {} products, seed data skipped.", products);
+                return false;
+            }
+            logger.info("Empty database, loading the seed data.");
+            return super.initializeDatabase();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.shopi.shopping.configuration;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Background compaction of the file-backed database (profile "file"). The MVStore appends every change in new
+// chunks, leaving the old ones partly dead; H2's own writer only re-writes chunks below
+// shopi.h2.auto-compact-fill-rate, and the full compaction happens when the database is closed. In between, this job
+// re-writes the emptiest chunks on a fixed schedule, bounded by max-write-bytes per run, so the file does not keep
+// growing on a node that is never restarted
+@Component
+@Profile("file")
+public class MvStoreCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(MvStoreCompactor.class);
+
+    private final DataSource dataSource;
+    private final int targetFillRate;
+    private final int maxWriteBytes;
+
+    @Autowired
+    public MvStoreCompactor(DataSource dataSource,
+                            @Value("${shopi.h2.compaction.target-fill-rate:90}") int targetFillRate,
+                            @Value("${shopi.h2.compaction.max-write-bytes:16777216}") int maxWriteBytes) {
+        if (targetFillRate < 1 || targetFillRate > 100) {
+            throw new IllegalArgumentException("Target fill rate must be between 1 and 100: " + targetFillRate);
+        }
+        if (maxWriteBytes <= 0) {
+            throw new IllegalArgumentException("Maximum bytes written per compaction must be positive: " + maxWriteBytes);
+        }
+        this.dataSource = dataSource;
+        this.targetFillRate = targetFillRate;
+        this.maxWriteBytes = maxWriteBytes;
+    }
+
+    @Scheduled(fixedDelayString = "${shopi.h2.compaction.interval-ms:600000}",
+            initialDelayString = "${shopi.h2.compaction.interval-ms:600000}")
+    public void scheduledCompaction() {
+        try {
+            compact();
+        } catch (SQLException e) {
+            logger.warn("MVStore compaction failed", e);
+        }
+    }
+
+    // Re-write the emptiest chunks, up to the byte budget, when the fill rate of the chunks is below the target;
+    // returns the fill rate (%) afterwards. The chunks left behind are only freed after H2's retention time, so the
+    // file shrinks (and the fill rate rises) on a later run
+    public int compact() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            MVStore store = store(connection);
+            FileStore<?> fileStore = store.getFileStore();
+            int before = fileStore.getChunksFillRate();
+            if (before >= targetFillRate) {
+                logger.debug("MVStore fill rate {}%, no compaction needed", before);
+                return before;
+            }
+            long start = System.nanoTime();
+            boolean rewritten = fileStore.compact(targetFillRate, maxWriteBytes);
+            store.commit(); // Write out the moved pages, which frees the old chunks
+            int after = fileStore.getChunksFillRate();
+            logger.info("MVStore compaction in {} ms ({}): fill rate {}% -> {}%, file {} KB",
+                    (System.nanoTime() - start) / 1_000_000, rewritten ? "chunks re-written" : "nothing re-written",
+                    before, after, fileStore.size() / 1024);
+            return after;
+        }
+    }
+
+    // The MVStore behind an (embedded) H2 connection of the pool
+    private static MVStore store(Connection connection) throws SQLException {
+        if (!connection.isWrapperFor(JdbcConnection.class)
+                || !(connection.unwrap(JdbcConnection.class).getSession() instanceof SessionLocal session)) {
+            throw new SQLException("Not an embedded H2 connection: " + connection.getMetaData().getURL());
+        }
+        return session.getDatabase().getStore().getMvStore();
+    }
+}
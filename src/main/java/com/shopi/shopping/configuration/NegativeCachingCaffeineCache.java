@@ -0,0 +1,96 @@
+package com.shopi.shopping.configuration;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.concurrent.Callable;
+
+// Caffeine-backed Spring cache that remembers "not found" results in a separate negative store.
+// The negative store is small and short-lived, so unknown IDs stop reaching the database without
+// taking room from real entries. Any put or evict of a key also drops its negative entry, on every node.
+public class NegativeCachingCaffeineCache extends CoherentCaffeineCache {
+
+    private final Cache<Object, Boolean> negativeEntries;
+
+    public NegativeCachingCaffeineCache(String name, Cache<Object, Object> cache, Cache<Object, Boolean> negativeEntries,
+                                        ApplicationEventPublisher eventPublisher) {
+        super(name, cache, eventPublisher);
+        this.negativeEntries = negativeEntries;
+    }
+
+    // Native Caffeine cache holding the keys known to be missing
+    public Cache<Object, Boolean> getNegativeEntries() {
+        return negativeEntries;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        if (negativeEntries.getIfPresent(key) != null) {
+            return NullValue.INSTANCE; // Known to be missing
+        }
+        return super.lookup(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        if (negativeEntries.getIfPresent(key) != null) {
+            return null; // Known to be missing
+        }
+        T value = super.get(key, valueLoader);
+        if (value == null) {
+            // The loader found nothing: keep the miss in the negative store instead of the main cache
+            getNativeCache().asMap().remove(key, NullValue.INSTANCE);
+            negativeEntries.put(key, Boolean.TRUE);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            getNativeCache().invalidate(key);
+            negativeEntries.put(key, Boolean.TRUE);
+            return;
+        }
+        negativeEntries.invalidate(key);
+        super.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (value == null) {
+            ValueWrapper existing = super.get(key);
+            if (existing == null) {
+                negativeEntries.put(key, Boolean.TRUE);
+            }
+            return existing;
+        }
+        negativeEntries.invalidate(key);
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evictLocally(Object key) {
+        negativeEntries.invalidate(key);
+        super.evictLocally(key);
+    }
+
+    @Override
+    protected boolean evictIfPresentLocally(Object key) {
+        boolean wasMissing = negativeEntries.asMap().remove(key) != null;
+        return super.evictIfPresentLocally(key) || wasMissing;
+    }
+
+    @Override
+    public void clearLocally() {
+        negativeEntries.invalidateAll();
+        super.clearLocally();
+    }
+
+    @Override
+    protected boolean invalidateLocally() {
+        boolean hadMissing = !negativeEntries.asMap().isEmpty();
+        negativeEntries.invalidateAll();
+        return super.invalidateLocally() || hadMissing;
+    }
+}
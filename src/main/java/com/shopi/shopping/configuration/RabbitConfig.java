@@ -8,6 +8,7 @@ public class RabbitConfig {
     public static final String NOTIFICATION_QUEUE = "notifications"; // Name of the queue
     public static final String NOTIFICATION_EXCHANGE = "notificationExchange"; // Name of the exchange
     public static final String ROUTING_KEY = "notifications.#"; // Routing key pattern for binding
+    public static final String CACHE_INVALIDATION_EXCHANGE = "cacheInvalidationExchange"; // Fanout exchange for cache evictions between nodes
 
     // Bean definition for the notification queue
     @Bean
@@ -28,4 +29,23 @@ public class RabbitConfig {
                 .to(notificationExchange) // to the notification exchange
                 .with(ROUTING_KEY); // using the specified routing key
     }
+
+    // Bean definition for the cache invalidation exchange: every node receives every eviction
+    @Bean
+    public FanoutExchange cacheInvalidationExchange() {
+        return new FanoutExchange(CACHE_INVALIDATION_EXCHANGE);
+    }
+
+    // Bean definition for this node's invalidation queue (server-named, exclusive, deleted when the node stops)
+    @Bean
+    public Queue cacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    // Bean definition for binding this node's invalidation queue to the invalidation exchange
+    @Bean
+    public Binding cacheInvalidationBinding(Queue cacheInvalidationQueue, FanoutExchange cacheInvalidationExchange) {
+        return BindingBuilder.bind(cacheInvalidationQueue) // Bind this node's queue
+                .to(cacheInvalidationExchange); // to the fanout exchange (no routing key needed)
+    }
 }
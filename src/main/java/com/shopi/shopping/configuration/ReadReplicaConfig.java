@@ -0,0 +1,85 @@
+package com.shopi.shopping.configuration;
+import com.shopi.shopping.datasource.ReadReplicas;
+import com.shopi.shopping.datasource.ReadYourWritesTracker;
+import com.shopi.shopping.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read replicas (enabled by shopi.datasource.replica-urls). Every transaction marked @Transactional(readOnly = true)
+// reads from a replica; everything else, writes included, goes to the primary configured with spring.datasource.*.
+// The physical connection is only taken at the first statement of a transaction (LazyConnectionDataSourceProxy), once
+// it is known to be read-only, and given back at its end, so one request can read from a replica and write to the
+// primary. Replicas that lag more than max-lag-ms, or do not yet hold the last write of the same session,
+// are skipped (see ReadReplicas and ReadYourWritesTracker)
+@Configuration
+@ConditionalOnProperty("shopi.datasource.replica-urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadReplicas readReplicas(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                     @Value("${shopi.datasource.replica-urls}") List<String> replicaUrls,
+                                     @Value("${shopi.datasource.replication.max-lag-ms:1000}") long maxLagMillis,
+                                     @Value("${shopi.datasource.replication.pool-size:10}") int poolSize,
+                                     @Value("${shopi.ids.node-id}") int nodeId) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(poolSize);
+            replicas.add(replica);
+        }
+        return new ReadReplicas(primaryDataSource, replicas, nodeId, maxLagMillis);
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(ReadReplicas readReplicas) {
+        return new ReadYourWritesTracker(readReplicas.getMaxLagMillis());
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, ReadReplicas readReplicas,
+                                                             ReadYourWritesTracker readYourWritesTracker) {
+        return new ReplicaRoutingDataSource(primaryDataSource, readReplicas, readYourWritesTracker);
+    }
+
+    // The data source of the application (JPA, JdbcTemplate, script initialization)
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    // Hibernate would otherwise keep the first connection for the whole session (a whole request with open-in-view),
+    // and every later transaction of the request would run on the same database, read-only or not
+    @Bean
+    public HibernatePropertiesCustomizer connectionReleaseCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,78 @@
+package com.shopi.shopping.configuration;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+// Hibernate second-level cache: entity and query regions held in Caffeine through JCache.
+// Every region is created here with its own bounds (hibernate.javax.cache.missing_cache_strategy=fail rejects any
+// other), so no region is ever unbounded. Hit, miss and put counts per region come from Hibernate statistics,
+// see HibernateCacheStatsEndpoint
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String PRODUCT_REGION = "products"; // Product, Book, Clothing and Electronic entities by ID
+    public static final String DISCOUNT_REGION = "discounts"; // Discount entities by ID
+    public static final String DISCOUNT_QUERY_REGION = "discountQueries"; // Results of the cacheable discount queries
+
+    // Regions of Hibernate itself: results of cacheable queries without a region of their own, and the last update
+    // time of every table, which tells whether a cached query result is still valid
+    static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    // Limits for the product entities (updated by price changes; expiry bounds any staleness from outside writes)
+    static final long PRODUCTS_MAX_SIZE = 10_000;
+    static final Duration PRODUCTS_EXPIRE_AFTER_WRITE = Duration.ofMinutes(30);
+
+    // Limits for the discount entities and queries (few, and rarely changed)
+    static final long DISCOUNTS_MAX_SIZE = 1_000;
+    static final Duration DISCOUNTS_EXPIRE_AFTER_WRITE = Duration.ofHours(1);
+    static final long DISCOUNT_QUERIES_MAX_SIZE = 100;
+    static final Duration DISCOUNT_QUERIES_EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+    // Limits for the default query region
+    static final long DEFAULT_QUERIES_MAX_SIZE = 1_000;
+    static final Duration DEFAULT_QUERIES_EXPIRE_AFTER_WRITE = Duration.ofMinutes(5);
+
+    // One entry per table; never expired, or cached query results could outlive the knowledge that they are stale
+    static final long UPDATE_TIMESTAMPS_MAX_SIZE = 1_000;
+
+    // A JCache manager of its own for every application context (tests start several, each with its own database),
+    // handed to Hibernate instead of the provider's shared default one
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("shopi-second-level-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(PRODUCT_REGION, region(PRODUCTS_MAX_SIZE, PRODUCTS_EXPIRE_AFTER_WRITE));
+        cacheManager.createCache(DISCOUNT_REGION, region(DISCOUNTS_MAX_SIZE, DISCOUNTS_EXPIRE_AFTER_WRITE));
+        cacheManager.createCache(DISCOUNT_QUERY_REGION, region(DISCOUNT_QUERIES_MAX_SIZE, DISCOUNT_QUERIES_EXPIRE_AFTER_WRITE));
+        cacheManager.createCache(DEFAULT_QUERY_REGION, region(DEFAULT_QUERIES_MAX_SIZE, DEFAULT_QUERIES_EXPIRE_AFTER_WRITE));
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, region(UPDATE_TIMESTAMPS_MAX_SIZE, null));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    // Hibernate caches immutable, disassembled entries, so they are stored by reference instead of copied
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, Duration expireAfterWrite) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        if (expireAfterWrite != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        }
+        return configuration;
+    }
+}
@@ -1,6 +1,7 @@
 package com.shopi.shopping.controllers;
 
 import com.shopi.shopping.models.Discount;
+import com.shopi.shopping.models.snapshots.DiscountSnapshot;
 import com.shopi.shopping.services.DiscountService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -73,8 +74,8 @@ public class DiscountController {
     @ApiResponse(responseCode = "200", description = "List of active discounts retrieved successfully.")
     //------
     @GetMapping
-    public ResponseEntity<List<Discount>> getAllDiscounts() {
-        List<Discount> discounts = discountService.findActiveDiscounts();
+    public ResponseEntity<List<DiscountSnapshot>> getAllDiscounts() {
+        List<DiscountSnapshot> discounts = discountService.findActiveDiscounts();
         return ResponseEntity.ok(discounts); // Return 200 OK
     }
 
@@ -63,7 +63,7 @@ public class HomeController {
         }
 
         // Add attributes to the model
-        model.addAttribute("products", productService.getAllProducts()); // Load all available products
+        model.addAttribute("products", productService.getCatalog()); // All available products, from the in-memory catalog
         model.addAttribute("cartItems", cart.getProducts()); // Show the current products in the cart
         model.addAttribute("cartId", cart.getId());
         model.addAttribute("customerId", customerId); // Add customerId to the model
@@ -2,17 +2,39 @@ package com.shopi.shopping.controllers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.FacetedProducts;
+import com.shopi.shopping.models.snapshots.ProductPage;
+import com.shopi.shopping.models.snapshots.ProductSearchHit;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSuggestion;
 import com.shopi.shopping.services.ProductService;
+import com.shopi.shopping.services.importing.ProductImportReport;
+import com.shopi.shopping.services.importing.ProductImportService;
+import com.shopi.shopping.services.pricing.PriceChange;
+import com.shopi.shopping.services.pricing.PriceUpdateResult;
+import com.shopi.shopping.services.pricing.ProductPricingService;
+import com.shopi.shopping.services.pricing.RepriceResult;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 
@@ -21,12 +43,19 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final ProductImportService productImportService;
+    private final ProductPricingService productPricingService;
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper, ProductImportService productImportService,
+                             ProductPricingService productPricingService) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.productImportService = productImportService;
+        this.productPricingService = productPricingService;
     }
 
     //------
@@ -38,9 +67,9 @@ public class ProductController {
     })
     //------
     @GetMapping // Find all products
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        logger.info("Fetched products: " + products);
+    public ResponseEntity<List<ProductSnapshot>> getAllProducts() {
+        List<ProductSnapshot> products = productService.getCatalog(); // In-memory catalog snapshot
+        logger.debug("Fetched {} products", products.size());
 
         // Si la lista está vacía, devuelve un No Content (204)
         if (products.isEmpty()) {
@@ -53,6 +82,130 @@ public class ProductController {
 
 
 
+    //------
+    @Operation(summary = "Get a page of products", description = "Keyset pagination on the product ID, with optional type and price filters. Pass nextCursor as 'after' to get the next page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page retrieved successfully."),
+            @ApiResponse(responseCode = "400", description = "Invalid limit, type or price range.")
+    })
+    //------
+    @GetMapping("/page") //---------"Find products page by page"------
+    public ResponseEntity<ProductPage> getProductPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice) {
+        try {
+            return ResponseEntity.ok(productService.getProductPage(after, limit, type, minPrice, maxPrice));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //------
+    @Operation(summary = "Filter products by facets", description = "Products of any of the given types and any of the given price ranges (e.g. 10-25, 1000+), first ones by ID, with the number of products for every type and price range.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products and facet counts retrieved successfully."),
+            @ApiResponse(responseCode = "400", description = "Invalid limit, type or price range.")
+    })
+    //------
+    @GetMapping("/facets") //---------"Filter products by type and price range"------
+    public ResponseEntity<FacetedProducts> filterProducts(
+            @RequestParam(required = false) List<String> type,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productService.filterProducts(type, price, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //------
+    @Operation(summary = "List products by price", description = "Cheapest products first, optionally of the given types and within a price range (inclusive). With only a type and a limit, this is the cheapest N of that category.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products retrieved successfully."),
+            @ApiResponse(responseCode = "400", description = "Invalid limit, type or price range.")
+    })
+    //------
+    @GetMapping("/by-price") //---------"Find products sorted by price"------
+    public ResponseEntity<List<ProductSnapshot>> getProductsByPrice(
+            @RequestParam(required = false) List<String> type,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productService.getProductsByPrice(type, minPrice, maxPrice, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //------
+    @Operation(summary = "Stream all products", description = "Streams every matching product as newline-delimited JSON, in ID order, while it is read from the database.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products streamed successfully."),
+            @ApiResponse(responseCode = "400", description = "Invalid type or price range.")
+    })
+    //------
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE) //---------"Stream all products"------
+    public ResponseEntity<StreamingResponseBody> streamProducts(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice) {
+        try {
+            productService.validateFilter(type, minPrice, maxPrice); // Fail with 400 before the response is committed
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> productService.streamProducts(type, minPrice, maxPrice, product -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(product));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // Client went away: stop reading rows
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    //------
+    @Operation(summary = "Search products", description = "Keyword search over product names and descriptions, best match first.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search completed successfully."),
+            @ApiResponse(responseCode = "400", description = "Invalid limit.")
+    })
+    //------
+    @GetMapping("/search") //---------"Search products by keywords"------
+    public ResponseEntity<List<ProductSearchHit>> searchProducts(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productService.searchProducts(q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //------
+    @Operation(summary = "Autocomplete product names", description = "Completes a product name (or any of its first words) from a prefix, most popular products first.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully."),
+            @ApiResponse(responseCode = "400", description = "Invalid limit.")
+    })
+    //------
+    @GetMapping("/autocomplete") //---------"Suggest products for a prefix"------
+    public ResponseEntity<List<ProductSuggestion>> autocomplete(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productService.autocomplete(prefix, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     //------
     @Operation(summary = "Get a product by ID", description = "Fetches a specific product by its ID.")
     @ApiResponses(value = {
@@ -61,8 +214,8 @@ public class ProductController {
     })
     //------
     @GetMapping("/{id}") //---------"Find a product given unique identifier"----------
-    public ResponseEntity<Product> getProductById(@PathVariable long id) {
-        Product product = productService.getProductById(id);
+    public ResponseEntity<ProductSnapshot> getProductById(@PathVariable long id) {
+        ProductSnapshot product = productService.getProductByIdCached(id); // Cached, including unknown IDs
         return (product != null) ? ResponseEntity.ok(product) : ResponseEntity.notFound().build();
     }
 
@@ -82,11 +235,31 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(newProduct);
     }
 
+    //------
+    @Operation(summary = "Import products in bulk", description = "Creates products from a CSV (type,name,price[,description], optional header) or NDJSON upload, streamed and written in batches. Rows that cannot be imported are reported and skipped.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished; the report lists the rejected rows."),
+            @ApiResponse(responseCode = "415", description = "Neither CSV nor NDJSON.")
+    })
+    //------
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE}) //---------"Import products"------
+    public ResponseEntity<ProductImportReport> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        Reader reader = new InputStreamReader(body, contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8);
+        ProductImportReport report = MediaType.APPLICATION_NDJSON.includes(contentType)
+                ? productImportService.importNdjson(reader)
+                : productImportService.importCsv(reader);
+        logger.info("Imported {} products ({} rows rejected)", report.imported(), report.failed());
+        return ResponseEntity.ok(report);
+    }
+
     //------
     @Operation(summary = "Update an existing product", description = "Updates the details of an existing product.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Product updated successfully."),
             @ApiResponse(responseCode = "404", description = "Product not found."),
+            @ApiResponse(responseCode = "409", description = "Product changed meanwhile."),
             @ApiResponse(responseCode = "400", description = "Invalid product details.")
     })
     //------
@@ -111,12 +284,50 @@ public class ProductController {
         existingProduct.setDescription(description);
 
         // Update the product in the service
-        productService.updateProduct(existingProduct);
+        try {
+            productService.updateProduct(existingProduct);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build(); // Changed by someone else meanwhile (e.g. a re-pricing)
+        }
 
         return ResponseEntity.ok(existingProduct); // Return the updated product
     }
 
 
+    //------
+    @Operation(summary = "Re-price a category", description = "Changes the price of every product of the type (every product without a type) by a percentage, e.g. -15 for 15% cheaper, in one set-based update.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products re-priced."),
+            @ApiResponse(responseCode = "400", description = "Invalid type or percentage.")
+    })
+    //------
+    @PostMapping("/reprice") //---------"Re-price a category"------
+    public ResponseEntity<RepriceResult> repriceCategory(
+            @RequestParam(required = false) String type,
+            @RequestParam BigDecimal percent) {
+        try {
+            return ResponseEntity.ok(productPricingService.repriceCategory(type, percent));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    //------
+    @Operation(summary = "Update prices in bulk", description = "Sets the price of each listed product whose version still matches the given one, in one batch. Products changed since are returned as conflicts.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Prices updated; conflicts are listed."),
+            @ApiResponse(responseCode = "400", description = "Empty, too large or invalid list of price changes.")
+    })
+    //------
+    @PutMapping("/prices") //---------"Update prices in bulk"------
+    public ResponseEntity<PriceUpdateResult> updatePrices(@RequestBody List<PriceChange> changes) {
+        try {
+            return ResponseEntity.ok(productPricingService.updatePrices(changes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     //------
     @Operation(summary = "Delete a product by ID", description = "Deletes a specific product by its ID.")
     @ApiResponses(value = {
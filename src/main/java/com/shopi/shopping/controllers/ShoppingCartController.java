@@ -12,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -69,6 +70,21 @@ public class ShoppingCartController {
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
 
+    //------
+    @Operation(summary = "Get the total price of a shopping cart", description = "Totals a shopping cart, read from the cache, at the current product prices.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Total price calculated successfully."),
+            @ApiResponse(responseCode = "404", description = "Shopping cart not found.")
+    })
+    //------
+    @GetMapping("/{id}/total")
+    public ResponseEntity<BigDecimal> getCartTotal(@PathVariable Long id) {
+        return shoppingCartService.getCartByIdWithCache(id)
+                .map(shoppingCartService::calculateCachedTotalPrice)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
     //------
     @Operation(summary = "Delete a shopping cart by ID", description = "Deletes a shopping cart by its ID.")
     @ApiResponses(value = {
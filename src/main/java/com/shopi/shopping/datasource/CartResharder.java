@@ -0,0 +1,200 @@
+package com.shopi.shopping.datasource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+// Adds a cart shard while the application keeps running. The new shard takes over the ranges of the ring that end at
+// its points. The customers of every shard giving up ranges are read once, and grouped by the range they fall in; then
+// each range is moved on its own:
+// - its carts are copied to the new shard, with the cart operations going on meanwhile
+// - with the routing lock held for writing: the carts written or deleted during the copy are brought up to date on the
+//   new shard, the originals are deleted from the shard that had them, and from then on the range goes to the new shard
+// So cart operations only ever wait for the last step of a single range, whose cost is the writes made during its copy.
+// A move that fails stops where it is: ranges already moved stay on the new shard, the others where they were (a copy
+// of the range being moved may be left on the new shard, where listings ignore it)
+public class CartResharder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartResharder.class);
+
+    // Customers per statement (the size of the IN lists)
+    private static final int BATCH_SIZE = 1000;
+
+    // Stands for the carts without a customer, which the ring places as customer 0
+    private static final long NO_CUSTOMER = 0L;
+
+    private final CartShards shards;
+
+    public CartResharder(CartShards shards) {
+        this.shards = shards;
+    }
+
+    public record ReshardReport(String shard, String url, int ranges, int customers, int carts, long millis) {
+    }
+
+    private record CartRow(long id, Long customerId, String status) {
+    }
+
+    // Open the shard at the URL, put it on the ring and move its ranges to it
+    public synchronized ReshardReport addShard(String url) {
+        long start = System.currentTimeMillis();
+        String shard = shards.attach(url);
+        ConsistentHashRing ring = shards.ring();
+        ConsistentHashRing next = ring.with(shard);
+        Lock lock = shards.routingLock().writeLock();
+        lock.lock();
+        try {
+            shards.beginMove(next);
+        } finally {
+            lock.unlock();
+        }
+
+        // Read after beginMove, so that a customer whose first cart comes later is recorded as written
+        List<Long> points = next.pointsOf(shard);
+        Map<Long, Set<Long>> customersByRange = customersByRange(ring, next, points);
+        int customers = 0;
+        int carts = 0;
+        for (long point : points) {
+            // No point of the old ring falls in the range, so it all belongs to the owner of its end point
+            String source = ring.ownerOfHash(point);
+            Set<Long> range = customersByRange.getOrDefault(point, new HashSet<>());
+            range.addAll(shards.takeWritten(point));
+            copy(source, shard, range);
+
+            lock.lock();
+            try {
+                Set<Long> rewritten = shards.takeWritten(point);
+                copy(source, shard, rewritten);
+                deleteCarts(shard, shards.takeDeleted());
+                range.addAll(rewritten);
+                carts += deleteCustomers(source, range);
+                shards.moved(point);
+            } finally {
+                lock.unlock();
+            }
+            customers += range.size();
+        }
+
+        lock.lock();
+        try {
+            shards.completeMove();
+        } finally {
+            lock.unlock();
+        }
+        ReshardReport report = new ReshardReport(shard, url, points.size(), customers, carts,
+                System.currentTimeMillis() - start);
+        logger.info("Cart shard {} added: {} carts of {} customers moved in {} ranges, {} ms",
+                shard, carts, customers, points.size(), report.millis());
+        return report;
+    }
+
+    // One scan of every shard giving up ranges: its customers in those ranges, by the point ending their range
+    private Map<Long, Set<Long>> customersByRange(ConsistentHashRing ring, ConsistentHashRing next, List<Long> points) {
+        Set<Long> moving = new HashSet<>(points);
+        Set<String> sources = new HashSet<>();
+        points.forEach(point -> sources.add(ring.ownerOfHash(point)));
+        Map<Long, Set<Long>> byRange = new HashMap<>();
+        for (String source : sources) {
+            new JdbcTemplate(shards.dataSource(source)).query("SELECT DISTINCT customer_id FROM shopping_carts", row -> {
+                long customerId = row.getObject(1) != null ? row.getLong(1) : NO_CUSTOMER;
+                long point = next.pointOf(ConsistentHashRing.hashOf(customerId));
+                if (moving.contains(point)) {
+                    byRange.computeIfAbsent(point, range -> new HashSet<>()).add(customerId);
+                }
+            });
+        }
+        return byRange;
+    }
+
+    // Copy the carts of the customers, with their products, replacing whatever the target had of them: a range left half
+    // moved by a failure, or copied again, ends up the same
+    private void copy(String source, String target, Set<Long> customers) {
+        NamedParameterJdbcTemplate from = new NamedParameterJdbcTemplate(shards.dataSource(source));
+        JdbcTemplate to = new JdbcTemplate(shards.dataSource(target));
+        for (List<Long> batch : batches(customers)) {
+            MapSqlParameterSource parameters = parameters(batch);
+            // Carts and products in one statement, so both are read as of the same moment
+            Map<Long, CartRow> carts = new LinkedHashMap<>();
+            List<Object[]> products = new ArrayList<>();
+            from.query("SELECT c.id, c.customer_id, c.status, p.product_id FROM shopping_carts c"
+                    + " LEFT JOIN shopping_cart_products p ON p.shopping_cart_id = c.id WHERE "
+                    + customerCondition(batch), parameters, row -> {
+                long id = row.getLong("id");
+                carts.putIfAbsent(id, new CartRow(id, row.getObject("customer_id", Long.class), row.getString("status")));
+                Long productId = row.getObject("product_id", Long.class);
+                if (productId != null) {
+                    products.add(new Object[]{id, productId});
+                }
+            });
+
+            inTransaction(target, status -> {
+                // The cart products go with their cart (ON DELETE CASCADE)
+                new NamedParameterJdbcTemplate(to).update("DELETE FROM shopping_carts c WHERE "
+                        + customerCondition(batch), parameters);
+                to.batchUpdate("INSERT INTO shopping_carts (id, customer_id, status) VALUES (?, ?, ?)",
+                        carts.values().stream()
+                                .map(cart -> new Object[]{cart.id(), cart.customerId(), cart.status()})
+                                .toList());
+                return to.batchUpdate("INSERT INTO shopping_cart_products (shopping_cart_id, product_id) VALUES (?, ?)",
+                        products);
+            });
+        }
+    }
+
+    // Carts deleted while their range was being copied, which the copy may have brought back
+    private void deleteCarts(String shard, Set<Long> cartIds) {
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(shards.dataSource(shard));
+        for (List<Long> batch : batches(cartIds)) {
+            inTransaction(shard, status -> jdbcTemplate.update("DELETE FROM shopping_carts WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", batch)));
+        }
+    }
+
+    // Number of carts deleted
+    private int deleteCustomers(String shard, Set<Long> customers) {
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(shards.dataSource(shard));
+        int deleted = 0;
+        for (List<Long> batch : batches(customers)) {
+            deleted += inTransaction(shard, status -> jdbcTemplate.update("DELETE FROM shopping_carts c WHERE "
+                    + customerCondition(batch), parameters(batch)));
+        }
+        return deleted;
+    }
+
+    // On the index of customer_id; the carts without a customer with customer 0
+    private static String customerCondition(List<Long> customers) {
+        return customers.contains(NO_CUSTOMER)
+                ? "(c.customer_id IN (:customers) OR c.customer_id IS NULL)"
+                : "c.customer_id IN (:customers)";
+    }
+
+    private static MapSqlParameterSource parameters(List<Long> customers) {
+        return new MapSqlParameterSource("customers", customers);
+    }
+
+    private static List<List<Long>> batches(Set<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += BATCH_SIZE) {
+            batches.add(all.subList(i, Math.min(i + BATCH_SIZE, all.size())));
+        }
+        return batches;
+    }
+
+    private <T> T inTransaction(String shard, TransactionCallback<T> work) {
+        return new TransactionTemplate(new DataSourceTransactionManager(shards.dataSource(shard))).execute(work);
+    }
+}
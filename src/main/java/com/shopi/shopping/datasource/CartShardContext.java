@@ -0,0 +1,32 @@
+package com.shopi.shopping.datasource;
+import java.util.function.Supplier;
+
+// Shard that the connections of the current thread go to (see CartShardRoutingDataSource). Set around a cart repository
+// call for its whole transaction, unset (the main database) everywhere else
+public final class CartShardContext {
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    private CartShardContext() {
+    }
+
+    // Shard of the current thread, or null for the main database
+    public static String current() {
+        return current.get();
+    }
+
+    // Run the task with its connections on the shard
+    public static <T> T callOn(String shard, Supplier<T> task) {
+        String previous = current.get();
+        current.set(shard);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.shopi.shopping.datasource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// The application data source once carts are sharded: connections go to the shard set on the current thread
+// (CartShardContext), to the main database otherwise. Shards come and go with resharding, so they are looked up in
+// CartShards on every connection rather than fixed as target data sources
+public class CartShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final DataSource main;
+    private final CartShards shards;
+
+    public CartShardRoutingDataSource(DataSource main, CartShards shards) {
+        this.main = main;
+        this.shards = shards;
+        setTargetDataSources(Map.of());
+        setDefaultTargetDataSource(main);
+        afterPropertiesSet();
+    }
+
+    public DataSource getMainDataSource() {
+        return main;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CartShardContext.current();
+    }
+
+    @Override
+    protected DataSource determineTargetDataSource() {
+        String shard = CartShardContext.current();
+        return shard == null ? main : shards.dataSource(shard);
+    }
+}
@@ -0,0 +1,253 @@
+package com.shopi.shopping.datasource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.snapshots.ProductPopularity;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+
+// Runs every ShoppingCartRepository call on the shard(s) it concerns, each in a transaction of its own on that shard:
+// - a cart, or a customer's carts (found or deleted), on the shard of the customer
+// - a cart by ID on the shard it was last seen on, every shard when unknown or no longer there
+// - listings, counts (also of the carts of each product) and deletes on every shard at once (scatter-gather), the
+//   results put together
+// First advice of the repository proxy, so the shard is set before the repository's own transaction starts; an outer
+// transaction on the main database is suspended meanwhile. Entities come back detached, with whatever their fetch
+// plan loaded (their lazy associations would be read from the main database)
+public class CartShardingInterceptor implements MethodInterceptor, AutoCloseable {
+
+    // Every method of ShoppingCartRepository, each one routed by invoke
+    static final Set<String> ROUTED = Set.of("save", "findByCustomerId", "findById", "existsById", "findAll",
+            "findByStatus", "count", "countCartsByProduct", "deleteById", "deleteAll", "deleteByCustomerId");
+
+    private final CartShards shards;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final ExecutorService scatter;
+
+    // Shard each cart was last seen on: a cart found by ID is looked for there first
+    private final Cache<Long, String> locations;
+
+    private volatile TransactionTemplate readTransaction;
+    private volatile TransactionTemplate writeTransaction;
+
+    public CartShardingInterceptor(CartShards shards, ObjectProvider<PlatformTransactionManager> transactionManager,
+                                   int scatterThreads, long locationCacheSize) {
+        if (scatterThreads <= 0) {
+            throw new IllegalArgumentException("Scatter threads must be positive: " + scatterThreads);
+        }
+        // A method added to the repository must be routed here too, or carts would be read from the main database
+        List<String> unrouted = Arrays.stream(ShoppingCartRepository.class.getDeclaredMethods())
+                .map(Method::getName)
+                .filter(name -> !ROUTED.contains(name))
+                .sorted()
+                .toList();
+        if (!unrouted.isEmpty()) {
+            throw new IllegalStateException("ShoppingCartRepository methods not routed to the cart shards: " + unrouted);
+        }
+        this.shards = shards;
+        this.transactionManager = transactionManager;
+        this.scatter = Executors.newFixedThreadPool(scatterThreads);
+        this.locations = Caffeine.newBuilder().maximumSize(locationCacheSize).build();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object[] arguments = invocation.getArguments();
+        Lock lock = shards.routingLock().readLock();
+        lock.lock();
+        try {
+            return switch (invocation.getMethod().getName()) {
+                case "save" -> save(invocation, (ShoppingCart) arguments[0]);
+                case "findByCustomerId" -> onShard(shards.ownerOf((Long) arguments[0]), invocation, true);
+                case "findById", "existsById" -> findById(invocation, (Long) arguments[0]);
+                case "findAll", "findByStatus" -> gather(invocation);
+                case "count" -> {
+                    long count = 0;
+                    for (Object shardCount : onEveryShard(shards.names(), invocation, true)) {
+                        count += (Long) shardCount;
+                    }
+                    yield count;
+                }
+                case "countCartsByProduct" -> countCartsByProduct(invocation);
+                // On every shard: a cart may be on any of them, and deleting one that is not there does nothing
+                case "deleteById" -> {
+                    onEveryShard(shards.names(), invocation, false);
+                    shards.deleted((Long) arguments[0]);
+                    yield null;
+                }
+                case "deleteAll" -> {
+                    onEveryShard(shards.names(), invocation, false);
+                    for (Object cart : (Iterable<?>) arguments[0]) {
+                        shards.deleted(((ShoppingCart) cart).getId());
+                    }
+                    yield null;
+                }
+                case "deleteByCustomerId" -> {
+                    onShard(shards.ownerOf((Long) arguments[0]), invocation, false);
+                    shards.written((Long) arguments[0]);
+                    yield null;
+                }
+                // ShoppingCartRepository only declares the methods above (see ROUTED)
+                default -> throw new IllegalStateException("ShoppingCartRepository." + invocation.getMethod().getName()
+                        + " is not routed to the cart shards");
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Object save(MethodInvocation invocation, ShoppingCart cart) {
+        String shard = shards.ownerOf(customerId(cart));
+        ShoppingCart saved = (ShoppingCart) onShard(shard, invocation, false);
+        // Once committed: a resharder reading the customer's carts after this sees the cart, one reading them before
+        // copies them again
+        shards.written(customerId(cart));
+        locations.put(saved.getId(), shard);
+        return saved;
+    }
+
+    // findById or existsById: on the last known shard, then on all of them
+    private Object findById(MethodInvocation invocation, Long id) throws Throwable {
+        String known = locations.getIfPresent(id);
+        if (known != null && shards.names().contains(known)) {
+            Object result = onShard(known, invocation, true);
+            if (isFound(result)) {
+                return result;
+            }
+        }
+        List<String> names = shards.names();
+        List<Object> results = onEveryShard(names, invocation, true);
+        for (int i = 0; i < results.size(); i++) {
+            if (isFound(results.get(i))) {
+                locations.put(id, names.get(i));
+                return results.get(i);
+            }
+        }
+        locations.invalidate(id);
+        return results.get(0); // Empty or false
+    }
+
+    private static boolean isFound(Object result) {
+        return result instanceof Optional<?> optional ? optional.isPresent() : Boolean.TRUE.equals(result);
+    }
+
+    // The carts of every shard, once each: a copy left behind by an interrupted move only counts on its owner's shard
+    private Object gather(MethodInvocation invocation) throws Throwable {
+        Map<Long, ShoppingCart> carts = new LinkedHashMap<>();
+        List<String> names = shards.names();
+        List<Object> results = onEveryShard(names, invocation, true);
+        for (int i = 0; i < results.size(); i++) {
+            for (Object element : (Collection<?>) results.get(i)) {
+                ShoppingCart cart = (ShoppingCart) element;
+                if (!carts.containsKey(cart.getId()) || names.get(i).equals(shards.ownerOf(customerId(cart)))) {
+                    carts.put(cart.getId(), cart);
+                }
+            }
+        }
+        return new ArrayList<>(carts.values());
+    }
+
+    // The carts of each product, added up over the shards
+    private Object countCartsByProduct(MethodInvocation invocation) throws Throwable {
+        Map<Long, Long> carts = new LinkedHashMap<>();
+        for (Object shardCounts : onEveryShard(shards.names(), invocation, true)) {
+            for (Object row : (Collection<?>) shardCounts) {
+                ProductPopularity popularity = (ProductPopularity) row;
+                carts.merge(popularity.productId(), popularity.carts(), Long::sum);
+            }
+        }
+        List<ProductPopularity> counts = new ArrayList<>();
+        carts.forEach((productId, count) -> counts.add(new ProductPopularity(productId, count)));
+        return counts;
+    }
+
+    // The call on every shard in parallel, results in shard order
+    private List<Object> onEveryShard(List<String> names, MethodInvocation invocation, boolean readOnly) throws Throwable {
+        if (names.size() == 1) {
+            return List.of(onShard(names.get(0), invocation, readOnly));
+        }
+        List<Future<Object>> calls = new ArrayList<>();
+        for (String shard : names) {
+            calls.add(scatter.submit(() -> onShard(shard, invocation, readOnly)));
+        }
+        List<Object> results = new ArrayList<>();
+        for (Future<Object> call : calls) {
+            try {
+                results.add(call.get());
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+        return results;
+    }
+
+    private Object onShard(String shard, MethodInvocation invocation, boolean readOnly) {
+        MethodInvocation call = ((ProxyMethodInvocation) invocation).invocableClone();
+        TransactionTemplate transaction = readOnly ? readTransaction() : writeTransaction();
+        // Named here, as the shard's transaction (and connection) starts before the rest of the proxy runs
+        return RepositoryCallSite.callAs("ShoppingCartRepository." + invocation.getMethod().getName(),
+                () -> CartShardContext.callOn(shard, () -> transaction.execute(status -> proceed(call))));
+    }
+
+    private static Object proceed(MethodInvocation call) {
+        try {
+            return call.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e); // Repository methods declare no checked exception
+        }
+    }
+
+    private TransactionTemplate readTransaction() {
+        if (readTransaction == null) {
+            TransactionTemplate template = newTransaction();
+            template.setReadOnly(true);
+            readTransaction = template;
+        }
+        return readTransaction;
+    }
+
+    private TransactionTemplate writeTransaction() {
+        if (writeTransaction == null) {
+            writeTransaction = newTransaction();
+        }
+        return writeTransaction;
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager.getObject());
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static Long customerId(ShoppingCart cart) {
+        return cart.getCustomer() != null ? cart.getCustomer().getId() : null;
+    }
+
+    @Override
+    public void close() {
+        scatter.shutdownNow();
+    }
+}
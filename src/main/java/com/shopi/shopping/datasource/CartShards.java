@@ -0,0 +1,207 @@
+package com.shopi.shopping.datasource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// The cart shards: one database each, holding shopping_carts and shopping_cart_products for the customers that the
+// consistent hash ring gives it. Customers and products stay in the main database; each shard sees them through
+// read-only linked tables, so that the cart queries (and their joins) run unchanged on a shard.
+// While a new shard is being filled (see CartResharder) there are two rings: a customer goes by the new one once the
+// range of the ring holding it has been moved, by the old one until then. Cart operations hold the routing lock for
+// reading; a range is switched to its new shard with the lock held for writing, so no operation ever sees it half
+// moved. Meanwhile the carts written and deleted are recorded, for the resharder to bring its copies up to date
+public class CartShards implements SmartInitializingSingleton, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartShards.class);
+
+    static final String SCHEMA = "shard-schema.sql";
+
+    // Main database tables that the shards link to
+    private static final List<String> LINKED_TABLES = List.of("customers", "products");
+
+    private record Topology(ConsistentHashRing ring, ConsistentHashRing next, Set<Long> moved) {
+    }
+
+    private final Map<String, HikariDataSource> dataSources = new ConcurrentHashMap<>();
+    private final List<String> names = new CopyOnWriteArrayList<>();
+    private final ReadWriteLock routingLock = new ReentrantReadWriteLock();
+    private final String mainUrl;
+    private final String username;
+    private final String password;
+    private final int poolSize;
+    private volatile Topology topology;
+
+    // While resharding: customers whose carts were written (customer 0 for carts without one), and carts deleted
+    private final Set<Long> written = ConcurrentHashMap.newKeySet();
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+
+    public CartShards(List<String> shardUrls, int virtualNodes, int poolSize,
+                      String mainUrl, String username, String password) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Shard pool size must be positive: " + poolSize);
+        }
+        this.mainUrl = mainUrl;
+        this.username = username;
+        this.password = password;
+        this.poolSize = poolSize;
+        for (String url : shardUrls) {
+            names.add(open(url));
+        }
+        this.topology = new Topology(ConsistentHashRing.of(names, virtualNodes), null, Set.of());
+    }
+
+    // Create the shard tables and link the main ones, once the main database schema exists (after JPA has started)
+    @Override
+    public void afterSingletonsInstantiated() {
+        names.forEach(this::initialize);
+    }
+
+    // Shard of the customer's carts (carts without a customer are kept together, as customer 0)
+    public String ownerOf(Long customerId) {
+        long hash = ConsistentHashRing.hashOf(customerId != null ? customerId : 0);
+        Topology current = topology;
+        if (current.next() != null && current.moved().contains(current.next().pointOf(hash))) {
+            return current.next().ownerOfHash(hash);
+        }
+        return current.ring().ownerOfHash(hash);
+    }
+
+    // Every shard holding carts, in the order they were added
+    public List<String> names() {
+        return List.copyOf(names);
+    }
+
+    public DataSource dataSource(String shard) {
+        HikariDataSource dataSource = dataSources.get(shard);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown cart shard: " + shard);
+        }
+        return dataSource;
+    }
+
+    public String url(String shard) {
+        return ((HikariDataSource) dataSource(shard)).getJdbcUrl();
+    }
+
+    public ConsistentHashRing ring() {
+        return topology.ring();
+    }
+
+    public boolean isResharding() {
+        return topology.next() != null;
+    }
+
+    // Read lock: any cart operation. Write lock: moving a range between shards
+    public ReadWriteLock routingLock() {
+        return routingLock;
+    }
+
+    // Open and initialize a new shard, not on the ring yet: nothing goes to it until ranges are moved there. Listed
+    // among the shards only once its tables and links exist, as the calls gathering every shard start using it then
+    public String attach(String url) {
+        String shard = open(url);
+        initialize(shard);
+        names.add(shard);
+        return shard;
+    }
+
+    // A cart of the customer was saved, or all of the customer's carts deleted (called with the read lock held)
+    public void written(Long customerId) {
+        if (topology.next() != null) {
+            written.add(customerId != null ? customerId : 0L);
+        }
+    }
+
+    // A cart was deleted (called with the read lock held)
+    public void deleted(Long cartId) {
+        if (topology.next() != null && cartId != null) {
+            deleted.add(cartId);
+        }
+    }
+
+    // Start moving ranges to the next ring (one shard more)
+    void beginMove(ConsistentHashRing next) {
+        if (topology.next() != null) {
+            throw new IllegalStateException("Carts are already being resharded");
+        }
+        written.clear();
+        deleted.clear();
+        topology = new Topology(topology.ring(), next, ConcurrentHashMap.newKeySet());
+    }
+
+    // The customers written in the range ending at this point of the next ring since last taken
+    Set<Long> takeWritten(long point) {
+        ConsistentHashRing next = topology.next();
+        Set<Long> taken = new HashSet<>();
+        written.removeIf(customerId ->
+                next.pointOf(ConsistentHashRing.hashOf(customerId)) == point && taken.add(customerId));
+        return taken;
+    }
+
+    // The carts deleted since last taken
+    Set<Long> takeDeleted() {
+        Set<Long> taken = new HashSet<>(deleted);
+        deleted.removeAll(taken);
+        return taken;
+    }
+
+    // The range ending at this point of the next ring is now on its new shard (called with the write lock held)
+    void moved(long point) {
+        topology.moved().add(point);
+    }
+
+    // Every range has moved: the next ring is the ring
+    void completeMove() {
+        topology = new Topology(topology.next(), null, Set.of());
+        written.clear();
+        deleted.clear();
+    }
+
+    private synchronized String open(String url) {
+        String shard = "shard-" + dataSources.size();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(shard);
+        dataSource.setJdbcUrl(url.trim());
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSources.put(shard, dataSource);
+        return shard;
+    }
+
+    private void initialize(String shard) {
+        DataSource dataSource = dataSource(shard);
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(dataSource);
+        // Linked again on every start: the main database may have moved (a new in-memory one in every run)
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String table : LINKED_TABLES) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+            jdbcTemplate.execute("CREATE LINKED TABLE " + table + "('org.h2.Driver', " + quote(mainUrl) + ", "
+                    + quote(username) + ", " + quote(password) + ", " + quote(table.toUpperCase()) + ") READONLY");
+        }
+        logger.info("Cart shard {} ready at {}", shard, url(shard));
+    }
+
+    private static String quote(String value) {
+        return "'" + (value != null ? value.replace("'", "''") : "") + "'";
+    }
+
+    @Override
+    public void close() {
+        dataSources.values().forEach(HikariDataSource::close);
+    }
+}
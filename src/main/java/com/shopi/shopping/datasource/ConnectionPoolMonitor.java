@@ -0,0 +1,230 @@
+package com.shopi.shopping.datasource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Every connection taken from the application data source (see InstrumentedDataSource), by call site
+// (see RepositoryCallSite): how long it took to get, how long it was held, and which ones are held too long.
+// Published to Micrometer with percentile histograms:
+// - shopi.db.connection.acquire and shopi.db.connection.usage (timers)
+// - shopi.db.connection.timeouts and shopi.db.connection.leaks (counters)
+// All of them are tagged with call_site. The pool-wide figures (active, idle, pending...) are Hikari's own hikaricp.*.
+// A connection still held after the leak threshold is reported once as a suspected leak, with the stack that took it
+// when stack traces are enabled, and again in the report when it is finally returned
+public class ConnectionPoolMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolMonitor.class);
+
+    private static final int RECENT_LEAKS = 100;
+
+    // A connection out of the pool
+    static final class Borrow {
+        final long id;
+        final String callSite;
+        final String thread;
+        final long startNanos = System.nanoTime();
+        final long startMillis = System.currentTimeMillis();
+        final StackTraceElement[] stackTrace;
+        volatile boolean leaked;
+
+        Borrow(long id, String callSite, StackTraceElement[] stackTrace) {
+            this.id = id;
+            this.callSite = callSite;
+            this.thread = Thread.currentThread().getName();
+            this.stackTrace = stackTrace;
+        }
+
+        long heldMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+
+    private record CallSiteMeters(Timer acquire, Timer usage, Counter timeouts, Counter leaks) {
+    }
+
+    // Held for heldMillis so far, or in all when returned
+    public record Leak(String callSite, String thread, long borrowedAt, long heldMillis, boolean returned,
+                       List<String> stackTrace) {
+    }
+
+    // Times in milliseconds
+    public record CallSiteStatistics(long connections, double meanAcquireMillis, double p95AcquireMillis,
+                                     double maxAcquireMillis, double meanUsageMillis, double p95UsageMillis,
+                                     double maxUsageMillis, long timeouts, long leaks) {
+    }
+
+    // Running totals since start; the difference between two of them gives the figures of the time in between
+    public record Totals(long acquired, long acquireNanos, long returned, long usageNanos) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final long leakThresholdMillis;
+    private final boolean leakStackTraces;
+    private final Map<String, CallSiteMeters> meters = new ConcurrentHashMap<>();
+    private final Map<Long, Borrow> inFlight = new ConcurrentHashMap<>();
+    private final Deque<Leak> returnedLeaks = new ArrayDeque<>();
+    private final AtomicLong borrowIds = new AtomicLong();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+    private final LongAdder usageNanos = new LongAdder();
+
+    public ConnectionPoolMonitor(MeterRegistry meterRegistry, long leakThresholdMillis, boolean leakStackTraces) {
+        if (leakThresholdMillis <= 0) {
+            throw new IllegalArgumentException("Leak threshold must be positive: " + leakThresholdMillis);
+        }
+        this.meterRegistry = meterRegistry;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.leakStackTraces = leakStackTraces;
+    }
+
+    // A connection was handed out after waiting so long
+    Borrow acquired(long waitNanos) {
+        String callSite = RepositoryCallSite.current();
+        meters(callSite).acquire().record(waitNanos, TimeUnit.NANOSECONDS);
+        acquired.increment();
+        acquireNanos.add(waitNanos);
+        Borrow borrow = new Borrow(borrowIds.incrementAndGet(), callSite,
+                leakStackTraces ? new Throwable().getStackTrace() : null);
+        inFlight.put(borrow.id, borrow);
+        return borrow;
+    }
+
+    // No connection could be had (pool timeout, database down)
+    void failed(long waitNanos) {
+        CallSiteMeters callSiteMeters = meters(RepositoryCallSite.current());
+        callSiteMeters.acquire().record(waitNanos, TimeUnit.NANOSECONDS);
+        callSiteMeters.timeouts().increment();
+    }
+
+    void returned(Borrow borrow) {
+        if (inFlight.remove(borrow.id) == null) {
+            return;
+        }
+        long heldNanos = System.nanoTime() - borrow.startNanos;
+        meters(borrow.callSite).usage().record(heldNanos, TimeUnit.NANOSECONDS);
+        returned.increment();
+        usageNanos.add(heldNanos);
+        if (borrow.leaked) {
+            logger.info("Connection suspected of leaking was returned by {} after {} ms", borrow.callSite, borrow.heldMillis());
+            synchronized (returnedLeaks) {
+                returnedLeaks.addFirst(leak(borrow, true));
+                if (returnedLeaks.size() > RECENT_LEAKS) {
+                    returnedLeaks.removeLast();
+                }
+            }
+        }
+    }
+
+    // Report the connections held longer than the threshold (each one once)
+    @Scheduled(fixedDelayString = "${shopi.datasource.pool.leak-check-ms:5000}")
+    public void checkForLeaks() {
+        for (Borrow borrow : inFlight.values()) {
+            if (!borrow.leaked && borrow.heldMillis() > leakThresholdMillis) {
+                borrow.leaked = true;
+                meters(borrow.callSite).leaks().increment();
+                logger.warn("Connection held for {} ms by {} on thread {}{}", borrow.heldMillis(), borrow.callSite,
+                        borrow.thread, borrow.stackTrace != null ? ", taken at\n\t" + stackTrace(borrow, "\n\t") : "");
+            }
+        }
+    }
+
+    // Suspected leaks still held, then the latest ones returned since
+    public List<Leak> leaks() {
+        List<Leak> leaks = new ArrayList<>();
+        for (Borrow borrow : inFlight.values()) {
+            if (borrow.leaked) {
+                leaks.add(leak(borrow, false));
+            }
+        }
+        synchronized (returnedLeaks) {
+            leaks.addAll(returnedLeaks);
+        }
+        return leaks;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    public Totals totals() {
+        return new Totals(acquired.sum(), acquireNanos.sum(), returned.sum(), usageNanos.sum());
+    }
+
+    public Map<String, CallSiteStatistics> callSites() {
+        Map<String, CallSiteStatistics> statistics = new TreeMap<>();
+        meters.forEach((callSite, callSiteMeters) -> statistics.put(callSite, new CallSiteStatistics(
+                callSiteMeters.acquire().count(),
+                callSiteMeters.acquire().mean(TimeUnit.MILLISECONDS),
+                p95(callSiteMeters.acquire()),
+                callSiteMeters.acquire().max(TimeUnit.MILLISECONDS),
+                callSiteMeters.usage().mean(TimeUnit.MILLISECONDS),
+                p95(callSiteMeters.usage()),
+                callSiteMeters.usage().max(TimeUnit.MILLISECONDS),
+                (long) callSiteMeters.timeouts().count(),
+                (long) callSiteMeters.leaks().count())));
+        return statistics;
+    }
+
+    public long getLeakThresholdMillis() {
+        return leakThresholdMillis;
+    }
+
+    private CallSiteMeters meters(String callSite) {
+        return meters.computeIfAbsent(callSite, site -> new CallSiteMeters(
+                Timer.builder("shopi.db.connection.acquire")
+                        .description("Time waited for a database connection")
+                        .tag("call_site", site)
+                        .publishPercentileHistogram()
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry),
+                Timer.builder("shopi.db.connection.usage")
+                        .description("Time a database connection was held")
+                        .tag("call_site", site)
+                        .publishPercentileHistogram()
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry),
+                Counter.builder("shopi.db.connection.timeouts")
+                        .description("Database connections that could not be had")
+                        .tag("call_site", site)
+                        .register(meterRegistry),
+                Counter.builder("shopi.db.connection.leaks")
+                        .description("Database connections held longer than the leak threshold")
+                        .tag("call_site", site)
+                        .register(meterRegistry)));
+    }
+
+    private static double p95(Timer timer) {
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    private static Leak leak(Borrow borrow, boolean returned) {
+        return new Leak(borrow.callSite, borrow.thread, borrow.startMillis, borrow.heldMillis(), returned,
+                borrow.stackTrace != null ? Arrays.stream(borrow.stackTrace).map(String::valueOf).toList() : List.of());
+    }
+
+    private static String stackTrace(Borrow borrow, String separator) {
+        return String.join(separator, Arrays.stream(borrow.stackTrace).map(String::valueOf).toList());
+    }
+}
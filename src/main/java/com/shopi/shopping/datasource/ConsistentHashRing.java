@@ -0,0 +1,104 @@
+package com.shopi.shopping.datasource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Consistent hashing of keys (customer IDs) onto shards. Every shard is placed on a ring of 64-bit hashes at several
+// points (virtual nodes); a key belongs to the first point at or after its own hash, going round the ring. Adding a
+// shard only takes over the ranges that end at its new points, so only the keys in those ranges move, and all of them
+// to the new shard. Immutable: a change of shards makes a new ring
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> points;
+    private final List<String> shards;
+    private final int virtualNodes;
+
+    private ConsistentHashRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes per shard must be positive: " + virtualNodes);
+        }
+        this.shards = List.copyOf(shards);
+        this.virtualNodes = virtualNodes;
+        this.points = new TreeMap<>();
+        for (String shard : shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                String previous = points.put(hash(shard + "#" + i), shard);
+                if (previous != null) {
+                    throw new IllegalArgumentException("Shards " + previous + " and " + shard + " collide on the ring");
+                }
+            }
+        }
+    }
+
+    public static ConsistentHashRing of(List<String> shards, int virtualNodes) {
+        return new ConsistentHashRing(shards, virtualNodes);
+    }
+
+    // The same ring with one more shard
+    public ConsistentHashRing with(String shard) {
+        if (shards.contains(shard)) {
+            throw new IllegalArgumentException("Shard already on the ring: " + shard);
+        }
+        List<String> more = new ArrayList<>(shards);
+        more.add(shard);
+        return new ConsistentHashRing(more, virtualNodes);
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+
+    // Shard owning the key
+    public String ownerOf(long key) {
+        return points.get(pointOf(hashOf(key)));
+    }
+
+    // Shard owning the hash (a point of the ring, or the hash of a key)
+    public String ownerOfHash(long hash) {
+        return points.get(pointOf(hash));
+    }
+
+    // Point of the ring whose range holds the hash: the first point at or after it, wrapping around
+    public long pointOf(long hash) {
+        Long point = points.ceilingKey(hash);
+        return point != null ? point : points.firstKey();
+    }
+
+    // Points of a shard, in ring order. The range of each one starts right after the point before it (any shard)
+    public List<Long> pointsOf(String shard) {
+        List<Long> owned = new ArrayList<>();
+        for (Map.Entry<Long, String> point : points.entrySet()) {
+            if (point.getValue().equals(shard)) {
+                owned.add(point.getKey());
+            }
+        }
+        return Collections.unmodifiableList(owned);
+    }
+
+    public static long hashOf(long key) {
+        return hash(Long.toString(key));
+    }
+
+    // First 8 bytes of the MD5 digest: well spread and the same on every node and JVM
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e); // Every JVM must provide it
+        }
+    }
+}
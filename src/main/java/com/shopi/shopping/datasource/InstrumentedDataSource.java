@@ -0,0 +1,104 @@
+package com.shopi.shopping.datasource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The application data source, timed: how long getConnection() waits, and how long each connection is held until
+// closed (given back to the pool), both reported to the ConnectionPoolMonitor.
+// Behind read replicas (a LazyConnectionDataSourceProxy) the connection is only taken at its first statement, so the
+// waits measured here are near zero; the pool's own hikaricp.connections.acquire still has them
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final ConnectionPoolMonitor monitor;
+
+    public InstrumentedDataSource(DataSource target, ConnectionPoolMonitor monitor) {
+        super(target);
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return instrument(super.getConnection(), System.nanoTime() - start);
+        } catch (SQLException e) {
+            monitor.failed(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return instrument(super.getConnection(username, password), System.nanoTime() - start);
+        } catch (SQLException e) {
+            monitor.failed(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private Connection instrument(Connection connection, long waitNanos) {
+        ConnectionPoolMonitor.Borrow borrow = monitor.acquired(waitNanos);
+        return (Connection) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new BorrowedConnection(connection, borrow));
+    }
+
+    // Passes every call through to the pool's connection; close() also ends the borrow (once)
+    private final class BorrowedConnection implements InvocationHandler {
+
+        private final Connection target;
+        private final ConnectionPoolMonitor.Borrow borrow;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private BorrowedConnection(Connection target, ConnectionPoolMonitor.Borrow borrow) {
+            this.target = target;
+            this.borrow = borrow;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Instrumented connection [" + target + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                case "close":
+                    try {
+                        target.close();
+                    } finally {
+                        if (closed.compareAndSet(false, true)) {
+                            monitor.returned(borrow);
+                        }
+                    }
+                    return null;
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.shopi.shopping.datasource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Resizes the application's Hikari pool, within bounds, from what each interval measured: the mean wait for a
+// connection against the mean time a connection is then held (the database latency as the callers see it).
+// - Grows by a step when callers wait more than wait-ratio times the hold time: connections are the bottleneck.
+//   Not if the hold time has risen by more than latency-tolerance since the last growth: the database itself is
+//   slowing down, and more connections would only queue in it.
+// - Shrinks by a step after calm-windows intervals in a row with no wait and a step's worth of connections idle.
+// Connections above the new maximum are closed by Hikari as they go idle (idle-timeout), not at once
+public class PoolSizeController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolSizeController.class);
+
+    private static final int RECENT_DECISIONS = 20;
+
+    // Below this, callers are not waiting at all
+    private static final double NO_WAIT_MILLIS = 0.1;
+
+    public record Decision(long at, int fromSize, int toSize, double meanWaitMillis, double meanUsageMillis,
+                           int pending, String reason) {
+    }
+
+    private final DataSource dataSource;
+    private final ConnectionPoolMonitor monitor;
+    private final int minSize;
+    private final int maxSize;
+    private final int step;
+    private final double waitRatio;
+    private final double latencyTolerance;
+    private final int calmWindows;
+
+    private final Deque<Decision> decisions = new ArrayDeque<>();
+    private ConnectionPoolMonitor.Totals lastTotals;
+    private double usageAtLastGrowth;
+    private int calm;
+    private HikariDataSource pool;
+
+    public PoolSizeController(DataSource dataSource, ConnectionPoolMonitor monitor, int minSize, int maxSize, int step,
+                              double waitRatio, double latencyTolerance, int calmWindows) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid pool size bounds: " + minSize + " to " + maxSize);
+        }
+        if (step < 1 || waitRatio <= 0 || latencyTolerance < 1 || calmWindows < 1) {
+            throw new IllegalArgumentException("Invalid pool sizing settings: step " + step + ", wait ratio " + waitRatio
+                    + ", latency tolerance " + latencyTolerance + ", calm windows " + calmWindows);
+        }
+        this.dataSource = dataSource;
+        this.monitor = monitor;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.step = step;
+        this.waitRatio = waitRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.calmWindows = calmWindows;
+        this.lastTotals = monitor.totals();
+    }
+
+    // Measure the interval since the last call and resize the pool accordingly (null when there is no Hikari pool)
+    @Scheduled(fixedDelayString = "${shopi.datasource.pool.adaptive.interval-ms:10000}",
+            initialDelayString = "${shopi.datasource.pool.adaptive.interval-ms:10000}")
+    public synchronized Decision adjust() {
+        HikariDataSource hikari = pool();
+        if (hikari == null) {
+            return null;
+        }
+        HikariPoolMXBean poolStatistics = hikari.getHikariPoolMXBean();
+        int active = poolStatistics != null ? poolStatistics.getActiveConnections() : 0;
+        int pending = poolStatistics != null ? poolStatistics.getThreadsAwaitingConnection() : 0;
+
+        ConnectionPoolMonitor.Totals totals = monitor.totals();
+        long acquired = totals.acquired() - lastTotals.acquired();
+        long returned = totals.returned() - lastTotals.returned();
+        double meanWaitMillis = acquired == 0 ? 0 : (totals.acquireNanos() - lastTotals.acquireNanos()) / 1e6 / acquired;
+        double meanUsageMillis = returned == 0 ? 0 : (totals.usageNanos() - lastTotals.usageNanos()) / 1e6 / returned;
+        lastTotals = totals;
+
+        Decision decision = decide(hikari.getMaximumPoolSize(), active, pending, meanWaitMillis, meanUsageMillis);
+        if (decision.toSize() != decision.fromSize()) {
+            hikari.setMaximumPoolSize(decision.toSize());
+            logger.info("Connection pool resized from {} to {}: {}", decision.fromSize(), decision.toSize(), decision.reason());
+        }
+        return decision;
+    }
+
+    // The size the pool should have after an interval with these figures
+    public synchronized Decision decide(int size, int active, int pending, double meanWaitMillis, double meanUsageMillis) {
+        int toSize;
+        String reason;
+        if (size < minSize || size > maxSize) {
+            toSize = Math.max(minSize, Math.min(maxSize, size));
+            reason = "back within bounds";
+            calm = 0;
+        } else if (meanWaitMillis > NO_WAIT_MILLIS && meanWaitMillis > waitRatio * meanUsageMillis) {
+            calm = 0;
+            if (size >= maxSize) {
+                toSize = size;
+                reason = "waits for connections, at the maximum size";
+            } else if (usageAtLastGrowth > 0 && meanUsageMillis > latencyTolerance * usageAtLastGrowth) {
+                toSize = size;
+                reason = "waits for connections, but the database got slower since the last growth";
+            } else {
+                toSize = Math.min(maxSize, size + step);
+                usageAtLastGrowth = meanUsageMillis;
+                reason = "waits for connections";
+            }
+        } else if (meanWaitMillis <= NO_WAIT_MILLIS && pending == 0 && active + step <= size && size > minSize) {
+            calm++;
+            if (calm >= calmWindows) {
+                toSize = Math.max(minSize, size - step);
+                usageAtLastGrowth = 0;
+                calm = 0;
+                reason = "connections idle for " + calmWindows + " intervals";
+            } else {
+                toSize = size;
+                reason = "connections idle";
+            }
+        } else {
+            calm = 0;
+            toSize = size;
+            reason = "steady";
+        }
+        Decision decision = new Decision(System.currentTimeMillis(), size, toSize, meanWaitMillis, meanUsageMillis,
+                pending, reason);
+        decisions.addFirst(decision);
+        if (decisions.size() > RECENT_DECISIONS) {
+            decisions.removeLast();
+        }
+        return decision;
+    }
+
+    // Latest decisions first
+    public synchronized List<Decision> decisions() {
+        return new ArrayList<>(decisions);
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private HikariDataSource pool() {
+        if (pool == null) {
+            try {
+                if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                    return null;
+                }
+                pool = dataSource.unwrap(HikariDataSource.class);
+                // Idle connections above the lower bound are closed once idle for Hikari's idle-timeout
+                if (pool.getMinimumIdle() > minSize) {
+                    pool.setMinimumIdle(minSize);
+                }
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+        return pool;
+    }
+}
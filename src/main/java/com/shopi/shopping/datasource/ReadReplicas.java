@@ -0,0 +1,117 @@
+package com.shopi.shopping.datasource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// The replica databases (fed by replication from the primary) and how far behind each one is.
+// Lag is measured with a heartbeat: this node writes the current time to its row of replication_heartbeat on the
+// primary, and reads the row back from every replica. The value a replica returns is a point in time up to which it
+// holds every commit of this node; now minus that value is its lag. Sampled values only ever understate a replica's
+// progress, so decisions taken on them stay on the safe side
+public class ReadReplicas implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicas.class);
+
+    static final String HEARTBEAT_TABLE = "replication_heartbeat";
+
+    private static final long UNAVAILABLE = -1;
+
+    private final JdbcTemplate primary;
+    private final List<HikariDataSource> replicas;
+    private final List<JdbcTemplate> replicaTemplates = new ArrayList<>();
+    private final int nodeId;
+    private final long maxLagMillis;
+
+    // Latest heartbeat read from each replica, or UNAVAILABLE
+    private final AtomicLongArray replicatedUpTo;
+
+    public ReadReplicas(DataSource primary, List<HikariDataSource> replicas, int nodeId, long maxLagMillis) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        if (maxLagMillis <= 0) {
+            throw new IllegalArgumentException("Maximum replica lag must be positive: " + maxLagMillis);
+        }
+        this.primary = new JdbcTemplate(primary);
+        this.replicas = List.copyOf(replicas);
+        this.nodeId = nodeId;
+        this.maxLagMillis = maxLagMillis;
+        this.replicatedUpTo = new AtomicLongArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaTemplates.add(new JdbcTemplate(replicas.get(i)));
+            replicatedUpTo.set(i, UNAVAILABLE); // Until the first heartbeat has come through
+        }
+        this.primary.execute("CREATE TABLE IF NOT EXISTS " + HEARTBEAT_TABLE
+                + " (node_id INT PRIMARY KEY, beat BIGINT NOT NULL)");
+    }
+
+    public int size() {
+        return replicas.size();
+    }
+
+    public DataSource get(int replica) {
+        return replicas.get(replica);
+    }
+
+    public String name(int replica) {
+        return replicas.get(replica).getPoolName();
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    // Whether the replica is within the lag bound and holds every commit made up to the given time (0 for none)
+    public boolean isUsable(int replica, long mustInclude) {
+        long upTo = replicatedUpTo.get(replica);
+        return upTo != UNAVAILABLE && System.currentTimeMillis() - upTo <= maxLagMillis && upTo > mustInclude;
+    }
+
+    // Lag of every replica in milliseconds (-1 when it cannot be reached or has not received a heartbeat yet)
+    public Map<String, Long> lagMillis() {
+        long now = System.currentTimeMillis();
+        Map<String, Long> lag = new LinkedHashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            long upTo = replicatedUpTo.get(i);
+            lag.put(name(i), upTo == UNAVAILABLE ? -1 : now - upTo);
+        }
+        return lag;
+    }
+
+    // Write a new heartbeat to the primary, then read back how far every replica has got
+    @Scheduled(fixedDelayString = "${shopi.datasource.replication.heartbeat-ms:250}")
+    public void heartbeat() {
+        primary.update("MERGE INTO " + HEARTBEAT_TABLE + " (node_id, beat) KEY (node_id) VALUES (?, ?)",
+                nodeId, System.currentTimeMillis());
+        for (int i = 0; i < replicas.size(); i++) {
+            replicatedUpTo.set(i, sample(i));
+        }
+    }
+
+    private long sample(int replica) {
+        try {
+            List<Long> beats = replicaTemplates.get(replica).queryForList(
+                    "SELECT beat FROM " + HEARTBEAT_TABLE + " WHERE node_id = ?", Long.class, nodeId);
+            return beats.isEmpty() ? UNAVAILABLE : beats.get(0);
+        } catch (RuntimeException e) {
+            if (replicatedUpTo.get(replica) != UNAVAILABLE) {
+                logger.warn("Replica {} unavailable, reads go to the primary: {}", name(replica), e.getMessage());
+            }
+            return UNAVAILABLE;
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
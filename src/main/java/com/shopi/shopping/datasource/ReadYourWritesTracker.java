@@ -0,0 +1,50 @@
+package com.shopi.shopping.datasource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+// Remembers when each session last committed a write, so that its reads only go to a replica that already holds it.
+// A session is the HTTP session of the current request, or the current thread outside of one (or before login).
+// Entries are dropped after the maximum replica lag: by then every replica still in use has the write
+public class ReadYourWritesTracker implements TransactionExecutionListener {
+
+    private final Cache<String, Long> lastWrites;
+
+    public ReadYourWritesTracker(long maxLagMillis) {
+        this.lastWrites = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(maxLagMillis))
+                .build();
+    }
+
+    // Time of the last write committed by the current session, 0 if none is recent
+    public long lastWrite() {
+        Long lastWrite = lastWrites.getIfPresent(currentSession());
+        return lastWrite != null ? lastWrite : 0;
+    }
+
+    // Called by the transaction manager (registered by Spring Boot) after every commit
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        if (commitFailure == null && transaction.isNewTransaction() && !transaction.isReadOnly()) {
+            lastWrites.put(currentSession(), System.currentTimeMillis());
+        }
+    }
+
+    static String currentSession() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpSession session = servletAttributes.getRequest().getSession(false);
+            if (session != null) {
+                return "session:" + session.getId();
+            }
+        }
+        return "thread:" + Thread.currentThread().getId();
+    }
+}
@@ -0,0 +1,69 @@
+package com.shopi.shopping.datasource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Primary or replica, chosen for each connection from the current transaction: the primary outside of read-only
+// transactions; inside, the replicas in turn, skipping any that lags more than the bound or does not hold the current
+// session's last write yet, and the primary when none qualifies.
+// Must be behind a LazyConnectionDataSourceProxy: the transaction is only flagged read-only after it has begun
+// (and asked for a connection), so the choice waits for its first statement
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final ReadReplicas replicas;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, LongAdder> routed = new LinkedHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, ReadReplicas replicas, ReadYourWritesTracker readYourWritesTracker) {
+        this.replicas = replicas;
+        this.readYourWritesTracker = readYourWritesTracker;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        routed.put(PRIMARY, new LongAdder());
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(replicas.name(i), replicas.get(i));
+            routed.put(replicas.name(i), new LongAdder());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    // Number of read-only connections handed out by each data source
+    public Map<String, Long> getRoutedConnections() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        routed.forEach((name, count) -> counts.put(name, count.sum()));
+        return counts;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        long lastWrite = readYourWritesTracker.lastWrite();
+        int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (first + i) % replicas.size();
+            if (replicas.isUsable(replica, lastWrite)) {
+                return count(replicas.name(replica));
+            }
+        }
+        return count(PRIMARY);
+    }
+
+    private String count(String key) {
+        routed.get(key).increment();
+        return key;
+    }
+}
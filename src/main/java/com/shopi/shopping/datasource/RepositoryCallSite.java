@@ -0,0 +1,70 @@
+package com.shopi.shopping.datasource;
+import java.util.function.Supplier;
+
+// Where a database connection is being taken for: the repository method running on the current thread
+// ("CustomerRepository.findByEmail", set by RepositoryCallSiteInterceptor), or else the innermost application method
+// on the stack, which is the @Transactional method when its transaction takes the connection before any repository
+// call ("CustomerService.getAllCustomers")
+public final class RepositoryCallSite {
+
+    static final String UNKNOWN = "unknown";
+
+    private static final String APPLICATION = "com.shopi.shopping.";
+    private static final String INFRASTRUCTURE = "com.shopi.shopping.datasource.";
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+
+    private RepositoryCallSite() {
+    }
+
+    // The call site of a connection taken now
+    public static String current() {
+        String repositoryMethod = current.get();
+        return repositoryMethod != null ? repositoryMethod : applicationMethod();
+    }
+
+    // Run the task as the repository method
+    public static <T> T callAs(String repositoryMethod, Supplier<T> task) {
+        boolean entered = enter(repositoryMethod);
+        try {
+            return task.get();
+        } finally {
+            if (entered) {
+                exit();
+            }
+        }
+    }
+
+    // Start of a repository call, false (and nothing changed) when within another one: the outer call names it
+    static boolean enter(String repositoryMethod) {
+        if (current.get() != null) {
+            return false;
+        }
+        current.set(repositoryMethod);
+        return true;
+    }
+
+    // End of the repository call that entered
+    static void exit() {
+        current.remove();
+    }
+
+    // Only walks the stack down to the first frame of the application. A transaction takes its connection in the
+    // Spring proxy of the @Transactional method, before the method itself runs, so the proxy stands for its class
+    private static String applicationMethod() {
+        return stackWalker.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION)
+                        && !frame.getClassName().startsWith(INFRASTRUCTURE))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .orElse(UNKNOWN));
+    }
+
+    // Without the package, nor the suffix of a Spring proxy class (CustomerService$$SpringCGLIB$$0)
+    private static String simpleName(String className) {
+        int proxySuffix = className.indexOf("$$");
+        return className.substring(className.lastIndexOf('.') + 1, proxySuffix >= 0 ? proxySuffix : className.length());
+    }
+}
@@ -0,0 +1,26 @@
+package com.shopi.shopping.datasource;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+// Names the connections taken during a repository call after its repository method (see RepositoryCallSite).
+// One per repository, on its proxy ahead of the repository's transaction
+public class RepositoryCallSiteInterceptor implements MethodInterceptor {
+
+    private final String repository;
+
+    public RepositoryCallSiteInterceptor(Class<?> repositoryInterface) {
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        boolean entered = RepositoryCallSite.enter(repository + "." + invocation.getMethod().getName());
+        try {
+            return invocation.proceed();
+        } finally {
+            if (entered) {
+                RepositoryCallSite.exit();
+            }
+        }
+    }
+}
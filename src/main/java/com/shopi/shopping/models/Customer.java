@@ -1,6 +1,5 @@
 package com.shopi.shopping.models;
 import com.fasterxml.jackson.annotation.JsonBackReference;
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -13,29 +12,22 @@ import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 
+// A customer's carts are read and deleted through ShoppingCartRepository (findByCustomerId, deleteByCustomerId), not
+// through a mapped collection: with sharded carts they are not in this database. Left unmapped without sharding as well,
+// so that the same code runs either way
 @Entity
-@Table(name = "customers")  // Maps the class to the "customers" table in the database
+@Table(name = "customers", indexes = {  // Maps the class to the "customers" table in the database
+        @Index(name = "idx_customers_email", columnList = "email"), // findByEmail (login)
+        @Index(name = "idx_customers_last_name", columnList = "last_name") // findByLastName
+})
 
 public class Customer  {
-    @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL)
-    @JsonIgnore
-    private List<ShoppingCart> shoppingCarts = new ArrayList<>();
-
-    public List<ShoppingCart> getShoppingCarts() {
-        return shoppingCarts;
-    }
-
-    public void setShoppingCarts(List<ShoppingCart> shoppingCarts) {
-        this.shoppingCarts = shoppingCarts;
-    }
-
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdGeneration.CUSTOMER_SEQUENCE)
+    @SequenceGenerator(name = IdGeneration.CUSTOMER_SEQUENCE, sequenceName = IdGeneration.CUSTOMER_SEQUENCE, allocationSize = IdGeneration.BLOCK_SIZE)
     private Long id;
 
     @NotBlank(message = "Name is required.")
@@ -1,5 +1,8 @@
 package com.shopi.shopping.models;
+import com.shopi.shopping.configuration.SecondLevelCacheConfig;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -7,11 +10,17 @@ import java.util.Objects;
 
 
 @Entity
-@Table(name = "discounts")  // Maps this class to the "discounts" table in the database
+@Table(name = "discounts", indexes = {  // Maps this class to the "discounts" table in the database
+        @Index(name = "idx_discounts_category", columnList = "category"), // findByCategory, and countByCategory from the index alone
+        @Index(name = "idx_discounts_end_date", columnList = "end_date") // findByEndDateAfter (active discounts)
+})
+@Cacheable // Second-level cache. Nonstrict read-write: discounts rarely change, and no soft locks are taken for it
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = SecondLevelCacheConfig.DISCOUNT_REGION)
 public class Discount {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)  // Database will automatically generate the ID
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdGeneration.DISCOUNT_SEQUENCE)  // IDs come in blocks from the discount sequence
+    @SequenceGenerator(name = IdGeneration.DISCOUNT_SEQUENCE, sequenceName = IdGeneration.DISCOUNT_SEQUENCE, allocationSize = IdGeneration.BLOCK_SIZE)
     private Long id;  // Unique identifier for the discount
 
     private BigDecimal rate; // Discount rate
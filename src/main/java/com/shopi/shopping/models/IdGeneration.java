@@ -0,0 +1,19 @@
+package com.shopi.shopping.models;
+
+// ID generation of customers, products and discounts (orders and carts use Snowflake IDs): one database sequence per
+// table, read through Hibernate's pooled-lo optimizer (hibernate.id.optimizer.pooled.preferred). Each sequence call
+// reserves a block of BLOCK_SIZE IDs, starting at the value returned, for the node that made it; the node hands them
+// out in memory, so inserts need no round trip for their ID and can be sent in JDBC batches. Nodes sharing the
+// database never overlap, they only leave gaps.
+public final class IdGeneration {
+
+    // IDs reserved per sequence call; must match the INCREMENT BY of the sequences in schema.sql
+    public static final int BLOCK_SIZE = 50;
+
+    public static final String CUSTOMER_SEQUENCE = "customer_seq";
+    public static final String PRODUCT_SEQUENCE = "product_seq";
+    public static final String DISCOUNT_SEQUENCE = "discount_seq";
+
+    private IdGeneration() {
+    }
+}
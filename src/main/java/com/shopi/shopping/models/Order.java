@@ -1,29 +1,45 @@
 package com.shopi.shopping.models;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import com.shopi.shopping.models.products.Product;
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
 
 
 
 @Entity
-@Table(name = "orders")  // Table name for all product types
+@Table(name = "orders", indexes = @Index(name = "idx_orders_total_amount", columnList = "total_amount")) // findByTotalAmountGreaterThan
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE) // Use SINGLE_TABLE strategy for inheritance
 @DiscriminatorColumn(name = "order_type") // Column to differentiate between order types
+// Fetch plan of the order listings: products come with the orders, in the same query. Two lists cannot be fetch-joined
+// together, so the applied discounts of all the listed orders are read by one more query (subselect fetching)
+@NamedEntityGraph(name = Order.WITH_PRODUCTS, attributeNodes = @NamedAttributeNode("products"))
 public abstract class Order {
 
+    public static final String WITH_PRODUCTS = "Order.withProducts";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId // Time-ordered and unique across nodes, made without a database round trip
+    @JsonSerialize(using = ToStringSerializer.class) // Above 2^53: as a JSON number, JavaScript would round it
+    @Schema(type = "string", description = "Snowflake ID, a 64-bit integer written as a string")
     protected Long id;
 
     @ManyToMany
+    @Fetch(FetchMode.SUBSELECT) // Loaded for every order of the same query at once
     @JoinTable(
             name = "order_discounts",
             joinColumns = @JoinColumn(name = "order_id"),
-            inverseJoinColumns = @JoinColumn(name = "discount_id")
+            inverseJoinColumns = @JoinColumn(name = "discount_id"),
+            indexes = { // Both directions: the discounts of an order, the orders of a discount (findByAppliedDiscounts_Id)
+                    @Index(name = "idx_order_discounts_order", columnList = "order_id, discount_id"),
+                    @Index(name = "idx_order_discounts_discount", columnList = "discount_id, order_id")
+            }
     )
     protected List<Discount> appliedDiscounts = new ArrayList<>();
 
@@ -31,21 +47,22 @@ public abstract class Order {
     @JoinTable(
             name = "order_products",
             joinColumns = @JoinColumn(name = "order_id"),
-            inverseJoinColumns = @JoinColumn(name = "product_id")
+            inverseJoinColumns = @JoinColumn(name = "product_id"),
+            indexes = { // Both directions: the products of an order, the orders of a product (findByProducts_Id)
+                    @Index(name = "idx_order_products_order", columnList = "order_id, product_id"),
+                    @Index(name = "idx_order_products_product", columnList = "product_id, order_id")
+            }
     )
     protected List<Product> products;
 
     protected BigDecimal totalAmount = BigDecimal.ZERO; // Use BigDecimal for total amount precision
 
-    private static final AtomicLong idCounter = new AtomicLong(0);
-
     // No-argument constructor
     public Order() {}
 
     // Constructor to initialize with products
     public Order(List<Product> products) {
-        this.products = products;
-        this.id = idCounter.incrementAndGet();
+        this.products = products; // The ID is assigned when the order is saved
         calculateTotal();  // Calculate the total amount when creating the order
     }
 
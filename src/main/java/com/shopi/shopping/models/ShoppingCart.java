@@ -1,17 +1,31 @@
 package com.shopi.shopping.models;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import com.shopi.shopping.models.products.Product;
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Entity
-@Table(name = "shopping_carts")  // Maps the class to the "shopping_carts" table in the database
+@Table(name = "shopping_carts", indexes = {  // Maps the class to the "shopping_carts" table in the database
+        @Index(name = "idx_shopping_carts_customer_status", columnList = "customer_id, status"), // findByCustomerId, and a customer's carts by status
+        @Index(name = "idx_shopping_carts_status", columnList = "status") // findByStatus
+})
+// Fetch plan of the cart listings: customer and products come with the carts, in the same query
+@NamedEntityGraph(name = ShoppingCart.WITH_CUSTOMER_AND_PRODUCTS, attributeNodes = {
+        @NamedAttributeNode("customer"),
+        @NamedAttributeNode("products")
+})
 public class ShoppingCart {
 
+    public static final String WITH_CUSTOMER_AND_PRODUCTS = "ShoppingCart.withCustomerAndProducts";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)  // Automatically generates the cart ID
+    @SnowflakeId  // Time-ordered and unique across nodes, made without a database round trip
+    @JsonSerialize(using = ToStringSerializer.class) // Above 2^53: as a JSON number, JavaScript would round it
+    @Schema(type = "string", description = "Snowflake ID, a 64-bit integer written as a string")
     private long id;
 
     @ManyToOne  // Relationship with Customer
@@ -23,7 +37,11 @@ public class ShoppingCart {
     @JoinTable(
             name = "shopping_cart_products",
             joinColumns = @JoinColumn(name = "shopping_cart_id"), // Corregido para apuntar al ShoppingCart
-            inverseJoinColumns = @JoinColumn(name = "product_id") // Corregido para apuntar al Product
+            inverseJoinColumns = @JoinColumn(name = "product_id"), // Corregido para apuntar al Product
+            indexes = { // Both directions: the products of a cart, the carts holding a product (popularity)
+                    @Index(name = "idx_shopping_cart_products_cart", columnList = "shopping_cart_id, product_id"),
+                    @Index(name = "idx_shopping_cart_products_product", columnList = "product_id, shopping_cart_id")
+            }
     )
     private List<Product> products = new ArrayList<>();
 
@@ -42,7 +60,6 @@ public class ShoppingCart {
     public ShoppingCart(Customer customer) {
         this.customer = customer;  // Assign customer to the cart
         this.status = Status.DRAFT;  // Default status is DRAFT
-        this.id = id;
     }
 
     // Getters and Setters
@@ -0,0 +1,60 @@
+package com.shopi.shopping.models;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Snowflake-style 64-bit IDs, unique across nodes without asking the database:
+// 41 bits of milliseconds since EPOCH | 10 bits of node ID | 12 bits of sequence within the millisecond.
+// IDs of one node always increase and those of all nodes are roughly time-ordered, so B-tree inserts stay at the end
+// of the index. The last timestamp and sequence are packed in one AtomicLong and advanced with a CAS, without locks:
+// more than 4096 IDs in a millisecond borrow the next one, and a clock going backwards keeps counting from the last ID.
+public final class Snowflake {
+
+    public static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long TIMESTAMP_LIMIT = 1L << 41;
+
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private final long nodeId;
+    private final LongSupplier clock; // Milliseconds since 1970
+    private final AtomicLong last = new AtomicLong(); // (timestamp << SEQUENCE_BITS) | sequence of the last ID
+
+    public Snowflake(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    // With the given clock (milliseconds since 1970)
+    public Snowflake(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        long now = clock.getAsLong() - EPOCH.toEpochMilli();
+        if (now < 0 || now >= TIMESTAMP_LIMIT) {
+            throw new IllegalStateException("Clock outside the range of Snowflake IDs: " + EPOCH.plusMillis(now));
+        }
+        // The next sequence number, or the first one of the current millisecond if the clock has moved on
+        long next = last.updateAndGet(previous -> Math.max(previous + 1, now << SEQUENCE_BITS));
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return timestamp << (NODE_BITS + SEQUENCE_BITS) | nodeId << SEQUENCE_BITS | sequence;
+    }
+
+    // When the ID was generated (to the millisecond)
+    public static Instant timestampOf(long id) {
+        return EPOCH.plusMillis(id >>> (NODE_BITS + SEQUENCE_BITS));
+    }
+
+    // Node that generated the ID
+    public static int nodeIdOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
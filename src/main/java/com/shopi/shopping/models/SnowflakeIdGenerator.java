@@ -0,0 +1,48 @@
+package com.shopi.shopping.models;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+// Hibernate ID generator for @SnowflakeId: the ID is made in memory before the insert, so inserts can be batched.
+// The node ID comes from the Hibernate setting NODE_ID_SETTING (spring.jpa.properties.shopi.ids.node-id). It has no
+// default: two nodes with the same one would make the same IDs, so the application does not start without it
+public class SnowflakeIdGenerator implements BeforeExecutionGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnowflakeIdGenerator.class);
+
+    public static final String NODE_ID_SETTING = "shopi.ids.node-id";
+
+    private final Snowflake snowflake;
+
+    public SnowflakeIdGenerator(SnowflakeId annotation, Member member, CustomIdGeneratorCreationContext context) {
+        ConfigurationService configuration = context.getServiceRegistry().requireService(ConfigurationService.class);
+        String entity = member.getDeclaringClass().getSimpleName();
+        String nodeId = configuration.getSetting(NODE_ID_SETTING, StandardConverters.STRING);
+        if (nodeId == null || nodeId.isBlank()) {
+            throw new IllegalStateException(NODE_ID_SETTING + " is not set: every node sharing the database needs a node"
+                    + " ID of its own (0-" + Snowflake.MAX_NODE_ID + ") for the Snowflake IDs of " + entity);
+        }
+        this.snowflake = new Snowflake(Integer.parseInt(nodeId.trim()));
+        logger.info("Snowflake IDs of {} generated as node {}", entity, nodeId.trim());
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return snowflake.nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
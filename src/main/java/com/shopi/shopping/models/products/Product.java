@@ -1,25 +1,37 @@
 package com.shopi.shopping.models.products;
+import com.shopi.shopping.configuration.SecondLevelCacheConfig;
+import com.shopi.shopping.models.IdGeneration;
 import com.shopi.shopping.models.ShoppingCart;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "products")  // Table name for all product types
+@Table(name = "products", indexes = {  // Table name for all product types
+        @Index(name = "idx_products_type_price", columnList = "product_type, price"), // findByProductType, and a type's products by price
+        @Index(name = "idx_products_name", columnList = "name") // findByName
+})
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "product_type", discriminatorType = DiscriminatorType.STRING)
+@Cacheable // Second-level cache, shared by the subclasses. Read-write: prices change, and a read never sees a stale one
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.PRODUCT_REGION)
 public abstract class Product  {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdGeneration.PRODUCT_SEQUENCE)
+    @SequenceGenerator(name = IdGeneration.PRODUCT_SEQUENCE, sequenceName = IdGeneration.PRODUCT_SEQUENCE, allocationSize = IdGeneration.BLOCK_SIZE) // A block of IDs per sequence call, so inserts can be batched
     private long id;
     @Column(nullable = false)
     private BigDecimal price;
     @Column(nullable = false)
     private String name;
     private String description;
+    @Version
+    private long version; // Incremented on every update, so that concurrent changes are detected instead of lost
 
 
     // Many Products can be in Many ShoppingCarts
@@ -45,6 +57,7 @@ public abstract class Product  {
     public BigDecimal getPrice() { return price; }
     public String getName() { return name; }
     public String getDescription() { return description; }
+    public long getVersion() { return version; }
 
     // Setters for product attributes
     public void setPrice(BigDecimal price) { this.price = price; }
@@ -0,0 +1,102 @@
+package com.shopi.shopping.models.snapshots;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+// One immutable version of the whole product catalog, ordered by product ID.
+// A change never modifies a snapshot: it copies the list into a new version (copy-on-write),
+// so a reader holding a snapshot always sees a consistent catalog.
+public record CatalogSnapshot(long version, List<ProductSnapshot> products) {
+
+    public static final CatalogSnapshot EMPTY = new CatalogSnapshot(0, List.of());
+
+    public CatalogSnapshot {
+        products = Collections.unmodifiableList(products);
+    }
+
+    // Build version 'version' from products in any order
+    public static CatalogSnapshot of(long version, List<ProductSnapshot> products) {
+        List<ProductSnapshot> sorted = new ArrayList<>(products);
+        sorted.sort(Comparator.comparingLong(ProductSnapshot::id));
+        return new CatalogSnapshot(version, sorted);
+    }
+
+    // Next version with the product added, or replaced when its ID is already present
+    public CatalogSnapshot withProduct(ProductSnapshot product) {
+        List<ProductSnapshot> copy = new ArrayList<>(products.size() + 1);
+        copy.addAll(products);
+        int index = indexOf(product.id());
+        if (index >= 0) {
+            copy.set(index, product);
+        } else {
+            copy.add(-index - 1, product);
+        }
+        return new CatalogSnapshot(version + 1, copy);
+    }
+
+    // Next version without the given product; this same version when it is not present
+    public CatalogSnapshot withoutProduct(long productId) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return this;
+        }
+        List<ProductSnapshot> copy = new ArrayList<>(products);
+        copy.remove(index);
+        return new CatalogSnapshot(version + 1, copy);
+    }
+
+    // Next version with many products added or replaced (non-null value) and removed (null value), in a single copy
+    public CatalogSnapshot withChanges(Map<Long, ProductSnapshot> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        long[] changedIds = changes.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        List<ProductSnapshot> merged = new ArrayList<>(products.size() + changedIds.length);
+        int index = 0;
+        for (long changedId : changedIds) {
+            while (index < products.size() && products.get(index).id() < changedId) {
+                merged.add(products.get(index++));
+            }
+            if (index < products.size() && products.get(index).id() == changedId) {
+                index++; // Replaced or removed
+            }
+            ProductSnapshot changed = changes.get(changedId);
+            if (changed != null) {
+                merged.add(changed);
+            }
+        }
+        merged.addAll(products.subList(index, products.size()));
+        return new CatalogSnapshot(version + 1, merged);
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    // The product with the given ID in this version, or null
+    public ProductSnapshot find(long productId) {
+        int index = indexOf(productId);
+        return index >= 0 ? products.get(index) : null;
+    }
+
+    // Binary search by ID: the index when found, (-(insertion point) - 1) otherwise
+    private int indexOf(long productId) {
+        int low = 0;
+        int high = products.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = products.get(mid).id();
+            if (midId < productId) {
+                low = mid + 1;
+            } else if (midId > productId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,17 @@
+package com.shopi.shopping.models.snapshots;
+import com.shopi.shopping.models.Discount;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Immutable, detached copy of a discount as stored in the active discounts cache.
+// Every caller of the cache shares the same instances, so they hold no JPA state and cannot be changed.
+// Write paths load the managed Discount from the repository instead of mapping this record back.
+public record DiscountSnapshot(Long id, BigDecimal rate, String category, String type, LocalDate startDate, LocalDate endDate) {
+
+    // Copy the fields of a loaded discount
+    public static DiscountSnapshot of(Discount discount) {
+        return new DiscountSnapshot(discount.getId(), discount.getRate(), discount.getCategory(), discount.getType(),
+                discount.getStartDate(), discount.getEndDate());
+    }
+}
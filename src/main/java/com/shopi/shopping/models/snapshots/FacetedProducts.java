@@ -0,0 +1,19 @@
+package com.shopi.shopping.models.snapshots;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Result of a faceted product filter: the number of matches, the first ones (by ID), and the facet counts.
+// The count of each type ignores the type selection (and the same for prices), so that it tells how many products
+// selecting that value as well would add.
+public record FacetedProducts(int total, List<ProductSnapshot> items, Map<String, Integer> typeCounts,
+                              Map<String, Integer> priceCounts) {
+
+    public FacetedProducts {
+        items = List.copyOf(items);
+        typeCounts = Collections.unmodifiableMap(new LinkedHashMap<>(typeCounts)); // Keeps the order of the values
+        priceCounts = Collections.unmodifiableMap(new LinkedHashMap<>(priceCounts));
+    }
+}
@@ -0,0 +1,12 @@
+package com.shopi.shopping.models.snapshots;
+
+import java.util.List;
+
+// One page of a keyset-paginated product listing.
+// nextCursor is the ID to pass as 'after' for the next page, or null on the last page.
+public record ProductPage(List<ProductSnapshot> items, Long nextCursor) {
+
+    public ProductPage {
+        items = List.copyOf(items);
+    }
+}
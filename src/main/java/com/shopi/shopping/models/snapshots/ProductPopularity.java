@@ -0,0 +1,5 @@
+package com.shopi.shopping.models.snapshots;
+
+// How many shopping carts hold a product (used to rank autocomplete suggestions)
+public record ProductPopularity(long productId, long carts) {
+}
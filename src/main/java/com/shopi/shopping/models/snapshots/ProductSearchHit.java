@@ -0,0 +1,5 @@
+package com.shopi.shopping.models.snapshots;
+
+// One full-text search result: the product and its BM25 relevance score (higher is better)
+public record ProductSearchHit(ProductSnapshot product, float score) {
+}
@@ -0,0 +1,17 @@
+package com.shopi.shopping.models.snapshots;
+import com.shopi.shopping.models.products.Product;
+
+import java.math.BigDecimal;
+
+// Immutable, detached copy of a product as stored in the products cache.
+// Holds only the columns shown to clients: no JPA state and no shoppingCarts collection to lazy-load.
+// Write paths load the managed Product from the repository instead of mapping this record back.
+// The version is the optimistic-locking version of the row, to send back with a price change.
+public record ProductSnapshot(long id, String type, String name, String description, BigDecimal price, long version) {
+
+    // Copy the fields of a loaded product
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(product.getId(), product.getType(), product.getName(),
+                product.getDescription(), product.getPrice(), product.getVersion());
+    }
+}
@@ -0,0 +1,5 @@
+package com.shopi.shopping.models.snapshots;
+
+// One autocomplete suggestion: the product, its name and how many carts hold it
+public record ProductSuggestion(long id, String name, long popularity) {
+}
@@ -0,0 +1,79 @@
+package com.shopi.shopping.models.snapshots;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.products.Product;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// Immutable, detached copy of a shopping cart as stored in the shopping cart caches.
+// Products are kept as primitive IDs, so a cached cart holds neither the Customer nor the Product entities. The cart
+// total is not cached with them: it is worked out on read from the current prices in the ProductCatalog, so a price
+// change shows in every cached cart at once, without evicting them.
+// Write paths load the managed ShoppingCart from the repository instead of mapping this record back.
+public record ShoppingCartSnapshot(long id, Long customerId, ShoppingCart.Status status, long[] productIds) {
+
+    public ShoppingCartSnapshot {
+        productIds = productIds.clone(); // Never share the array with the caller
+    }
+
+    // Copy the fields of a loaded cart; the products collection must be initialized (inside a session)
+    public static ShoppingCartSnapshot of(ShoppingCart cart) {
+        List<Product> products = cart.getProducts();
+        long[] productIds = new long[products.size()];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = products.get(i).getId();
+        }
+        Long customerId = cart.getCustomer() != null ? cart.getCustomer().getId() : null;
+        return new ShoppingCartSnapshot(cart.getId(), customerId, cart.getStatus(), productIds);
+    }
+
+    // Total of the cart at the prices of the given catalog version (ProductCatalog.current()); a product deleted from
+    // the catalog, or without a price, counts for nothing
+    public BigDecimal totalPrice(CatalogSnapshot catalog) {
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for (long productId : productIds) {
+            ProductSnapshot product = catalog.find(productId);
+            if (product != null && product.price() != null) {
+                totalPrice = totalPrice.add(product.price());
+            }
+        }
+        return totalPrice;
+    }
+
+    @Override
+    public long[] productIds() {
+        return productIds.clone();
+    }
+
+    public int productCount() {
+        return productIds.length;
+    }
+
+    public boolean containsProduct(long productId) {
+        return Arrays.stream(productIds).anyMatch(id -> id == productId);
+    }
+
+    // Arrays are compared by content, not by reference
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ShoppingCartSnapshot that)) return false;
+        return id == that.id &&
+                Objects.equals(customerId, that.customerId) &&
+                status == that.status &&
+                Arrays.equals(productIds, that.productIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hash(id, customerId, status) + Arrays.hashCode(productIds);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ShoppingCartSnapshot[id=%d, customerId=%s, status=%s, productIds=%s]",
+                id, customerId, status, Arrays.toString(productIds));
+    }
+}
@@ -0,0 +1,88 @@
+package com.shopi.shopping.monitoring;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shopi.shopping.configuration.NegativeCachingCaffeineCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Actuator endpoint (/actuator/cachestats) exposing live hit, miss, load, eviction and size counters for every named cache,
+// plus the hits and size of the negative ("ID not found") entries where a cache keeps them
+@Component
+@Endpoint(id = "cachestats")
+public class CacheStatsEndpoint {
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public CacheStatsEndpoint(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    // Statistics of all caches, keyed by cache name
+    @ReadOperation
+    public Map<String, CacheStatistics> caches() {
+        Map<String, CacheStatistics> statistics = new TreeMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            CacheStatistics cacheStatistics = cache(name);
+            if (cacheStatistics != null) {
+                statistics.put(name, cacheStatistics);
+            }
+        }
+        return statistics;
+    }
+
+    // Statistics of a single cache, or null (404) when the cache does not exist or does not record statistics
+    @ReadOperation
+    public CacheStatistics cache(@Selector String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (!(cache instanceof CaffeineCache caffeineCache)) {
+            return null;
+        }
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+        long negativeHits = 0;
+        long negativeSize = 0;
+        if (caffeineCache instanceof NegativeCachingCaffeineCache negativeCachingCache) {
+            negativeHits = negativeCachingCache.getNegativeEntries().stats().hitCount();
+            negativeSize = negativeCachingCache.getNegativeEntries().estimatedSize();
+        }
+        return CacheStatistics.of(nativeCache.stats(), nativeCache.estimatedSize(), negativeHits, negativeSize);
+    }
+
+    // Immutable view of the Caffeine counters of one cache
+    public record CacheStatistics(long hits,
+                                  long misses,
+                                  double hitRate,
+                                  long loads,
+                                  long loadFailures,
+                                  double averageLoadMillis,
+                                  long evictions,
+                                  long evictionWeight,
+                                  long size,
+                                  long negativeHits,
+                                  long negativeSize) {
+
+        static CacheStatistics of(CacheStats stats, long size, long negativeHits, long negativeSize) {
+            return new CacheStatistics(
+                    stats.hitCount(),
+                    stats.missCount(),
+                    stats.hitRate(),
+                    stats.loadCount(),
+                    stats.loadFailureCount(),
+                    stats.averageLoadPenalty() / TimeUnit.MILLISECONDS.toNanos(1),
+                    stats.evictionCount(),
+                    stats.evictionWeight(),
+                    size,
+                    negativeHits,
+                    negativeSize);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.shopi.shopping.monitoring;
+import com.shopi.shopping.datasource.CartResharder;
+import com.shopi.shopping.datasource.CartShards;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Actuator endpoint (/actuator/cartshards) of the cart shards: every shard with its URL, carts and share of the ring,
+// and (POST with a url) the addition of a shard, its ranges moved to it while the application runs
+@Component
+@Endpoint(id = "cartshards")
+@ConditionalOnProperty("shopi.sharding.shard-urls")
+public class CartShardsEndpoint {
+
+    private final CartShards cartShards;
+    private final CartResharder cartResharder;
+
+    @Autowired
+    public CartShardsEndpoint(CartShards cartShards, CartResharder cartResharder) {
+        this.cartShards = cartShards;
+        this.cartResharder = cartResharder;
+    }
+
+    @ReadOperation
+    public Shards shards() {
+        List<Shard> shards = new ArrayList<>();
+        for (String name : cartShards.names()) {
+            Long carts = new JdbcTemplate(cartShards.dataSource(name))
+                    .queryForObject("SELECT COUNT(*) FROM shopping_carts", Long.class);
+            shards.add(new Shard(name, cartShards.url(name), carts != null ? carts : 0,
+                    cartShards.ring().pointsOf(name).size()));
+        }
+        return new Shards(cartShards.isResharding(), shards);
+    }
+
+    @WriteOperation
+    public CartResharder.ReshardReport addShard(String url) {
+        return cartResharder.addShard(url);
+    }
+
+    // Ring points is 0 for a shard still being filled
+    public record Shard(String name, String url, long carts, int ringPoints) {
+    }
+
+    public record Shards(boolean resharding, List<Shard> shards) {
+    }
+}
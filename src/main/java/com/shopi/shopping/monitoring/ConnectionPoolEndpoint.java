@@ -0,0 +1,82 @@
+package com.shopi.shopping.monitoring;
+import com.shopi.shopping.datasource.ConnectionPoolMonitor;
+import com.shopi.shopping.datasource.PoolSizeController;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+// Actuator endpoint (/actuator/connectionpool) of the application's connection pool: its current state, the connection
+// waits and hold times of every repository call site, suspected leaks, and the decisions of the adaptive sizing
+@Component
+@Endpoint(id = "connectionpool")
+public class ConnectionPoolEndpoint {
+
+    private final DataSource dataSource;
+    private final ConnectionPoolMonitor monitor;
+    private final ObjectProvider<PoolSizeController> poolSizeController;
+
+    @Autowired
+    public ConnectionPoolEndpoint(DataSource dataSource, ConnectionPoolMonitor monitor,
+                                  ObjectProvider<PoolSizeController> poolSizeController) {
+        this.dataSource = dataSource;
+        this.monitor = monitor;
+        this.poolSizeController = poolSizeController;
+    }
+
+    @ReadOperation
+    public ConnectionPoolReport pool() {
+        PoolSizeController controller = poolSizeController.getIfAvailable();
+        return new ConnectionPoolReport(
+                state(),
+                monitor.callSites(),
+                new Leaks(monitor.getLeakThresholdMillis(), monitor.leaks()),
+                controller != null
+                        ? new AdaptiveSizing(controller.getMinSize(), controller.getMaxSize(), controller.decisions())
+                        : null);
+    }
+
+    // Null when the application data source is not a Hikari pool (or not started yet)
+    private PoolState state() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return null;
+            }
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool == null) {
+                return null;
+            }
+            return new PoolState(hikari.getPoolName(), pool.getActiveConnections(), pool.getIdleConnections(),
+                    pool.getThreadsAwaitingConnection(), pool.getTotalConnections(), hikari.getMaximumPoolSize(),
+                    hikari.getMinimumIdle(), monitor.inFlight());
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    public record ConnectionPoolReport(PoolState pool,
+                                       Map<String, ConnectionPoolMonitor.CallSiteStatistics> callSites,
+                                       Leaks leaks,
+                                       AdaptiveSizing adaptiveSizing) {
+    }
+
+    // inFlight: connections taken through the application data source and not returned yet
+    public record PoolState(String name, int active, int idle, int pending, int total, int maximumSize,
+                            int minimumIdle, int inFlight) {
+    }
+
+    public record Leaks(long thresholdMillis, List<ConnectionPoolMonitor.Leak> suspected) {
+    }
+
+    public record AdaptiveSizing(int minSize, int maxSize, List<PoolSizeController.Decision> decisions) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.shopi.shopping.monitoring;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Actuator endpoint (/actuator/hibernatecache) exposing the Hibernate second-level cache statistics: hits, misses,
+// puts and hit ratio for every region, plus the totals of the entity and query caches
+// (needs hibernate.generate_statistics, otherwise every counter stays at zero)
+@Component
+@Endpoint(id = "hibernatecache")
+public class HibernateCacheStatsEndpoint {
+
+    private final Statistics statistics;
+
+    @Autowired
+    public HibernateCacheStatsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Totals and the statistics of every region, keyed by region name
+    @ReadOperation
+    public SecondLevelCacheStatistics caches() {
+        Map<String, RegionStatistics> regions = new TreeMap<>();
+        for (String name : statistics.getSecondLevelCacheRegionNames()) {
+            RegionStatistics regionStatistics = region(name);
+            if (regionStatistics != null) {
+                regions.put(name, regionStatistics);
+            }
+        }
+        return new SecondLevelCacheStatistics(
+                statistics.isStatisticsEnabled(),
+                Counters.of(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+                        statistics.getSecondLevelCachePutCount()),
+                Counters.of(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                        statistics.getQueryCachePutCount()),
+                regions);
+    }
+
+    // Statistics of a single region, or null (404) when the region does not exist
+    @ReadOperation
+    public RegionStatistics region(@Selector String name) {
+        // Hibernate would create a query region for an unknown name, so only known regions are looked up
+        if (!Arrays.asList(statistics.getSecondLevelCacheRegionNames()).contains(name)) {
+            return null;
+        }
+        CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+        long size = region.getElementCountInMemory();
+        return new RegionStatistics(Counters.of(region.getHitCount(), region.getMissCount(), region.getPutCount()),
+                size == CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN ? -1 : size);
+    }
+
+    public record SecondLevelCacheStatistics(boolean statisticsEnabled,
+                                             Counters entities,
+                                             Counters queries,
+                                             Map<String, RegionStatistics> regions) {
+    }
+
+    // Size is -1 when the cache provider does not report it
+    public record RegionStatistics(Counters counters, long size) {
+    }
+
+    public record Counters(long hits, long misses, long puts, double hitRatio) {
+
+        static Counters of(long hits, long misses, long puts) {
+            long lookups = hits + misses;
+            return new Counters(hits, misses, puts, lookups == 0 ? 0 : (double) hits / lookups);
+        }
+    }
+}
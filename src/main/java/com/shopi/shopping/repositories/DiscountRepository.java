@@ -1,8 +1,10 @@
 package com.shopi.shopping.repositories;
+import com.shopi.shopping.configuration.SecondLevelCacheConfig;
 import com.shopi.shopping.models.Discount;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -16,7 +18,11 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
 
     long countByCategory(String category);
 
-    // Method to get active discounts
+    // Method to get active discounts (result cached by Hibernate until the discounts table changes)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.DISCOUNT_QUERY_REGION)
+    })
     List<Discount> findByEndDateAfter(LocalDate date);
 }
 
@@ -1,6 +1,9 @@
 package com.shopi.shopping.repositories;
 import com.shopi.shopping.models.Order;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -8,13 +11,27 @@ import java.util.List;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    // Find all orders with a specific product ID (useful for tracking product sales)
-    List<Order> findByProducts_Id(Long productId);
+    // The listings below fetch the products with the orders (see Order.WITH_PRODUCTS)
 
-    // Find all orders with a specific applied discount (useful for analyzing discount usage)
-    List<Order> findByAppliedDiscounts_Id(Long discountId);
+    // Find all orders
+    @Override
+    @EntityGraph(Order.WITH_PRODUCTS)
+    List<Order> findAll();
+
+    // Find all orders with a specific product ID (useful for tracking product sales).
+    // The matching order IDs come from a subquery, so the database starts from the product's rows in the join table
+    // and looks the orders up by ID; filtering the joined rows instead makes it scan every order
+    @EntityGraph(Order.WITH_PRODUCTS)
+    @Query("SELECT o FROM Order o WHERE o.id IN (SELECT m.id FROM Order m JOIN m.products p WHERE p.id = :productId)")
+    List<Order> findByProducts_Id(@Param("productId") Long productId);
+
+    // Find all orders with a specific applied discount (useful for analyzing discount usage), subquery as above
+    @EntityGraph(Order.WITH_PRODUCTS)
+    @Query("SELECT o FROM Order o WHERE o.id IN (SELECT m.id FROM Order m JOIN m.appliedDiscounts d WHERE d.id = :discountId)")
+    List<Order> findByAppliedDiscounts_Id(@Param("discountId") Long discountId);
 
     // Find orders with total amount greater than a specific value
+    @EntityGraph(Order.WITH_PRODUCTS)
     List<Order> findByTotalAmountGreaterThan(double amount);
 
 
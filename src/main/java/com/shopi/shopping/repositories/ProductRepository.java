@@ -1,12 +1,19 @@
 package com.shopi.shopping.repositories;
 
 import com.shopi.shopping.models.products.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.stream.Stream;
 
 // Repository interface for Product entity
 @Repository
@@ -19,6 +26,38 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE TYPE(p) = :type")
     List<Product> findByProductType(@Param("type") Class<?> type);
 
-
+    // IDs of all products in ascending order, used to load the catalog in batches
+    @Query("SELECT p.id FROM Product p ORDER BY p.id")
+    List<Long> findAllIds();
+
+    // Keyset page: the next products after the given ID, in ID order, with optional type and price filters (null = any).
+    // Seeks on the primary key, so every page costs the same however deep the client has paged
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId" +
+            " AND (:type IS NULL OR TYPE(p) = :type)" +
+            " AND (:minPrice IS NULL OR p.price >= :minPrice)" +
+            " AND (:maxPrice IS NULL OR p.price <= :maxPrice)" +
+            " ORDER BY p.id")
+    List<Product> findPageAfter(@Param("afterId") long afterId, @Param("type") Class<?> type,
+                                @Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice, Limit limit);
+
+    // Same filters as findPageAfter, as a cursor over the whole result (must be consumed inside a transaction and closed).
+    // Rows are fetched from the driver in chunks and loaded read-only
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p WHERE (:type IS NULL OR TYPE(p) = :type)" +
+            " AND (:minPrice IS NULL OR p.price >= :minPrice)" +
+            " AND (:maxPrice IS NULL OR p.price <= :maxPrice)" +
+            " ORDER BY p.id")
+    Stream<Product> streamFiltered(@Param("type") Class<?> type,
+                                   @Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice);
+
+    // Set-based re-pricing: every product of the type (every product when type is null) has its price multiplied by
+    // factor, rounded to the cent, and its version incremented so that concurrent entity updates fail instead of
+    // overwriting the new price
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.price = ROUND(p.price * :factor, 2), p.version = p.version + 1" +
+            " WHERE (:type IS NULL OR TYPE(p) = :type)")
+    int repriceByType(@Param("type") Class<?> type, @Param("factor") BigDecimal factor);
 }
-
@@ -1,33 +1,59 @@
 package com.shopi.shopping.repositories;
 import com.shopi.shopping.models.ShoppingCart;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.shopi.shopping.models.snapshots.ProductPopularity;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
+// Only the operations that work on sharded carts as well (each one is routed by CartShardingInterceptor, which checks
+// on start that it knows every method declared here): a plain Repository rather than a JpaRepository, so that a call the
+// shards cannot serve (paging, sorting, flush, references...) does not compile.
+// Narrowed in every deployment, sharded or not, so that code written without sharding keeps working once it is on
 @Repository
-public interface ShoppingCartRepository extends JpaRepository<ShoppingCart, Long> {
+public interface ShoppingCartRepository extends org.springframework.data.repository.Repository<ShoppingCart, Long> {
 
     // Method to save or update a shopping cart
-    @Override
     ShoppingCart save(ShoppingCart cart);
 
-    // Method to find a shopping cart by its ID
-    @Override
+    // Method to find a shopping cart by its ID (with its customer and products: with sharded carts the cart comes back
+    // detached from its shard, so nothing is left to load later)
+    @EntityGraph(ShoppingCart.WITH_CUSTOMER_AND_PRODUCTS)
     Optional<ShoppingCart> findById(Long id);
 
-    // Method to retrieve a list of all shopping carts
-    @Override
+    // Method to check whether a shopping cart exists
+    boolean existsById(Long id);
+
+    // Method to retrieve a list of all shopping carts (with customers and products, see ShoppingCart.WITH_CUSTOMER_AND_PRODUCTS)
+    @EntityGraph(ShoppingCart.WITH_CUSTOMER_AND_PRODUCTS)
     List<ShoppingCart> findAll();
 
+    // Method to count all shopping carts
+    long count();
+
     // Method to delete a shopping cart by its ID
-    @Override
     void deleteById(Long id);
 
+    // Method to delete the given shopping carts
+    void deleteAll(Iterable<? extends ShoppingCart> carts);
+
+    // Method to delete all the shopping carts of a customer (before deleting the customer)
+    @Transactional
+    void deleteByCustomerId(Long customerId);
+
     // Custom method to find shopping carts by customer ID
+    @EntityGraph(ShoppingCart.WITH_CUSTOMER_AND_PRODUCTS)
     List<ShoppingCart> findByCustomerId(Long customerId); // Get all carts for a specific customer
 
     // Custom method to find shopping carts by status
+    @EntityGraph(ShoppingCart.WITH_CUSTOMER_AND_PRODUCTS)
     List<ShoppingCart> findByStatus(ShoppingCart.Status status); // Get all carts with a specific status
+
+    // Number of shopping carts holding each product (products in no cart are not listed)
+    @Query("SELECT new com.shopi.shopping.models.snapshots.ProductPopularity(p.id, COUNT(c.id))" +
+            " FROM ShoppingCart c JOIN c.products p GROUP BY p.id")
+    List<ProductPopularity> countCartsByProduct();
 }
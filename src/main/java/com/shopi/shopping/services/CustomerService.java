@@ -10,8 +10,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,17 +20,18 @@ public class CustomerService {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomerService.class);
     private final CustomerRepository customerRepository;
+    private final ShoppingCartRepository shoppingCartRepository;
     private final AmqpTemplate amqpTemplate;
 
 
     @Autowired
     private NotificationService notificationService; // Inyecta el NotificationService
-    @Autowired
-    private ShoppingCartRepository shoppingCartRepository;
 
     @Autowired
-    public CustomerService(CustomerRepository customerRepository, AmqpTemplate amqpTemplate) {
+    public CustomerService(CustomerRepository customerRepository, ShoppingCartRepository shoppingCartRepository,
+                           AmqpTemplate amqpTemplate) {
         this.customerRepository = customerRepository;
+        this.shoppingCartRepository = shoppingCartRepository;
         this.amqpTemplate = amqpTemplate;
     }
 
@@ -42,6 +43,7 @@ public class CustomerService {
 
 
     // Fetch customer by ID
+    @Transactional(readOnly = true)
     public Optional<Customer> getCustomerById(Long id) {
         logger.info("Fetching customer with ID: {}", id);
         return customerRepository.findById(id); // Fetching customer by ID
@@ -74,31 +76,40 @@ public class CustomerService {
 
 
 
-    // Delete customer
+    // Delete customer, with their shopping carts (wherever the carts are stored, see ShoppingCartRepository).
+    // With sharded carts the two deletes are not atomic: the carts are deleted, and committed, on their shard before the
+    // customer is deleted here. The carts go first, so that a failure in between leaves a customer without carts and
+    // never carts without their customer; deleting the carts again deletes nothing, so calling this again completes it
+    @Transactional
     public void deleteCustomer(Long id) {
         logger.info("Deleting customer with ID: {}", id);
+        shoppingCartRepository.deleteByCustomerId(id); // First, and idempotent (see above)
         customerRepository.deleteById(id); // Deleting the customer by ID
     }
 
     // Fetch customer by email
+    @Transactional(readOnly = true)
     public Optional<Customer> getCustomerByEmail(String email) {
         logger.info("Fetching customer with email: {}", email);
         return customerRepository.findByEmail(email);
     }
 
     // Fetch customers by last name
+    @Transactional(readOnly = true)
     public List<Customer> getCustomersByLastName(String lastName) {
         logger.info("Fetching customers with last name: {}", lastName);
         return customerRepository.findByLastName(lastName);
     }
 
     // Fetch customers by first name containing a specific string
+    @Transactional(readOnly = true)
     public List<Customer> getCustomersByFirstNameContaining(String name) {
         logger.info("Fetching customers with first name containing: {}", name);
         return customerRepository.findByNameContaining(name);
     }
 
     // Fetch all customers
+    @Transactional(readOnly = true)
     public List<Customer> getAllCustomers() {
         logger.info("Fetching all customers");
         return customerRepository.findAll(); // Fetching all customers
@@ -125,11 +136,6 @@ public class CustomerService {
         newCart.setCustomer(savedCustomer); // Asignar el cliente al carrito
         shoppingCartRepository.save(newCart); // Guarda el carrito
 
-        // Agregar el carrito a la lista de carritos del cliente
-        List<ShoppingCart> shoppingCarts = new ArrayList<>();
-        shoppingCarts.add(newCart);
-        savedCustomer.setShoppingCarts(shoppingCarts); // Asignar el carrito al cliente
-
         return savedCustomer; // Devuelve el cliente guardado
     }
 
@@ -1,11 +1,15 @@
 package com.shopi.shopping.services;
+import com.shopi.shopping.configuration.CacheConfig;
 import com.shopi.shopping.models.Discount;
 import com.shopi.shopping.models.Order;
 import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.DiscountSnapshot;
 import com.shopi.shopping.repositories.DiscountRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -124,23 +128,31 @@ public class DiscountService {
 
     //----------------------------
     // Create a discount
+    @CacheEvict(value = CacheConfig.ACTIVE_DISCOUNTS_CACHE, allEntries = true)
     public Discount createDiscount(Discount discount) {
         return discountRepository.save(discount);
     }
 
     // Update a discount
+    @CacheEvict(value = CacheConfig.ACTIVE_DISCOUNTS_CACHE, allEntries = true)
     public Discount updateDiscount(Discount discount) {
         return discountRepository.save(discount);
     }
 
     // Delete a discount by ID
+    @CacheEvict(value = CacheConfig.ACTIVE_DISCOUNTS_CACHE, allEntries = true)
     public void deleteDiscount(Long id) {
         discountRepository.deleteById(id);
     }
 
-    // Get all active discounts
-    public List<Discount> findActiveDiscounts() {
-        return discountRepository.findByEndDateAfter(LocalDate.now());
+    // Get all active discounts (cached per day; any discount write clears the cache).
+    // The cache holds an unmodifiable list of immutable DiscountSnapshots, shared by every caller; use
+    // getDiscountDetails when the discount is going to be changed
+    @Cacheable(value = CacheConfig.ACTIVE_DISCOUNTS_CACHE, key = "T(java.time.LocalDate).now()", sync = true)
+    public List<DiscountSnapshot> findActiveDiscounts() {
+        return discountRepository.findByEndDateAfter(LocalDate.now()).stream()
+                .map(DiscountSnapshot::of)
+                .toList();
     }
 
     // Get a discount by ID
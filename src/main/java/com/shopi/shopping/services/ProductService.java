@@ -1,7 +1,22 @@
 package com.shopi.shopping.services;
+import com.shopi.shopping.configuration.CacheConfig;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Clothing;
+import com.shopi.shopping.models.products.Electronic;
 import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.FacetedProducts;
+import com.shopi.shopping.models.snapshots.ProductPage;
+import com.shopi.shopping.models.snapshots.ProductSearchHit;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSuggestion;
 import com.shopi.shopping.repositories.ProductRepository;
 import com.shopi.shopping.factories.ProductFactory;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.search.PriceBucket;
+import com.shopi.shopping.services.search.ProductAutocompleteIndex;
+import com.shopi.shopping.services.search.ProductFacetIndex;
+import com.shopi.shopping.services.search.ProductPriceIndex;
+import com.shopi.shopping.services.search.ProductSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,10 +24,18 @@ import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.EntityManager;
 import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 @EnableCaching
 @Service
 public class ProductService {
@@ -20,11 +43,37 @@ public class ProductService {
 
     private final ProductFactory productFactory;
     private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+    private final EntityManager entityManager;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductAutocompleteIndex productAutocompleteIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductPriceIndex productPriceIndex;
+
+    // Page sizes for the keyset-paginated listing
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Number of results for the full-text search
+    public static final int DEFAULT_SEARCH_LIMIT = 10;
+    public static final int MAX_SEARCH_LIMIT = 100;
+
+    // Number of autocomplete suggestions
+    public static final int DEFAULT_SUGGESTION_LIMIT = 5;
 
     @Autowired
-    public ProductService(ProductFactory productFactory, ProductRepository productRepository) {
+    public ProductService(ProductFactory productFactory, ProductRepository productRepository, ProductCatalog productCatalog,
+                          EntityManager entityManager, ProductSearchIndex productSearchIndex,
+                          ProductAutocompleteIndex productAutocompleteIndex, ProductFacetIndex productFacetIndex,
+                          ProductPriceIndex productPriceIndex) {
         this.productFactory = productFactory;
         this.productRepository = productRepository; // Initialize repository
+        this.productCatalog = productCatalog;
+        this.entityManager = entityManager;
+        this.productSearchIndex = productSearchIndex;
+        this.productAutocompleteIndex = productAutocompleteIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productPriceIndex = productPriceIndex;
     }
 
     // Method to fetch product by ID without caching
@@ -33,11 +82,13 @@ public class ProductService {
         return productRepository.findById(id).orElse(null); // Consider throwing an exception instead of returning null
     }
 
-    // Method to fetch product by ID with caching
-    @Cacheable(value = "products", key = "#id")
-    public Product getProductByIdCached(long id) {
+    // Method to fetch product by ID with caching.
+    // The cache holds an immutable ProductSnapshot, never the entity; use getProductById when the product is going to be changed.
+    // sync = true coalesces concurrent misses for the same ID: one caller loads from the repository, the others wait for its result
+    @Cacheable(value = CacheConfig.PRODUCTS_CACHE, key = "#id", sync = true)
+    public ProductSnapshot getProductByIdCached(long id) {
         logger.info("Fetching product with ID from repository: {}", id);
-        return productRepository.findById(id).orElse(null);
+        return productRepository.findById(id).map(ProductSnapshot::of).orElse(null);
     }
 
 
@@ -50,7 +101,7 @@ public class ProductService {
     }
 
     // Method to update a product with cache eviction
-    @CacheEvict(value = "products", key = "#product.id") // Evict cached product
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#product.id") // Evict cached product
     public void updateProductWithCache(Product product) {
         updateProduct(product); // Call the method without caching
     }
@@ -64,29 +115,164 @@ public class ProductService {
     }
 
     // Method to delete a product with cache eviction
-    @CacheEvict(value = "products", key = "#productId") // Evict cached product
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#productId") // Evict cached product
     public void deleteProductWithCache(long productId) {
         deleteProduct(productId); // Call the method without caching
     }
 
     // Method to get all products
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
         logger.info("Fetching all products");
         return productRepository.findAll(); // Fetch all products from the repository
     }
 
+    // Method to get the whole catalog from memory (no database query once loaded; ordered by ID, unmodifiable)
+    public List<ProductSnapshot> getCatalog() {
+        return productCatalog.getProducts();
+    }
+
+    // Method to get one page of products after the given ID (keyset pagination), with optional type and price filters.
+    // One extra row is read to know whether another page follows
+    @Transactional(readOnly = true)
+    public ProductPage getProductPage(Long after, Integer limit, String type, BigDecimal minPrice, BigDecimal maxPrice) {
+        validateFilter(type, minPrice, maxPrice);
+        int pageSize = pageSizeOf(limit);
+        List<Product> rows = productRepository.findPageAfter(after != null ? after : 0L, productTypeOf(type),
+                minPrice, maxPrice, Limit.of(pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductSnapshot> items = rows.stream()
+                .limit(pageSize)
+                .map(ProductSnapshot::of)
+                .toList();
+        Long nextCursor = hasMore ? items.get(items.size() - 1).id() : null;
+        logger.info("Fetched product page after ID {}: {} products, next cursor {}", after, items.size(), nextCursor);
+        return new ProductPage(items, nextCursor);
+    }
+
+    // Method to pass every matching product, in ID order, to the consumer while the rows are read from the database.
+    // Each entity is detached once handed over, so memory stays flat whatever the size of the catalog
+    @Transactional(readOnly = true)
+    public long streamProducts(String type, BigDecimal minPrice, BigDecimal maxPrice, Consumer<ProductSnapshot> consumer) {
+        validateFilter(type, minPrice, maxPrice);
+        long count = 0;
+        try (Stream<Product> products = productRepository.streamFiltered(productTypeOf(type), minPrice, maxPrice)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                consumer.accept(ProductSnapshot.of(product));
+                entityManager.detach(product);
+                count++;
+            }
+        }
+        logger.info("Streamed {} products", count);
+        return count;
+    }
+
+    // Method to search products by keywords in their name and description, best match first (in-memory BM25 index)
+    public List<ProductSearchHit> searchProducts(String query, Integer limit) {
+        int maxResults = limit != null ? limit : DEFAULT_SEARCH_LIMIT;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        List<ProductSearchHit> hits = productSearchIndex.search(query, maxResults);
+        logger.debug("Search for '{}' returned {} products", query, hits.size());
+        return hits;
+    }
+
+    // Method to complete a product name as it is typed, most popular products first (in-memory radix tree)
+    public List<ProductSuggestion> autocomplete(String prefix, Integer limit) {
+        int maxSuggestions = limit != null ? limit : DEFAULT_SUGGESTION_LIMIT;
+        if (maxSuggestions < 1 || maxSuggestions > ProductAutocompleteIndex.MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + ProductAutocompleteIndex.MAX_SUGGESTIONS);
+        }
+        return productAutocompleteIndex.complete(prefix, maxSuggestions);
+    }
+
+    // Method to filter products by any of the types and any of the price ranges, with the facet counts (in-memory bitmaps)
+    public FacetedProducts filterProducts(List<String> types, List<String> prices, Integer limit) {
+        int pageSize = pageSizeOf(limit);
+        Set<String> selectedTypes = productTypesOf(types);
+        Set<PriceBucket> selectedPrices = EnumSet.noneOf(PriceBucket.class);
+        for (String price : prices != null ? prices : List.<String>of()) {
+            selectedPrices.add(PriceBucket.fromLabel(price));
+        }
+        FacetedProducts result = productFacetIndex.filter(selectedTypes, selectedPrices, pageSize);
+        logger.debug("Facet filter types={} prices={} matched {} products", selectedTypes, selectedPrices, result.total());
+        return result;
+    }
+
+    // Method to list the cheapest products of any of the types within a price range, cheapest first (in-memory price index)
+    public List<ProductSnapshot> getProductsByPrice(List<String> types, BigDecimal minPrice, BigDecimal maxPrice, Integer limit) {
+        int pageSize = pageSizeOf(limit);
+        Set<String> selectedTypes = productTypesOf(types);
+        validateFilter(null, minPrice, maxPrice);
+        List<ProductSnapshot> products = productPriceIndex.cheapest(selectedTypes, minPrice, maxPrice, pageSize);
+        logger.debug("Price listing types={} from {} to {} returned {} products", selectedTypes, minPrice, maxPrice, products.size());
+        return products;
+    }
+
+    // Method to check the listing filters up front (unknown type, or an empty price range)
+    public void validateFilter(String type, BigDecimal minPrice, BigDecimal maxPrice) {
+        productTypeOf(type);
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice cannot be greater than maxPrice");
+        }
+    }
+
+    // Validate the requested product types and normalize them to the names used by the in-memory indexes
+    private static Set<String> productTypesOf(List<String> types) {
+        Set<String> selectedTypes = new HashSet<>();
+        for (String type : types != null ? types : List.<String>of()) {
+            if (productTypeOf(type) != null) { // Rejects unknown types, skips blank ones
+                selectedTypes.add(type.toUpperCase());
+            }
+        }
+        return selectedTypes;
+    }
+
+    // Validate the requested page size
+    private static int pageSizeOf(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    // Map a product type name (as used by ProductFactory) to its entity class; null or blank means any type
+    public static Class<? extends Product> productTypeOf(String type) {
+        if (type == null || type.isBlank()) {
+            return null;
+        }
+        switch (type.toUpperCase()) {
+            case "ELECTRONIC":
+                return Electronic.class;
+            case "CLOTHING":
+                return Clothing.class;
+            case "BOOK":
+                return Book.class;
+            default:
+                throw new IllegalArgumentException("Unknown product type: " + type);
+        }
+    }
+
     // Method to get products by name
+    @Transactional(readOnly = true)
     public List<Product> getProductsByName(String name) {
         logger.info("Fetching products with name: {}", name);
         return productRepository.findByName(name); // Fetch products by name
     }
 
     // Method to get products by type
+    @Transactional(readOnly = true)
     public List<Product> getProductsByType(Class<?> type) {
         return productRepository.findByProductType(type); // Fetch products by type
     }
 
-    // Method to create a product based on its type
+    // Method to create a product based on its type.
+    // Evicting the new ID drops any negative ("not found") entry cached for it before the product existed
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#result.id")
     public Product createProduct(String category, String name, BigDecimal price) {
         Product product = productFactory.createProduct(category, name, price);
         return productRepository.save(product);
@@ -1,9 +1,12 @@
 package com.shopi.shopping.services;
+import com.shopi.shopping.configuration.CacheConfig;
 import com.shopi.shopping.configuration.RabbitConfig;
 import com.shopi.shopping.factories.OrderFactory;
 import com.shopi.shopping.models.*;
 import com.shopi.shopping.interfaces.ShoppingCartInterface;
 import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.ShoppingCartSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -19,6 +22,7 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 @EnableCaching
 @Service
@@ -30,6 +34,7 @@ public class ShoppingCartServices implements ShoppingCartInterface {
     private final DiscountService discountService;
     private final OrderService orderService;
     private final NotificationService notificationService;
+    private final ProductCatalog productCatalog;
 
     @Autowired
     private RabbitTemplate rabbitTemplate;//--
@@ -39,7 +44,8 @@ public class ShoppingCartServices implements ShoppingCartInterface {
     public ShoppingCartServices(ShoppingCartRepository shoppingCartRepository,
                                 OrderFactory orderFactory,
                                 DiscountService discountService,
-                                OrderService orderService, NotificationService notificationService, RabbitTemplate rabbitTemplate, AmqpTemplate amqpTemplate) {
+                                OrderService orderService, NotificationService notificationService, RabbitTemplate rabbitTemplate, AmqpTemplate amqpTemplate,
+                                ProductCatalog productCatalog) {
         this.shoppingCartRepository = shoppingCartRepository;
         this.orderFactory = orderFactory;
         this.discountService = discountService;
@@ -47,6 +53,7 @@ public class ShoppingCartServices implements ShoppingCartInterface {
         this.notificationService = notificationService;
         this.rabbitTemplate = rabbitTemplate;
         this.amqpTemplate = amqpTemplate;
+        this.productCatalog = productCatalog;
         logger.info("ShoppingCartServices initialized with ShoppingCartRepository, OrderFactory, DiscountService, and OrderService.");
     }
     @Override
@@ -186,6 +193,14 @@ public class ShoppingCartServices implements ShoppingCartInterface {
         return total; // Return the calculated total
     }
 
+    // Total of a cached cart (getCartByIdWithCache) at the current prices of the ProductCatalog. The total is not cached
+    // with the cart, so that a price change shows at once without evicting it
+    public BigDecimal calculateCachedTotalPrice(ShoppingCartSnapshot cart) {
+        BigDecimal total = cart.totalPrice(productCatalog.current());
+        logger.debug("Total price calculated for cached cart ID {}: {}", cart.id(), total);
+        return total;
+    }
+
 
     // Print all shopping cart information sorted by price--------------
     public void printCartInfoSortedByPrice(ShoppingCart cart) {
@@ -309,10 +324,13 @@ public class ShoppingCartServices implements ShoppingCartInterface {
         return shoppingCartRepository.findById(id);
     }
 
-    // Public method with cache------
-    @Cacheable(value = "shoppingCarts", key = "#id")
-    public Optional<ShoppingCart> getCartByIdWithCache(Long id) {
-        return getCartById(id);
+    // Public method with cache (single-flight: concurrent misses for the same ID share one repository load)------
+    // The cache holds an immutable ShoppingCartSnapshot, taken inside a read-only transaction so the products are loaded;
+    // use getCartById when the cart is going to be changed
+    @Cacheable(value = CacheConfig.SHOPPING_CARTS_CACHE, key = "#id", sync = true)
+    @Transactional(readOnly = true)
+    public Optional<ShoppingCartSnapshot> getCartByIdWithCache(Long id) {
+        return getCartById(id).map(ShoppingCartSnapshot::of);
     }
 
     // Public method without cache------
@@ -322,7 +340,7 @@ public class ShoppingCartServices implements ShoppingCartInterface {
     }
 
     // Public method with cache------
-    @CacheEvict(value = "shoppingCarts", key = "#id")
+    @CacheEvict(value = CacheConfig.SHOPPING_CARTS_CACHE, key = "#id")
     public void deleteCartByIdWithCache(Long id) {
         deleteCartById(id); // Llamar al método sin caché
     }
@@ -333,10 +351,13 @@ public class ShoppingCartServices implements ShoppingCartInterface {
         return shoppingCartRepository.findByStatus(status);
     }
 
-    // Public method with cache------
-    @Cacheable(value = "shoppingCartsByStatus", key = "#status")
-    public List<ShoppingCart> getCartsByStatusWithCache(ShoppingCart.Status status) {
-        return shoppingCartRepository.findByStatus(status);
+    // Public method with cache (snapshots and single-flight, as for getCartByIdWithCache)------
+    @Cacheable(value = CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE, key = "#status", sync = true)
+    @Transactional(readOnly = true)
+    public List<ShoppingCartSnapshot> getCartsByStatusWithCache(ShoppingCart.Status status) {
+        return shoppingCartRepository.findByStatus(status).stream()
+                .map(ShoppingCartSnapshot::of)
+                .toList();
     }
 
 
@@ -351,6 +372,8 @@ public class ShoppingCartServices implements ShoppingCartInterface {
         return shoppingCartRepository.findByCustomerId(customerId);
     }
     // Método para crear y guardar un nuevo ShoppingCart
+    // Evicting the new ID drops any negative ("not found") entry cached for it before the cart existed
+    @CacheEvict(value = CacheConfig.SHOPPING_CARTS_CACHE, key = "#result.id")
     public ShoppingCart createShoppingCart(ShoppingCart shoppingCart) {
         return shoppingCartRepository.save(shoppingCart);
     }
@@ -0,0 +1,13 @@
+package com.shopi.shopping.services.caching;
+
+import java.util.function.Consumer;
+
+// Transport that carries cache evictions between nodes
+public interface CacheInvalidationBus {
+
+    // Send an eviction to every node, including the sender (which ignores its own messages)
+    void publish(CacheInvalidationMessage message);
+
+    // Receive the evictions published by any node
+    void subscribe(Consumer<CacheInvalidationMessage> subscriber);
+}
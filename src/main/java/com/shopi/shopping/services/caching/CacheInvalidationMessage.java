@@ -0,0 +1,50 @@
+package com.shopi.shopping.services.caching;
+import com.shopi.shopping.configuration.CacheEvictedEvent;
+import com.shopi.shopping.models.ShoppingCart;
+
+import java.util.Map;
+import java.util.function.Function;
+
+// Eviction sent from one node to the others. The key travels as text together with its type,
+// so that the receiving node rebuilds a key equal to the one used by its own cache.
+public record CacheInvalidationMessage(String originNodeId, String cacheName, String key, String keyType) {
+
+    // The key types rebuilt on receipt, by name. The type comes from the message broker, so no class is ever looked up
+    // by it: a type not listed here is not rebuilt, and the receiver clears the whole cache
+    private static final Map<String, Function<String, Object>> KEY_DECODERS = Map.of(
+            Long.class.getName(), Long::valueOf,
+            Integer.class.getName(), Integer::valueOf,
+            String.class.getName(), key -> key,
+            ShoppingCart.Status.class.getName(), ShoppingCart.Status::valueOf);
+
+    public static CacheInvalidationMessage of(String originNodeId, CacheEvictedEvent event) {
+        if (event.allEntries()) {
+            return new CacheInvalidationMessage(originNodeId, event.cacheName(), null, null);
+        }
+        Object key = event.key();
+        String keyType = key instanceof Enum<?> enumKey ? enumKey.getDeclaringClass().getName() : key.getClass().getName();
+        String keyText = key instanceof Enum<?> enumKey ? enumKey.name() : key.toString();
+        return new CacheInvalidationMessage(originNodeId, event.cacheName(), keyText, keyType);
+    }
+
+    // True when the whole cache must be cleared
+    public boolean allEntries() {
+        return key == null;
+    }
+
+    // Rebuild the original key; null when its type cannot be rebuilt (the receiver then clears the whole cache)
+    public Object decodeKey() {
+        if (key == null || keyType == null) {
+            return null;
+        }
+        Function<String, Object> decoder = KEY_DECODERS.get(keyType);
+        if (decoder == null) {
+            return null;
+        }
+        try {
+            return decoder.apply(key);
+        } catch (IllegalArgumentException e) {
+            return null; // Not a valid key of its type (NumberFormatException included)
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.shopi.shopping.services.caching;
+import com.shopi.shopping.configuration.CacheConfig;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.DiscountSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.DiscountService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Preloads the product catalog, the products cache and the active discounts at startup.
+// Application runners complete before the ApplicationReadyEvent, so readiness only reports UP once the caches are warm.
+// The time taken and the number of entries loaded are published as the cache.warmup and cache.warmup.entries metrics.
+@Component
+public class CacheWarmer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final ProductRepository productRepository;
+    private final DiscountService discountService;
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final ProductCatalog productCatalog;
+
+    @Value("${shopi.cache.warmup.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${shopi.cache.warmup.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${shopi.cache.warmup.threads:4}")
+    private int threads = 4;
+
+    private final AtomicInteger productEntries = new AtomicInteger();
+    private final AtomicInteger discountEntries = new AtomicInteger();
+
+    @Autowired
+    public CacheWarmer(ProductRepository productRepository, DiscountService discountService,
+                       CacheManager cacheManager, MeterRegistry meterRegistry, ProductCatalog productCatalog) {
+        this.productRepository = productRepository;
+        this.discountService = discountService;
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+        this.productCatalog = productCatalog;
+        Gauge.builder("cache.warmup.entries", productEntries, AtomicInteger::get)
+                .tag("cache", CacheConfig.PRODUCTS_CACHE)
+                .description("Entries preloaded at startup")
+                .register(meterRegistry);
+        Gauge.builder("cache.warmup.entries", discountEntries, AtomicInteger::get)
+                .tag("cache", CacheConfig.ACTIVE_DISCOUNTS_CACHE)
+                .description("Entries preloaded at startup")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            logger.info("Cache warm-up is disabled.");
+            return;
+        }
+        warmUp();
+    }
+
+    // Load every product in parallel batches and the active discounts; failures are logged, never fatal
+    public void warmUp() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            productCatalog.current(); // Loads the in-memory catalog served to /home and /products
+            productEntries.set(warmUpProducts());
+            List<DiscountSnapshot> activeDiscounts = discountService.findActiveDiscounts(); // Cached by DiscountService
+            discountEntries.set(activeDiscounts.size());
+            logger.info("Cache warm-up loaded {} products and {} active discounts.", productEntries.get(), discountEntries.get());
+        } catch (Exception e) {
+            logger.error("Cache warm-up failed, caches will fill on demand: {}", e.getMessage());
+        } finally {
+            sample.stop(Timer.builder("cache.warmup")
+                    .description("Time spent preloading the caches at startup")
+                    .register(meterRegistry));
+        }
+    }
+
+    private int warmUpProducts() {
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        List<Long> ids = productRepository.findAllIds();
+        if (products == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<CompletableFuture<Integer>> batches = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                batches.add(CompletableFuture.supplyAsync(() -> loadBatch(products, batch), executor));
+            }
+            return batches.stream().mapToInt(CompletableFuture::join).sum();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // One query per batch; entries already cached by live requests are kept
+    private int loadBatch(Cache products, List<Long> batch) {
+        int loaded = 0;
+        for (Product product : productRepository.findAllById(batch)) {
+            products.putIfAbsent(product.getId(), ProductSnapshot.of(product));
+            loaded++;
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,66 @@
+package com.shopi.shopping.services.caching;
+import com.shopi.shopping.configuration.CacheEvictedEvent;
+import com.shopi.shopping.configuration.CoherentCaffeineCache;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+// Near-cache coherence: relays the evictions made on this node to the other nodes through the CacheInvalidationBus,
+// and applies the evictions made on the other nodes to the local caches
+@Component
+public class ClusterCacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCacheInvalidator.class);
+
+    private final CacheManager cacheManager;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final String nodeId = UUID.randomUUID().toString(); // Identifies this node's own messages
+
+    @Autowired
+    public ClusterCacheInvalidator(CacheManager cacheManager, CacheInvalidationBus cacheInvalidationBus) {
+        this.cacheManager = cacheManager;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        cacheInvalidationBus.subscribe(this::onInvalidation);
+        logger.info("Cluster cache invalidation started for node {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // An entry was evicted on this node: tell the other nodes
+    @EventListener
+    public void onCacheEvicted(CacheEvictedEvent event) {
+        cacheInvalidationBus.publish(CacheInvalidationMessage.of(nodeId, event));
+    }
+
+    // An entry was evicted on some node: evict it here too, unless this node sent it
+    public void onInvalidation(CacheInvalidationMessage message) {
+        if (nodeId.equals(message.originNodeId())) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(message.cacheName());
+        if (!(cache instanceof CoherentCaffeineCache coherentCache)) {
+            logger.warn("Ignoring invalidation for unknown cache {}", message.cacheName());
+            return;
+        }
+        Object key = message.decodeKey();
+        if (key == null) {
+            coherentCache.clearLocally(); // Whole cache, or a key type this node cannot rebuild
+        } else {
+            coherentCache.evictLocally(key);
+        }
+        logger.debug("Applied invalidation from node {} to cache {} (key {})", message.originNodeId(), message.cacheName(), message.key());
+    }
+}
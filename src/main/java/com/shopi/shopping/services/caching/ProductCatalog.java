@@ -0,0 +1,298 @@
+package com.shopi.shopping.services.caching;
+import com.shopi.shopping.configuration.CacheConfig;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// In-memory, copy-on-write copy of the whole product catalog, served to /home and /products without a database query.
+// Readers get the current version with a single volatile read. Writers (product inserts, updates and deletes seen
+// through Hibernate, after commit) build the next version from a copy and swap it in, one writer at a time.
+// Product changes made on other nodes arrive through the CacheInvalidationBus and are reloaded from the database.
+// Every new version is announced with a ProductCatalogChangedEvent, so that derived indexes can follow it.
+// The changes of one transaction are applied together; a bulk change produces a single version and a single event.
+// Work that commits many transactions in a row (an import in chunks) can run as a batch, applied once at its end.
+@Component
+public class ProductCatalog implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalog.class);
+
+    // More product changes than this in one transaction (a bulk import or re-pricing) are applied as a single new version
+    public static final int BULK_CHANGE_THRESHOLD = 100;
+
+    private final ProductRepository productRepository;
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ClusterCacheInvalidator clusterCacheInvalidator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate primaryReads;
+
+    private volatile CatalogSnapshot snapshot; // null until the first read or reload
+
+    // Changes committed by this thread inside batch(), applied when the batch ends (null outside a batch)
+    private final ThreadLocal<Map<Long, ProductSnapshot>> batch = new ThreadLocal<>();
+
+    @Autowired
+    public ProductCatalog(ProductRepository productRepository, CacheManager cacheManager, EntityManagerFactory entityManagerFactory,
+                          CacheInvalidationBus cacheInvalidationBus, ClusterCacheInvalidator clusterCacheInvalidator,
+                          ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.clusterCacheInvalidator = clusterCacheInvalidator;
+        this.eventPublisher = eventPublisher;
+        // Catalog reads run in a read-write transaction of their own, so never on a read replica: a lagging replica
+        // would leave the catalog without the last changes, and no later event would bring them back
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.primaryReads.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Register with Hibernate's event system and with the other nodes' product invalidations
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        cacheInvalidationBus.subscribe(this::onInvalidation);
+        logger.info("Product catalog registered with Hibernate.");
+    }
+
+    // Current version of the catalog, loaded from the database on first use
+    public CatalogSnapshot current() {
+        CatalogSnapshot current = snapshot;
+        return current != null ? current : load();
+    }
+
+    // Products of the current version, ordered by ID (unmodifiable)
+    public List<ProductSnapshot> getProducts() {
+        return current().products();
+    }
+
+    // Replace the catalog with a fresh copy of the products table
+    public synchronized CatalogSnapshot reload() {
+        CatalogSnapshot previous = snapshot;
+        long version = previous != null ? previous.version() + 1 : 1;
+        List<ProductSnapshot> products = primaryReads.execute(status -> productRepository.findAll().stream()
+                .map(ProductSnapshot::of)
+                .toList());
+        CatalogSnapshot loaded = CatalogSnapshot.of(version, products);
+        snapshot = loaded;
+        logger.info("Product catalog version {} loaded with {} products.", version, products.size());
+        eventPublisher.publishEvent(new ProductCatalogChangedEvent(loaded, null, null));
+        return loaded;
+    }
+
+    private synchronized CatalogSnapshot load() {
+        CatalogSnapshot current = snapshot;
+        return current != null ? current : reload(); // Another reader may have loaded it while this one waited
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Product product) {
+            afterCommit(product.getId(), ProductSnapshot.of(product));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Product product) {
+            afterCommit(product.getId(), ProductSnapshot.of(product));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Product product) {
+            afterCommit(product.getId(), null);
+        }
+    }
+
+    // Run work that commits product changes in several transactions, and apply all of them when it ends: one new
+    // version, one index rebuild and one cache invalidation for the whole work instead of one per transaction.
+    // Until then this node's catalog does not show the committed changes. The changes are applied even when the work
+    // fails, for the transactions that did commit. A batch inside a batch joins it
+    public <T, E extends Exception> T batch(BatchWork<T, E> work) throws E {
+        if (batch.get() != null) {
+            return work.run();
+        }
+        Map<Long, ProductSnapshot> changes = new LinkedHashMap<>();
+        batch.set(changes);
+        try {
+            return work.run();
+        } finally {
+            batch.remove();
+            if (!changes.isEmpty()) {
+                apply(changes);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface BatchWork<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    // Products changed by a bulk statement, which Hibernate's events do not see: applied like entity changes, after commit
+    public void recordChanges(Collection<ProductSnapshot> changed) {
+        changed.forEach(product -> afterCommit(product.id(), product));
+    }
+
+    // Products changed by a bulk statement too wide to re-read row by row (a whole category re-priced): reload the
+    // catalog once the transaction commits, and clear the products cache so that the other nodes reload theirs
+    public void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reloadAndClear();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reloadAndClear();
+            }
+        });
+    }
+
+    private void reloadAndClear() {
+        if (snapshot != null) {
+            reload(); // Not loaded yet: the first read will see the committed changes
+        }
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        if (products != null) {
+            products.clear();
+        }
+    }
+
+    // Collect the change (null for a delete) and apply every change of the transaction once it commits,
+    // or right away when no transaction is active
+    private void afterCommit(long productId, ProductSnapshot changed) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyOrDefer(Collections.singletonMap(productId, changed));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, ProductSnapshot> pending = (Map<Long, ProductSnapshot>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Long, ProductSnapshot> changes = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ProductCatalog.this);
+                    if (status == STATUS_COMMITTED) {
+                        applyOrDefer(changes);
+                    }
+                }
+            });
+            pending = changes;
+        }
+        pending.put(productId, changed); // The last change of a product wins
+    }
+
+    // Apply the committed changes, or keep them for the end of the batch this thread runs
+    private void applyOrDefer(Map<Long, ProductSnapshot> changes) {
+        Map<Long, ProductSnapshot> deferred = batch.get();
+        if (deferred != null) {
+            deferred.putAll(changes); // The last change of a product wins
+        } else {
+            apply(changes);
+        }
+    }
+
+    // Swap in the next version, and evict the products by ID so that the cache and its copies on other nodes follow.
+    // A bulk change clears the cache instead: one invalidation message, on which the other nodes reload their catalog.
+    private void apply(Map<Long, ProductSnapshot> changes) {
+        swap(changes);
+        Cache products = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        if (products == null) {
+            return;
+        }
+        if (changes.size() > BULK_CHANGE_THRESHOLD) {
+            products.clear();
+        } else {
+            changes.keySet().forEach(products::evict);
+        }
+    }
+
+    private synchronized void swap(Map<Long, ProductSnapshot> changes) {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            return; // Not loaded yet: the first read will see the committed changes
+        }
+        if (changes.size() > BULK_CHANGE_THRESHOLD) {
+            // One copy of the catalog for the whole batch, announced like a reload so that the indexes rebuild once
+            CatalogSnapshot next = current.withChanges(changes);
+            snapshot = next;
+            logger.info("Product catalog is now at version {} after {} product changes", next.version(), changes.size());
+            eventPublisher.publishEvent(new ProductCatalogChangedEvent(next, null, null));
+            return;
+        }
+        for (Map.Entry<Long, ProductSnapshot> change : changes.entrySet()) {
+            long productId = change.getKey();
+            CatalogSnapshot next = change.getValue() != null ? current.withProduct(change.getValue()) : current.withoutProduct(productId);
+            if (next == current) {
+                continue; // Nothing changed
+            }
+            snapshot = next;
+            logger.debug("Product catalog is now at version {}", next.version());
+            // Published while holding the lock, so that listeners see the versions in order
+            eventPublisher.publishEvent(new ProductCatalogChangedEvent(next, current.find(productId), next.find(productId)));
+            current = next;
+        }
+    }
+
+    // A product changed on another node: reload it, or the whole catalog when the key is unknown
+    void onInvalidation(CacheInvalidationMessage message) {
+        if (clusterCacheInvalidator.getNodeId().equals(message.originNodeId())
+                || !CacheConfig.PRODUCTS_CACHE.equals(message.cacheName())
+                || snapshot == null) {
+            return;
+        }
+        if (!(message.decodeKey() instanceof Long productId)) {
+            reload();
+            return;
+        }
+        ProductSnapshot changed = primaryReads.execute(status ->
+                productRepository.findById(productId).map(ProductSnapshot::of).orElse(null));
+        swap(Collections.singletonMap(productId, changed));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false; // The change is deferred to the Spring transaction commit instead
+    }
+}
@@ -0,0 +1,13 @@
+package com.shopi.shopping.services.caching;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+
+// Published by ProductCatalog each time a new catalog version is swapped in, in version order.
+// previous and current are the product before and after the change (null when it was inserted or deleted);
+// both are null when the whole catalog was reloaded.
+public record ProductCatalogChangedEvent(CatalogSnapshot catalog, ProductSnapshot previous, ProductSnapshot current) {
+
+    public boolean isReload() {
+        return previous == null && current == null;
+    }
+}
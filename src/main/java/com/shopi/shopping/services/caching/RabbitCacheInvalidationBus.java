@@ -0,0 +1,69 @@
+package com.shopi.shopping.services.caching;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopi.shopping.configuration.RabbitConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Cache invalidation over RabbitMQ: evictions go to the fanout exchange RabbitConfig.CACHE_INVALIDATION_EXCHANGE
+// and each node consumes them from its own anonymous queue
+@Component
+@ConditionalOnProperty(name = "shopi.cache.invalidation.transport", havingValue = "rabbit", matchIfMissing = true)
+public class RabbitCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(RabbitCacheInvalidationBus.class);
+
+    private final AmqpTemplate amqpTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<Consumer<CacheInvalidationMessage>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public RabbitCacheInvalidationBus(AmqpTemplate amqpTemplate, ObjectMapper objectMapper) {
+        this.amqpTemplate = amqpTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void publish(CacheInvalidationMessage message) {
+        try {
+            Message amqpMessage = MessageBuilder.withBody(objectMapper.writeValueAsBytes(message))
+                    .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                    .build();
+            amqpTemplate.send(RabbitConfig.CACHE_INVALIDATION_EXCHANGE, "", amqpMessage);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize cache invalidation {}: {}", message, e.getMessage());
+        } catch (Exception e) {
+            // The local eviction already happened; peers fall back to their TTLs until the broker is back
+            logger.warn("Failed to publish cache invalidation for cache {}: {}", message.cacheName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationMessage> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    // Method that receives evictions from RabbitMQ and hands them to the subscribers
+    @RabbitListener(queues = "#{cacheInvalidationQueue.name}")
+    public void receive(Message amqpMessage) {
+        try {
+            CacheInvalidationMessage message = objectMapper.readValue(amqpMessage.getBody(), CacheInvalidationMessage.class);
+            subscribers.forEach(subscriber -> subscriber.accept(message));
+        } catch (IOException e) {
+            logger.error("Discarding unreadable cache invalidation message: {}", e.getMessage());
+        }
+    }
+}
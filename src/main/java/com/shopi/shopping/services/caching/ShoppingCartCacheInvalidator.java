@@ -0,0 +1,156 @@
+package com.shopi.shopping.services.caching;
+import com.shopi.shopping.configuration.CacheConfig;
+import com.shopi.shopping.models.ShoppingCart;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Write-path invalidation for the shopping cart caches.
+// Registered as a Hibernate event listener, so every insert, update, delete or product-list change of a ShoppingCart
+// is seen, whichever service, controller or repository call made it. The cached cart and the status buckets it
+// belonged to (before and after the write) are evicted once the transaction commits.
+@Component
+public class ShoppingCartCacheInvalidator implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShoppingCartCacheInvalidator.class);
+    private static final String STATUS_PROPERTY = "status";
+
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public ShoppingCartCacheInvalidator(CacheManager cacheManager, EntityManagerFactory entityManagerFactory) {
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    // Register this component with Hibernate's event system
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+        logger.info("Shopping cart cache invalidation registered with Hibernate.");
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof ShoppingCart cart) {
+            // Also drops a negative ("not found") entry cached for the new ID
+            invalidate(cart.getId(), statusesOf(cart.getStatus()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof ShoppingCart cart) {
+            Set<ShoppingCart.Status> statuses = statusesOf(cart.getStatus());
+            int statusIndex = Arrays.asList(event.getPersister().getPropertyNames()).indexOf(STATUS_PROPERTY);
+            if (event.getOldState() == null || statusIndex < 0) {
+                statuses = EnumSet.allOf(ShoppingCart.Status.class); // Previous status unknown
+            } else if (event.getOldState()[statusIndex] instanceof ShoppingCart.Status previousStatus) {
+                statuses.add(previousStatus); // The cart leaves its previous bucket
+            }
+            invalidate(cart.getId(), statuses);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof ShoppingCart cart) {
+            invalidate(cart.getId(), statusesOf(cart.getStatus()));
+        }
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        onCollectionChange(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        onCollectionChange(event);
+    }
+
+    // Products added to or removed from a cart change the cached cart and the listing it appears in
+    private void onCollectionChange(AbstractCollectionEvent event) {
+        if (event.getAffectedOwnerOrNull() instanceof ShoppingCart cart) {
+            invalidate(cart.getId(), statusesOf(cart.getStatus()));
+        }
+    }
+
+    // Evict the cart and its status buckets after commit, or right away when no transaction is active
+    private void invalidate(long cartId, Set<ShoppingCart.Status> statuses) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(cartId, statuses);
+                }
+            });
+        } else {
+            evict(cartId, statuses);
+        }
+    }
+
+    private void evict(long cartId, Set<ShoppingCart.Status> statuses) {
+        Cache carts = cacheManager.getCache(CacheConfig.SHOPPING_CARTS_CACHE);
+        if (carts != null) {
+            carts.evict(cartId);
+        }
+        Cache cartsByStatus = cacheManager.getCache(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE);
+        if (cartsByStatus != null) {
+            statuses.forEach(cartsByStatus::evict);
+        }
+        logger.debug("Evicted cached cart ID {} and status buckets {}", cartId, statuses);
+    }
+
+    private static Set<ShoppingCart.Status> statusesOf(ShoppingCart.Status status) {
+        return status == null ? EnumSet.noneOf(ShoppingCart.Status.class) : EnumSet.of(status);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false; // Eviction is deferred to the Spring transaction commit instead
+    }
+}
@@ -0,0 +1,18 @@
+package com.shopi.shopping.services.importing;
+
+import java.util.List;
+
+// Outcome of a bulk product import: how many rows were written, how many were rejected, and why
+// (the first MAX_REPORTED_ERRORS rejected rows only; 'failed' counts all of them)
+public record ProductImportReport(int imported, int failed, List<RowError> errors) {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    public ProductImportReport {
+        errors = List.copyOf(errors);
+    }
+
+    // A rejected row: its line number in the uploaded file and the reason
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,202 @@
+package com.shopi.shopping.services.importing;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopi.shopping.factories.ProductFactory;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Bulk product import from CSV (type,name,price[,description]) or NDJSON ({"type":..,"name":..,"price":..,"description":..}).
+// The upload is read line by line and never held in memory: rows are parsed into chunks, and every chunk is written
+// in its own transaction with JDBC batching. A row that cannot be parsed or built is reported and skipped; when a
+// chunk fails in the database, its rows are retried one by one so that only the bad rows are rejected.
+// The whole import runs as one catalog batch: the catalog, its indexes and the product cache on every node follow
+// the imported products once, at the end, rather than after every chunk.
+@Service
+public class ProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private final ProductFactory productFactory;
+    private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${shopi.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Autowired
+    public ProductImportService(ProductFactory productFactory, ProductRepository productRepository,
+                                ProductCatalog productCatalog, EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper) {
+        this.productFactory = productFactory;
+        this.productRepository = productRepository;
+        this.productCatalog = productCatalog;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    // Import CSV rows; a first line starting with "type" is taken as the header
+    public ProductImportReport importCsv(Reader input) throws IOException {
+        return importLines(input, (line, lineNumber) -> {
+            if (lineNumber == 1 && line.toLowerCase().startsWith("type")) {
+                return null; // Header
+            }
+            List<String> fields = CsvLine.split(line);
+            if (fields.size() < 3 || fields.size() > 4) {
+                throw new IllegalArgumentException("Expected type,name,price[,description] but found " + fields.size() + " fields");
+            }
+            return new ImportRow(fields.get(0), fields.get(1), parsePrice(fields.get(2)), fields.size() == 4 ? fields.get(3) : null);
+        });
+    }
+
+    // Import NDJSON rows, one JSON object per line
+    public ProductImportReport importNdjson(Reader input) throws IOException {
+        return importLines(input, (line, lineNumber) -> {
+            try {
+                return objectMapper.readValue(line, ImportRow.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+            }
+        });
+    }
+
+    private ProductImportReport importLines(Reader input, RowParser parser) throws IOException {
+        return productCatalog.batch(() -> readLines(input, parser));
+    }
+
+    private ProductImportReport readLines(Reader input, RowParser parser) throws IOException {
+        Progress progress = new Progress();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        List<Product> products = new ArrayList<>(chunkSize);
+        BufferedReader reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                ImportRow row = parser.parse(line, lineNumber);
+                if (row == null) {
+                    continue;
+                }
+                products.add(row.toProduct(productFactory)); // Built now, so that a bad row never reaches a chunk
+                chunk.add(row.atLine(lineNumber));
+            } catch (IllegalArgumentException e) {
+                progress.reject(lineNumber, e.getMessage());
+                continue;
+            }
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, products, progress);
+                chunk.clear();
+                products.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, products, progress);
+        }
+        logger.info("Product import finished: {} imported, {} rejected", progress.imported, progress.failed);
+        return new ProductImportReport(progress.imported, progress.failed, progress.errors);
+    }
+
+    // Write the chunk in one transaction; on a database error, write its rows one by one to find the bad ones
+    private void writeChunk(List<ImportRow> chunk, List<Product> products, Progress progress) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(products));
+            progress.imported += chunk.size();
+        } catch (RuntimeException e) {
+            logger.warn("Import chunk of {} rows failed ({}), retrying row by row", chunk.size(), e.getMessage());
+            for (ImportRow row : chunk) {
+                try {
+                    // A fresh entity: the one of the failed attempt may already hold an ID
+                    transactionTemplate.executeWithoutResult(status -> persist(List.of(row.toProduct(productFactory))));
+                    progress.imported++;
+                } catch (RuntimeException rowFailure) {
+                    progress.reject(row.line(), rootMessage(rowFailure));
+                }
+            }
+        }
+    }
+
+    // Insert the products, flushed as JDBC batches and then detached so that the session stays small
+    private void persist(List<Product> products) {
+        productRepository.saveAll(products);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static BigDecimal parsePrice(String price) {
+        try {
+            return new BigDecimal(price.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: " + price);
+        }
+    }
+
+    private static String rootMessage(Throwable failure) {
+        Throwable root = failure;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    // One parsed row; line is the line number in the upload (0 until known)
+    record ImportRow(String type, String name, BigDecimal price, String description, long line) {
+
+        ImportRow(String type, String name, BigDecimal price, String description) {
+            this(type, name, price, description, 0);
+        }
+
+        ImportRow atLine(long lineNumber) {
+            return new ImportRow(type, name, price, description, lineNumber);
+        }
+
+        Product toProduct(ProductFactory productFactory) {
+            Product product = productFactory.createProduct(type, name, price);
+            if (description != null && !description.isBlank()) {
+                product.setDescription(description);
+            }
+            return product;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        // The row on the line, or null for a line to skip; IllegalArgumentException for a bad row
+        ImportRow parse(String line, long lineNumber);
+    }
+
+    // Running totals of an import
+    private static final class Progress {
+        int imported;
+        int failed;
+        final List<ProductImportReport.RowError> errors = new ArrayList<>();
+
+        void reject(long line, String message) {
+            failed++;
+            if (errors.size() < ProductImportReport.MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportReport.RowError(line, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.shopi.shopping.services.pricing;
+
+import java.math.BigDecimal;
+
+// New price for one product, applied only if the product is still at the given version (as read from the catalog).
+// Boxed, so that a request missing the id or the version is rejected rather than read as 0
+public record PriceChange(Long id, BigDecimal price, Long version) {
+}
@@ -0,0 +1,12 @@
+package com.shopi.shopping.services.pricing;
+
+import java.util.List;
+
+// Outcome of a bulk price change: how many products were updated, and the IDs that were not because they changed
+// since the given version (or no longer exist)
+public record PriceUpdateResult(int updated, List<Long> conflicts) {
+
+    public PriceUpdateResult {
+        conflicts = List.copyOf(conflicts);
+    }
+}
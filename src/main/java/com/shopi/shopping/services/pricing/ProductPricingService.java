@@ -0,0 +1,131 @@
+package com.shopi.shopping.services.pricing;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.ProductService;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Bulk price changes executed set-based instead of one entity at a time.
+// Both operations bump the version of the rows they change (so a concurrent entity update fails instead of undoing
+// them), and have the ProductCatalog follow after commit: a price list hands it the re-read products, which it swaps in
+// (a large list as a single version and a single cache clear); a category re-pricing, which may change any number of
+// rows, has it reload once and clear the products cache instead of re-reading the category here.
+@Service
+public class ProductPricingService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductPricingService.class);
+
+    // Re-pricing bounds: at most 99% cheaper, at most 5 times the price
+    public static final BigDecimal MIN_PERCENT = new BigDecimal("-99");
+    public static final BigDecimal MAX_PERCENT = new BigDecimal("400");
+
+    // Most price changes accepted in one request
+    public static final int MAX_PRICE_CHANGES = 1_000;
+
+    private static final String UPDATE_PRICE_SQL = "UPDATE products SET price = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public ProductPricingService(ProductRepository productRepository, ProductCatalog productCatalog, JdbcTemplate jdbcTemplate,
+                                 EntityManagerFactory entityManagerFactory) {
+        this.productRepository = productRepository;
+        this.productCatalog = productCatalog;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    // Change the price of every product of the type (every product when type is null) by a percentage, e.g. -15 for
+    // 15% cheaper, with a single UPDATE statement
+    @Transactional
+    public RepriceResult repriceCategory(String type, BigDecimal percent) {
+        Class<? extends Product> productType = ProductService.productTypeOf(type);
+        if (percent == null || percent.compareTo(MIN_PERCENT) < 0 || percent.compareTo(MAX_PERCENT) > 0) {
+            throw new IllegalArgumentException("Percent must be between " + MIN_PERCENT + " and " + MAX_PERCENT);
+        }
+        BigDecimal factor = BigDecimal.ONE.add(percent.movePointLeft(2));
+        int updated = productRepository.repriceByType(productType, factor);
+        productCatalog.reloadAfterCommit();
+        logger.info("Re-priced {} products of type {} by {}%", updated, productType != null ? type.toUpperCase() : "any", percent);
+        return new RepriceResult(productType != null ? type.toUpperCase() : null, percent, updated);
+    }
+
+    // Set the price of each listed product whose version still matches, with one batch of UPDATE statements.
+    // Products that changed since (or no longer exist) are left alone and reported as conflicts
+    @Transactional
+    public PriceUpdateResult updatePrices(List<PriceChange> changes) {
+        validate(changes);
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_PRICE_SQL, changes, changes.size(), (statement, change) -> {
+            statement.setBigDecimal(1, change.price().setScale(2, RoundingMode.HALF_UP));
+            statement.setLong(2, change.id());
+            statement.setLong(3, change.version());
+        });
+
+        List<Long> updatedIds = new ArrayList<>(changes.size());
+        List<Long> conflicts = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            int count = counts[0][i];
+            // A driver may not report counts for a batch: the version check still applied
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                updatedIds.add(changes.get(i).id());
+            } else {
+                conflicts.add(changes.get(i).id());
+            }
+        }
+        evictFromSecondLevelCache(updatedIds);
+        productCatalog.recordChanges(productRepository.findAllById(updatedIds).stream().map(ProductSnapshot::of).toList());
+        logger.info("Updated the price of {} products, {} conflicts", updatedIds.size(), conflicts.size());
+        return new PriceUpdateResult(updatedIds.size(), conflicts);
+    }
+
+    // The batch bypassed Hibernate, so the second-level cache still holds the old rows: evict them now, and again once
+    // the transaction is over, in case a concurrent reader cached an old row in between
+    private void evictFromSecondLevelCache(List<Long> productIds) {
+        Cache cache = entityManagerFactory.getCache();
+        productIds.forEach(id -> cache.evict(Product.class, id));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                productIds.forEach(id -> cache.evict(Product.class, id));
+            }
+        });
+    }
+
+    private static void validate(List<PriceChange> changes) {
+        if (changes == null || changes.isEmpty() || changes.size() > MAX_PRICE_CHANGES) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_PRICE_CHANGES + " price changes are required");
+        }
+        Set<Long> ids = new HashSet<>();
+        for (PriceChange change : changes) {
+            if (change == null || change.id() == null || change.version() == null) {
+                throw new IllegalArgumentException("Every price change needs a product id and a version");
+            }
+            if (change.price() == null || change.price().signum() < 0) {
+                throw new IllegalArgumentException("Invalid price for product " + change.id());
+            }
+            if (!ids.add(change.id())) {
+                throw new IllegalArgumentException("Product " + change.id() + " is listed twice");
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.shopi.shopping.services.pricing;
+
+import java.math.BigDecimal;
+
+// Outcome of a category re-pricing: the type (null for every product), the percentage applied and the number of products
+public record RepriceResult(String type, BigDecimal percent, int updated) {
+}
@@ -0,0 +1,108 @@
+package com.shopi.shopping.services.search;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.caching.ProductCatalogChangedEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Base class for the in-memory indexes derived from the ProductCatalog.
+// The index is built from the current catalog on first use, then follows every ProductCatalogChangedEvent
+// incrementally. Queries run under a read lock, changes under the write lock, and the catalog version the index
+// reflects is tracked so that a change is never applied twice or on top of an older build.
+public abstract class CatalogIndex {
+
+    protected final ProductCatalog productCatalog;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long version = -1; // Catalog version reflected by the index, -1 until built (guarded by lock)
+    private volatile boolean built;
+
+    protected CatalogIndex(ProductCatalog productCatalog) {
+        this.productCatalog = productCatalog;
+    }
+
+    // Run a query against the index, building it first if needed
+    protected <T> T read(Supplier<T> query) {
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Change the index outside of a catalog event (only once it is built, otherwise the first query builds it)
+    protected void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (version >= 0) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Whether the first query has built the index yet
+    protected boolean isBuilt() {
+        return built;
+    }
+
+    // Catalog version reflected by the index, -1 until built
+    public long getVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        productCatalog.current(); // Outside the lock: loading the catalog publishes an event
+        lock.writeLock().lock();
+        try {
+            // Read again under the lock: the events of versions published before it were dropped (not built yet), and
+            // this read includes them. Once loaded, the catalog is read without taking any lock
+            CatalogSnapshot catalog = productCatalog.current();
+            if (version < catalog.version()) {
+                rebuild(catalog);
+                version = catalog.version();
+            }
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onCatalogChanged(ProductCatalogChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (version < 0 || event.catalog().version() <= version) {
+                return; // Not built yet (the first query builds from the current catalog), or already included
+            }
+            if (event.isReload()) {
+                rebuild(event.catalog());
+            } else {
+                apply(event.previous(), event.current());
+            }
+            version = event.catalog().version();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Replace the whole index with the given catalog (called under the write lock)
+    protected abstract void rebuild(CatalogSnapshot catalog);
+
+    // Apply one product change: previous is null for an insert, current is null for a delete (called under the write lock)
+    protected abstract void apply(ProductSnapshot previous, ProductSnapshot current);
+}
@@ -0,0 +1,52 @@
+package com.shopi.shopping.services.search;
+
+import java.math.BigDecimal;
+
+// Price ranges used as a facet of the product listing: from (inclusive) up to (exclusive), the last one is open-ended
+public enum PriceBucket {
+    UNDER_10("0-10", "0", "10"),
+    FROM_10_TO_25("10-25", "10", "25"),
+    FROM_25_TO_50("25-50", "25", "50"),
+    FROM_50_TO_100("50-100", "50", "100"),
+    FROM_100_TO_250("100-250", "100", "250"),
+    FROM_250_TO_500("250-500", "250", "500"),
+    FROM_500_TO_1000("500-1000", "500", "1000"),
+    OVER_1000("1000+", "1000", null);
+
+    private final String label;
+    private final BigDecimal from;
+    private final BigDecimal to; // null for the last bucket
+
+    PriceBucket(String label, String from, String to) {
+        this.label = label;
+        this.from = new BigDecimal(from);
+        this.to = to != null ? new BigDecimal(to) : null;
+    }
+
+    // Label used in requests and facet counts, e.g. "10-25"
+    public String getLabel() {
+        return label;
+    }
+
+    // Bucket holding the price (a null or negative price counts as the first one)
+    public static PriceBucket of(BigDecimal price) {
+        if (price != null) {
+            for (PriceBucket bucket : values()) {
+                if (bucket.to == null || price.compareTo(bucket.to) < 0) {
+                    return bucket;
+                }
+            }
+        }
+        return UNDER_10;
+    }
+
+    // Bucket with the given label
+    public static PriceBucket fromLabel(String label) {
+        for (PriceBucket bucket : values()) {
+            if (bucket.label.equals(label)) {
+                return bucket;
+            }
+        }
+        throw new IllegalArgumentException("Unknown price range: " + label);
+    }
+}
@@ -0,0 +1,410 @@
+package com.shopi.shopping.services.search;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductPopularity;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSuggestion;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Type-ahead over product names, backed by a radix tree (a trie whose single-child chains are merged into one edge).
+// Every name is indexed from the start of each of its first words, so "sho" completes "Running Shoes" too.
+// Each node keeps the IDs of the most popular products below it, best first, so a lookup only walks the prefix
+// and copies at most MAX_SUGGESTIONS entries. Popularity is the number of shopping carts holding the product,
+// read when the index is built and refreshed periodically; catalog changes update the tree incrementally.
+@Component
+public class ProductAutocompleteIndex extends CatalogIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductAutocompleteIndex.class);
+
+    // Suggestions kept per node, so the most a lookup can return
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Words of a name a key may start at
+    static final int MAX_KEYS_PER_NAME = 4;
+
+    private static final long[] NO_IDS = new long[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final ShoppingCartRepository shoppingCartRepository;
+
+    private Node root = new Node("");
+    private final Map<Long, ProductSnapshot> products = new HashMap<>();
+    private Map<Long, Long> popularity = Map.of();
+
+    @Autowired
+    public ProductAutocompleteIndex(ProductCatalog productCatalog, ShoppingCartRepository shoppingCartRepository) {
+        super(productCatalog);
+        this.shoppingCartRepository = shoppingCartRepository;
+    }
+
+    // Most popular products with a name (or a word of it) starting with the prefix, at most limit of them
+    public List<ProductSuggestion> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        return read(() -> suggestions(key, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
+    // Number of products in the index
+    public int size() {
+        return read(products::size);
+    }
+
+    // Re-read the cart counts and re-rank every node (the tree itself does not change)
+    @Scheduled(fixedDelayString = "${shopi.autocomplete.popularity-refresh-ms:300000}",
+            initialDelayString = "${shopi.autocomplete.popularity-refresh-ms:300000}")
+    public void refreshPopularity() {
+        if (!isBuilt()) {
+            return; // The first query reads the counts along with the catalog
+        }
+        Map<Long, Long> counts = loadPopularity(); // Outside the lock: queries keep running meanwhile
+        write(() -> {
+            popularity = counts;
+            rankSubtree(root);
+        });
+        logger.debug("Autocomplete popularity refreshed for {} products", counts.size());
+    }
+
+    private List<ProductSuggestion> suggestions(String prefix, int limit) {
+        Node node = find(prefix);
+        if (node == null) {
+            return List.of();
+        }
+        int count = Math.min(limit, node.top.length);
+        ProductSuggestion[] suggestions = new ProductSuggestion[count];
+        for (int i = 0; i < count; i++) {
+            long productId = node.top[i];
+            suggestions[i] = new ProductSuggestion(productId, products.get(productId).name(), popularityOf(productId));
+        }
+        return List.of(suggestions);
+    }
+
+    // Node whose subtree holds every key starting with the prefix, or null when there is none
+    private Node find(String prefix) {
+        Node node = root;
+        int depth = 0;
+        while (depth < prefix.length()) {
+            Node child = node.child(prefix.charAt(depth));
+            if (child == null) {
+                return null;
+            }
+            int matched = commonPrefixLength(child.label, prefix, depth);
+            if (depth + matched == prefix.length()) {
+                return child; // The prefix ends on this edge
+            }
+            if (matched < child.label.length()) {
+                return null;
+            }
+            node = child;
+            depth += matched;
+        }
+        return node;
+    }
+
+    @Override
+    protected void rebuild(CatalogSnapshot catalog) {
+        popularity = loadPopularity();
+        root = new Node("");
+        products.clear();
+        for (ProductSnapshot product : catalog.products()) {
+            products.put(product.id(), product);
+            for (String key : keysOf(product)) {
+                insert(key, product.id(), null);
+            }
+        }
+        rankSubtree(root); // Once, bottom-up, rather than along every insert
+    }
+
+    @Override
+    protected void apply(ProductSnapshot previous, ProductSnapshot current) {
+        if (previous != null) {
+            for (String key : keysOf(previous)) {
+                remove(key, previous.id());
+            }
+            products.remove(previous.id());
+        }
+        if (current != null) {
+            products.put(current.id(), current);
+            for (String key : keysOf(current)) {
+                List<Node> path = new ArrayList<>();
+                insert(key, current.id(), path);
+                rankPath(path);
+            }
+        }
+    }
+
+    // Add the product under the key, splitting an edge where the key leaves it; collects the visited nodes when path is not null
+    private void insert(String key, long productId, List<Node> path) {
+        Node node = root;
+        int depth = 0;
+        if (path != null) {
+            path.add(root);
+        }
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null) {
+                child = new Node(key.substring(depth));
+                node.addChild(child);
+            } else {
+                int matched = commonPrefixLength(child.label, key, depth);
+                if (matched < child.label.length()) {
+                    Node middle = new Node(child.label.substring(0, matched));
+                    node.replaceChild(middle); // Same first character, same position
+                    child.label = child.label.substring(matched);
+                    middle.children = new Node[] { child };
+                    middle.top = child.top;
+                    child = middle;
+                }
+            }
+            if (path != null) {
+                path.add(child);
+            }
+            node = child;
+            depth += child.label.length();
+        }
+        node.productIds = append(node.productIds, productId);
+    }
+
+    // Remove the product from the key, then drop empty leaves and merge nodes left with a single child
+    private void remove(String key, long productId) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null || !key.startsWith(child.label, depth)) {
+                return; // Not indexed under this key
+            }
+            path.add(child);
+            node = child;
+            depth += child.label.length();
+        }
+        node.productIds = without(node.productIds, productId);
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            if (current.productIds.length > 0) {
+                continue;
+            }
+            if (current.children.length == 0) {
+                path.get(i - 1).removeChild(current);
+            } else if (current.children.length == 1) {
+                Node only = current.children[0];
+                current.label = current.label + only.label;
+                current.children = only.children;
+                current.productIds = only.productIds;
+                current.top = only.top;
+            }
+        }
+        rankPath(path);
+    }
+
+    // Recompute the best products of the nodes along a path, deepest first
+    private void rankPath(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).top = topOf(path.get(i));
+        }
+    }
+
+    private void rankSubtree(Node node) {
+        for (Node child : node.children) {
+            rankSubtree(child);
+        }
+        node.top = topOf(node);
+    }
+
+    // Best products of a node: its own products merged with the best of each child
+    private long[] topOf(Node node) {
+        long[] best = new long[MAX_SUGGESTIONS];
+        int size = 0;
+        for (long productId : node.productIds) {
+            size = offer(best, size, productId);
+        }
+        for (Node child : node.children) {
+            for (long productId : child.top) {
+                size = offer(best, size, productId);
+            }
+        }
+        return size == best.length ? best : Arrays.copyOf(best, size);
+    }
+
+    // Insert the product into the sorted array, unless it is already there or ranks below every entry of a full array
+    private int offer(long[] best, int size, long productId) {
+        for (int i = 0; i < size; i++) {
+            if (best[i] == productId) {
+                return size; // Reached through two keys of the same name
+            }
+        }
+        int position = size;
+        while (position > 0 && ranksBefore(productId, best[position - 1])) {
+            position--;
+        }
+        if (position == best.length) {
+            return size;
+        }
+        int end = Math.min(size, best.length - 1);
+        System.arraycopy(best, position, best, position + 1, end - position);
+        best[position] = productId;
+        return Math.min(size + 1, best.length);
+    }
+
+    // Most carts first, then by name, then by ID
+    private boolean ranksBefore(long a, long b) {
+        int byPopularity = Long.compare(popularityOf(b), popularityOf(a));
+        if (byPopularity != 0) {
+            return byPopularity < 0;
+        }
+        int byName = products.get(a).name().compareToIgnoreCase(products.get(b).name());
+        return byName != 0 ? byName < 0 : a < b;
+    }
+
+    private long popularityOf(long productId) {
+        return popularity.getOrDefault(productId, 0L);
+    }
+
+    private Map<Long, Long> loadPopularity() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (ProductPopularity row : shoppingCartRepository.countCartsByProduct()) {
+            counts.put(row.productId(), row.carts());
+        }
+        return counts;
+    }
+
+    // The normalized name, and the rest of it from the start of each following word (up to MAX_KEYS_PER_NAME keys)
+    private static Set<String> keysOf(ProductSnapshot product) {
+        String name = normalize(product.name());
+        Set<String> keys = new LinkedHashSet<>();
+        int start = 0;
+        while (start >= 0 && keys.size() < MAX_KEYS_PER_NAME && !name.isEmpty()) {
+            keys.add(name.substring(start));
+            int space = name.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return keys;
+    }
+
+    // Lower case, with every run of other characters than letters and digits turned into a single space
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int length = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static long[] append(long[] ids, long id) {
+        for (long existing : ids) {
+            if (existing == id) {
+                return ids;
+            }
+        }
+        long[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = id;
+        return grown;
+    }
+
+    private static long[] without(long[] ids, long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                long[] shrunk = new long[ids.length - 1];
+                System.arraycopy(ids, 0, shrunk, 0, i);
+                System.arraycopy(ids, i + 1, shrunk, i, ids.length - i - 1);
+                return shrunk;
+            }
+        }
+        return ids;
+    }
+
+    // One edge of the tree and the node it leads to; children are sorted by the first character of their label
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        long[] productIds = NO_IDS; // Products whose key ends here
+        long[] top = NO_IDS; // Best products of the subtree, best first
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            int index = indexOf(first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void addChild(Node child) {
+            int insertion = -indexOf(child.label.charAt(0)) - 1;
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, insertion);
+            grown[insertion] = child;
+            System.arraycopy(children, insertion, grown, insertion + 1, children.length - insertion);
+            children = grown;
+        }
+
+        void replaceChild(Node child) {
+            children[indexOf(child.label.charAt(0))] = child;
+        }
+
+        void removeChild(Node child) {
+            int index = indexOf(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+            children = shrunk;
+        }
+
+        // Binary search on the first characters, as Arrays.binarySearch reports it
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char c = children[middle].label.charAt(0);
+                if (c < first) {
+                    low = middle + 1;
+                } else if (c > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
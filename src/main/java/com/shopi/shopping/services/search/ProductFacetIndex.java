@@ -0,0 +1,168 @@
+package com.shopi.shopping.services.search;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.FacetedProducts;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Faceted filter over the product catalog, with one bitmap per product type and one per price bucket.
+// Every indexed product gets a slot number, given out in ID order; a filter ORs the bitmaps of the selected values of
+// each facet and ANDs the facets together, so the matches come out in ID order without sorting. Slots of deleted
+// products are left empty and reclaimed by compaction, which keeps the bitmaps dense.
+@Component
+public class ProductFacetIndex extends CatalogIndex {
+
+    // Types listed in the facet counts even when no product has them
+    static final List<String> KNOWN_TYPES = List.of("BOOK", "CLOTHING", "ELECTRONIC");
+
+    // Compact once empty slots are more than a quarter of the live ones (and at least this many)
+    static final int MIN_EMPTY_FOR_COMPACTION = 1_000;
+
+    private final Map<String, BitSet> byType = new TreeMap<>();
+    private final Map<PriceBucket, BitSet> byPrice = new EnumMap<>(PriceBucket.class);
+    private final BitSet live = new BitSet();
+    private final Map<Long, Integer> slotByProductId = new HashMap<>();
+    private ProductSnapshot[] products = new ProductSnapshot[16];
+    private int slotCount; // Slots handed out, live or empty
+    private long lastProductId = Long.MIN_VALUE; // Highest ID given a slot
+
+    @Autowired
+    public ProductFacetIndex(ProductCatalog productCatalog) {
+        super(productCatalog);
+    }
+
+    // Products of any of the types and any of the price buckets (an empty set does not filter), first 'limit' by ID
+    public FacetedProducts filter(Set<String> types, Set<PriceBucket> prices, int limit) {
+        return read(() -> {
+            BitSet typeMatches = types.isEmpty() ? live : union(types.stream().map(byType::get).toList());
+            BitSet priceMatches = prices.isEmpty() ? live : union(prices.stream().map(byPrice::get).toList());
+            BitSet matches = intersection(typeMatches, priceMatches);
+
+            List<ProductSnapshot> items = new ArrayList<>(Math.min(limit, matches.cardinality()));
+            for (int slot = matches.nextSetBit(0); slot >= 0 && items.size() < limit; slot = matches.nextSetBit(slot + 1)) {
+                items.add(products[slot]);
+            }
+
+            // Each facet is counted against the selection of the other one
+            Map<String, Integer> typeCounts = new LinkedHashMap<>();
+            byType.forEach((type, bitmap) -> typeCounts.put(type, intersectionSize(bitmap, priceMatches)));
+            Map<String, Integer> priceCounts = new LinkedHashMap<>();
+            byPrice.forEach((bucket, bitmap) -> priceCounts.put(bucket.getLabel(), intersectionSize(bitmap, typeMatches)));
+            return new FacetedProducts(matches.cardinality(), items, typeCounts, priceCounts);
+        });
+    }
+
+    // Number of products in the index
+    public int size() {
+        return read(live::cardinality);
+    }
+
+    @Override
+    protected void rebuild(CatalogSnapshot catalog) {
+        byType.clear();
+        KNOWN_TYPES.forEach(type -> byType.put(type, new BitSet()));
+        byPrice.clear();
+        for (PriceBucket bucket : PriceBucket.values()) {
+            byPrice.put(bucket, new BitSet());
+        }
+        live.clear();
+        slotByProductId.clear();
+        products = new ProductSnapshot[Math.max(16, catalog.size())];
+        slotCount = 0;
+        lastProductId = Long.MIN_VALUE;
+        catalog.products().forEach(this::add); // The catalog is ordered by ID
+    }
+
+    @Override
+    protected void apply(ProductSnapshot previous, ProductSnapshot current) {
+        Integer slot = previous != null ? slotByProductId.get(previous.id()) : null;
+        if (slot != null) {
+            clear(slot, previous);
+        }
+        if (current != null) {
+            if (slot != null) {
+                set(slot, current); // Updated in place: the ID, and so the slot, does not change
+            } else if (current.id() > lastProductId) {
+                add(current);
+            } else {
+                add(current);
+                compact(); // Out of ID order: give out the slots again
+            }
+        } else if (slot != null) {
+            slotByProductId.remove(previous.id());
+            products[slot] = null;
+            if (slotCount - live.cardinality() >= MIN_EMPTY_FOR_COMPACTION
+                    && slotCount - live.cardinality() > live.cardinality() / 4) {
+                compact();
+            }
+        }
+    }
+
+    private void add(ProductSnapshot product) {
+        if (slotCount == products.length) {
+            products = Arrays.copyOf(products, slotCount * 2);
+        }
+        int slot = slotCount++;
+        slotByProductId.put(product.id(), slot);
+        lastProductId = Math.max(lastProductId, product.id());
+        set(slot, product);
+    }
+
+    private void set(int slot, ProductSnapshot product) {
+        products[slot] = product;
+        live.set(slot);
+        byType.computeIfAbsent(product.type(), type -> new BitSet()).set(slot);
+        byPrice.get(PriceBucket.of(product.price())).set(slot);
+    }
+
+    private void clear(int slot, ProductSnapshot product) {
+        live.clear(slot);
+        BitSet typeBitmap = byType.get(product.type());
+        if (typeBitmap != null) {
+            typeBitmap.clear(slot);
+        }
+        byPrice.get(PriceBucket.of(product.price())).clear(slot);
+    }
+
+    // Give the live products new, dense slots in ID order
+    private void compact() {
+        List<ProductSnapshot> remaining = new ArrayList<>(live.cardinality());
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            remaining.add(products[slot]);
+        }
+        rebuild(CatalogSnapshot.of(0, remaining));
+    }
+
+    // Products in any of the bitmaps (an unknown value is null and matches nothing)
+    private static BitSet union(List<BitSet> bitmaps) {
+        BitSet union = new BitSet();
+        for (BitSet bitmap : bitmaps) {
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static BitSet intersection(BitSet a, BitSet b) {
+        BitSet intersection = (BitSet) a.clone();
+        intersection.and(b);
+        return intersection;
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        return a == b ? a.cardinality() : intersection(a, b).cardinality();
+    }
+}
@@ -0,0 +1,216 @@
+package com.shopi.shopping.services.search;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Products sorted by price, overall and per product type, for price-range listings and "cheapest N" queries.
+// Prices are held as long cents in sorted primitive arrays (parallel to the product IDs, ties broken by ID), so a range
+// starts with a binary search and is read in order without comparing BigDecimals. Several types are merged through a
+// heap holding one cursor per type, which stops as soon as the limit is reached.
+@Component
+public class ProductPriceIndex extends CatalogIndex {
+
+    private final PriceList all = new PriceList();
+    private final Map<String, PriceList> byType = new HashMap<>();
+    private final Map<Long, ProductSnapshot> products = new HashMap<>();
+
+    @Autowired
+    public ProductPriceIndex(ProductCatalog productCatalog) {
+        super(productCatalog);
+    }
+
+    // Cheapest products of any of the types (an empty set means every type) priced between min and max (inclusive,
+    // null for no bound), cheapest first, at most limit of them
+    public List<ProductSnapshot> cheapest(Set<String> types, BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        long minCents = minPrice != null ? toCents(minPrice, RoundingMode.CEILING) : Long.MIN_VALUE;
+        long maxCents = maxPrice != null ? toCents(maxPrice, RoundingMode.FLOOR) : Long.MAX_VALUE;
+        if (minCents > maxCents || limit <= 0) {
+            return List.of();
+        }
+        return read(() -> {
+            if (types.isEmpty()) {
+                return scan(all, minCents, maxCents, limit);
+            }
+            List<PriceList> lists = types.stream().map(byType::get).filter(list -> list != null && list.size > 0).toList();
+            if (lists.isEmpty()) {
+                return List.<ProductSnapshot>of();
+            }
+            return lists.size() == 1 ? scan(lists.get(0), minCents, maxCents, limit) : merge(lists, minCents, maxCents, limit);
+        });
+    }
+
+    // Number of products in the index
+    public int size() {
+        return read(() -> all.size);
+    }
+
+    // Read one list from the first price in the range
+    private List<ProductSnapshot> scan(PriceList list, long minCents, long maxCents, int limit) {
+        List<ProductSnapshot> result = new ArrayList<>(Math.min(limit, list.size));
+        for (int i = list.lowerBound(minCents, Long.MIN_VALUE); i < list.size && list.cents[i] <= maxCents && result.size() < limit; i++) {
+            result.add(products.get(list.ids[i]));
+        }
+        return result;
+    }
+
+    // Read several lists in price order: the heap holds the next position of each list, cheapest on top
+    private List<ProductSnapshot> merge(List<PriceList> lists, long minCents, long maxCents, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(lists.size());
+        for (PriceList list : lists) {
+            Cursor cursor = new Cursor(list, list.lowerBound(minCents, Long.MIN_VALUE));
+            if (cursor.isWithin(maxCents)) {
+                heads.add(cursor);
+            }
+        }
+        List<ProductSnapshot> result = new ArrayList<>(limit);
+        while (!heads.isEmpty() && result.size() < limit) {
+            Cursor cheapest = heads.poll();
+            result.add(products.get(cheapest.list.ids[cheapest.position]));
+            cheapest.position++;
+            if (cheapest.isWithin(maxCents)) {
+                heads.add(cheapest);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected void rebuild(CatalogSnapshot catalog) {
+        products.clear();
+        byType.clear();
+        all.clear();
+        catalog.products().forEach(product -> products.put(product.id(), product));
+
+        // Sort once by (cents, ID), then split by type: every list is filled in order, without shifting
+        long[][] entries = new long[catalog.size()][];
+        for (int i = 0; i < entries.length; i++) {
+            ProductSnapshot product = catalog.products().get(i);
+            entries[i] = new long[] { toCents(product.price(), RoundingMode.HALF_UP), product.id() };
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        for (long[] entry : entries) {
+            all.append(entry[0], entry[1]);
+            byType.computeIfAbsent(products.get(entry[1]).type(), type -> new PriceList()).append(entry[0], entry[1]);
+        }
+    }
+
+    @Override
+    protected void apply(ProductSnapshot previous, ProductSnapshot current) {
+        if (previous != null && products.remove(previous.id()) != null) {
+            long cents = toCents(previous.price(), RoundingMode.HALF_UP);
+            all.remove(cents, previous.id());
+            PriceList typeList = byType.get(previous.type());
+            if (typeList != null) {
+                typeList.remove(cents, previous.id());
+            }
+        }
+        if (current != null) {
+            long cents = toCents(current.price(), RoundingMode.HALF_UP);
+            products.put(current.id(), current);
+            all.insert(cents, current.id());
+            byType.computeIfAbsent(current.type(), type -> new PriceList()).insert(cents, current.id());
+        }
+    }
+
+    // Price in whole cents (a missing price counts as zero)
+    static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        return price == null ? 0 : price.movePointRight(2).setScale(0, roundingMode).longValueExact();
+    }
+
+    // Prices in cents and product IDs in parallel arrays, sorted by price and then by ID
+    private static final class PriceList {
+        long[] cents = new long[16];
+        long[] ids = new long[16];
+        int size;
+
+        void clear() {
+            cents = new long[16];
+            ids = new long[16];
+            size = 0;
+        }
+
+        // Add an entry that sorts after every other one
+        void append(long price, long id) {
+            grow();
+            cents[size] = price;
+            ids[size] = id;
+            size++;
+        }
+
+        void insert(long price, long id) {
+            grow();
+            int position = lowerBound(price, id);
+            System.arraycopy(cents, position, cents, position + 1, size - position);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            cents[position] = price;
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(long price, long id) {
+            int position = lowerBound(price, id);
+            if (position < size && cents[position] == price && ids[position] == id) {
+                System.arraycopy(cents, position + 1, cents, position, size - position - 1);
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+
+        // First position whose entry is not before (price, id)
+        int lowerBound(long price, long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cents[middle] < price || (cents[middle] == price && ids[middle] < id)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void grow() {
+            if (size == cents.length) {
+                cents = Arrays.copyOf(cents, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+
+    // Read position in one list, ordered by the entry it points at
+    private static final class Cursor implements Comparable<Cursor> {
+        final PriceList list;
+        int position;
+
+        Cursor(PriceList list, int position) {
+            this.list = list;
+            this.position = position;
+        }
+
+        boolean isWithin(long maxCents) {
+            return position < list.size && list.cents[position] <= maxCents;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            long price = list.cents[position];
+            long otherPrice = other.list.cents[other.position];
+            return price != otherPrice ? Long.compare(price, otherPrice)
+                    : Long.compare(list.ids[position], other.list.ids[other.position]);
+        }
+    }
+}
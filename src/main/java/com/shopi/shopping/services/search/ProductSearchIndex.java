@@ -0,0 +1,410 @@
+package com.shopi.shopping.services.search;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSearchHit;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// In-memory inverted index over product name and description, ranked with BM25.
+// Every indexed product gets a dense document number; each term keeps its postings as parallel int arrays
+// (document numbers in ascending order and term frequencies). An update indexes the product under a new document
+// number and marks the old one deleted; deleted documents are skipped by queries and dropped when the index is compacted.
+// Postings are cut into blocks of BLOCK_SIZE documents, each knowing the highest frequency and the shortest document in it,
+// which bounds the score any of its documents can get: a query skips the blocks that cannot make it into its best hits.
+@Component
+public class ProductSearchIndex extends CatalogIndex {
+
+    // BM25 parameters (the usual defaults)
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    // The name counts twice as much as the description
+    static final int NAME_WEIGHT = 2;
+
+    // Compact once deleted documents are more than a quarter of the live ones (and at least this many)
+    static final int MIN_DELETED_FOR_COMPACTION = 1_000;
+
+    // Postings per block of score bounds
+    static final int BLOCK_SIZE = 128;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> documentByProductId = new HashMap<>();
+    private ProductSnapshot[] documents = new ProductSnapshot[16];
+    private int[] documentLengths = new int[16];
+    private final BitSet deleted = new BitSet();
+    private int documentCount; // Document numbers handed out, live or deleted
+    private int liveCount;
+    private long liveLength; // Sum of the lengths of the live documents
+
+    @Autowired
+    public ProductSearchIndex(ProductCatalog productCatalog) {
+        super(productCatalog);
+    }
+
+    // Best matches for the query, highest score first (at most limit hits)
+    public List<ProductSearchHit> search(String query, int limit) {
+        List<String> terms = TextAnalyzer.analyze(query).stream().distinct().toList();
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        return read(() -> topHits(terms, limit));
+    }
+
+    // Number of live documents in the index
+    public int size() {
+        return read(() -> liveCount);
+    }
+
+    // Document at a time: the postings of the query terms are walked together in document order, so each matching
+    // document is scored once, completely, and offered to the heap of the best ones. A query only allocates for its
+    // terms and its hits, whatever the size of the index.
+    // The walk goes window by window, a window ending with the first of the current blocks to end. Once the heap is
+    // full, the documents of a window can only get in by beating the weakest score kept (they come after the ones in
+    // the heap, so an equal score is not enough): the terms whose blocks add up to no more than that only count in the
+    // documents of the other terms, and a window where that is all of them is skipped
+    private List<ProductSearchHit> topHits(List<String> terms, int limit) {
+        double averageLength = liveCount == 0 ? 1 : (double) liveLength / liveCount;
+        Postings[] termPostings = new Postings[terms.size()];
+        double[] idfs = new double[terms.size()];
+        int[] positions = new int[terms.size()];
+        int termCount = 0;
+        long matches = 0;
+        for (String term : terms) {
+            Postings found = postings.get(term);
+            if (found == null || found.liveDocuments == 0) {
+                continue;
+            }
+            double df = found.liveDocuments;
+            termPostings[termCount] = found;
+            idfs[termCount] = Math.log(1 + (liveCount - df + 0.5) / (df + 0.5));
+            termCount++;
+            matches += found.size;
+        }
+
+        TopDocuments best = new TopDocuments((int) Math.min(limit, matches));
+        float[] bounds = new float[termCount];
+        boolean[] essential = new boolean[termCount];
+        while (true) {
+            int end = Integer.MAX_VALUE;
+            for (int t = 0; t < termCount; t++) {
+                if (positions[t] < termPostings[t].size) {
+                    end = Math.min(end, termPostings[t].lastOfBlock(positions[t]));
+                }
+            }
+            if (end == Integer.MAX_VALUE) {
+                break;
+            }
+            for (int t = 0; t < termCount; t++) {
+                Postings current = termPostings[t];
+                essential[t] = positions[t] < current.size && current.documents[positions[t]] <= end;
+                bounds[t] = essential[t] ? current.maxScore(positions[t], idfs[t], averageLength) : 0f;
+            }
+            if (best.isFull()) {
+                markNonEssential(bounds, essential, best.scores[0]);
+            }
+
+            while (true) {
+                int document = Integer.MAX_VALUE;
+                for (int t = 0; t < termCount; t++) {
+                    if (essential[t] && positions[t] < termPostings[t].size) {
+                        document = Math.min(document, termPostings[t].documents[positions[t]]);
+                    }
+                }
+                if (document > end) {
+                    break;
+                }
+                boolean live = !deleted.get(document);
+                double norm = K1 * (1 - B + B * documentLengths[document] / averageLength);
+                float score = 0f;
+                for (int t = 0; t < termCount; t++) { // In query order, as the terms add up
+                    Postings current = termPostings[t];
+                    while (positions[t] < current.size && current.documents[positions[t]] < document) {
+                        positions[t]++; // A term left out of the window, up to the document
+                    }
+                    if (positions[t] < current.size && current.documents[positions[t]] == document) {
+                        double tf = current.frequencies[positions[t]++];
+                        if (live) {
+                            score += score(idfs[t], tf, norm);
+                        }
+                    }
+                }
+                if (live) {
+                    best.offer(document, score);
+                }
+            }
+
+            for (int t = 0; t < termCount; t++) {
+                if (positions[t] < termPostings[t].size) {
+                    positions[t] = termPostings[t].skip(positions[t], end);
+                }
+            }
+        }
+
+        ProductSearchHit[] hits = new ProductSearchHit[best.size];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            float score = best.scores[0];
+            hits[i] = new ProductSearchHit(documents[best.poll()], score);
+        }
+        return List.of(hits);
+    }
+
+    // Leave out of the window the terms with the lowest bounds, as long as these add up to no more than the weakest score
+    // kept. The bounds are added in query order, as the scores are, so no document of those terms alone can score more
+    private static void markNonEssential(float[] bounds, boolean[] essential, float weakest) {
+        while (true) {
+            int lowest = -1;
+            for (int t = 0; t < bounds.length; t++) {
+                if (essential[t] && (lowest < 0 || bounds[t] < bounds[lowest])) {
+                    lowest = t;
+                }
+            }
+            if (lowest < 0) {
+                return;
+            }
+            essential[lowest] = false;
+            float sum = 0f;
+            for (int t = 0; t < bounds.length; t++) {
+                if (!essential[t]) {
+                    sum += bounds[t];
+                }
+            }
+            if (sum > weakest) {
+                essential[lowest] = true;
+                return;
+            }
+        }
+    }
+
+    // BM25 weight of a term in a document; it grows with the frequency and falls with the norm (the document length)
+    private static float score(double idf, double tf, double norm) {
+        return (float) (idf * tf * (K1 + 1) / (tf + norm));
+    }
+
+    @Override
+    protected void rebuild(CatalogSnapshot catalog) {
+        postings.clear();
+        documentByProductId.clear();
+        documents = new ProductSnapshot[Math.max(16, catalog.size())];
+        documentLengths = new int[documents.length];
+        deleted.clear();
+        documentCount = 0;
+        liveCount = 0;
+        liveLength = 0;
+        catalog.products().forEach(this::add);
+    }
+
+    @Override
+    protected void apply(ProductSnapshot previous, ProductSnapshot current) {
+        if (previous != null) {
+            remove(previous.id());
+        }
+        if (current != null) {
+            add(current);
+        }
+        if (documentCount - liveCount >= MIN_DELETED_FOR_COMPACTION && documentCount - liveCount > liveCount / 4) {
+            compact();
+        }
+    }
+
+    private void add(ProductSnapshot product) {
+        if (documentCount == documents.length) {
+            documents = Arrays.copyOf(documents, documentCount * 2);
+            documentLengths = Arrays.copyOf(documentLengths, documentCount * 2);
+        }
+        int document = documentCount++;
+        Map<String, Integer> frequencies = termFrequencies(product);
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new Postings()).add(document, frequency, length));
+        documents[document] = product;
+        documentLengths[document] = length;
+        documentByProductId.put(product.id(), document);
+        liveCount++;
+        liveLength += length;
+    }
+
+    private void remove(long productId) {
+        Integer document = documentByProductId.remove(productId);
+        if (document == null) {
+            return;
+        }
+        for (String term : termFrequencies(documents[document]).keySet()) {
+            Postings termPostings = postings.get(term);
+            if (termPostings != null && --termPostings.liveDocuments == 0) {
+                postings.remove(term);
+            }
+        }
+        deleted.set(document);
+        documents[document] = null; // Queries skip deleted documents
+        liveCount--;
+        liveLength -= documentLengths[document];
+    }
+
+    // Re-index the live documents under new, dense document numbers
+    private void compact() {
+        List<ProductSnapshot> live = new ArrayList<>(liveCount);
+        for (int document = 0; document < documentCount; document++) {
+            if (!deleted.get(document)) {
+                live.add(documents[document]);
+            }
+        }
+        rebuild(CatalogSnapshot.of(0, live));
+    }
+
+    private static Map<String, Integer> termFrequencies(ProductSnapshot product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : TextAnalyzer.analyze(product.name())) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : TextAnalyzer.analyze(product.description())) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    // Postings of one term: document numbers (ascending) and term frequencies, in parallel arrays, and per block of
+    // BLOCK_SIZE postings the highest frequency and the shortest document length in it. Removing a document leaves
+    // the block as it was, which may only overestimate its scores
+    private static final class Postings {
+        int[] documents = new int[4];
+        int[] frequencies = new int[4];
+        int[] blockMaxFrequencies = new int[1];
+        int[] blockMinLengths = new int[1];
+        int size;
+        int liveDocuments; // Document frequency, not counting deleted documents
+
+        void add(int document, int frequency, int length) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            int block = size / BLOCK_SIZE;
+            if (block == blockMaxFrequencies.length) {
+                blockMaxFrequencies = Arrays.copyOf(blockMaxFrequencies, block * 2);
+                blockMinLengths = Arrays.copyOf(blockMinLengths, block * 2);
+            }
+            if (size % BLOCK_SIZE == 0) {
+                blockMaxFrequencies[block] = frequency;
+                blockMinLengths[block] = length;
+            } else {
+                blockMaxFrequencies[block] = Math.max(blockMaxFrequencies[block], frequency);
+                blockMinLengths[block] = Math.min(blockMinLengths[block], length);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+            liveDocuments++;
+        }
+
+        // Last document of the block of the posting at position
+        int lastOfBlock(int position) {
+            return documents[Math.min((position / BLOCK_SIZE + 1) * BLOCK_SIZE, size) - 1];
+        }
+
+        // Highest score of the term in the documents of the block of the posting at position: worked out as the
+        // documents' scores are, from the highest frequency and the shortest length, so it is never below any of them
+        float maxScore(int position, double idf, double averageLength) {
+            int block = position / BLOCK_SIZE;
+            double norm = K1 * (1 - B + B * blockMinLengths[block] / averageLength);
+            return score(idf, blockMaxFrequencies[block], norm);
+        }
+
+        // Position of the first posting after end, from the one at position (end is at most the last of its block)
+        int skip(int position, int end) {
+            int blockEnd = Math.min((position / BLOCK_SIZE + 1) * BLOCK_SIZE, size);
+            if (documents[blockEnd - 1] <= end) {
+                return blockEnd;
+            }
+            while (documents[position] <= end) {
+                position++;
+            }
+            return position;
+        }
+    }
+
+    // The best documents offered so far, at most capacity of them: a min-heap over parallel primitive arrays, the
+    // weakest at the root. On equal scores the document indexed first is the better one
+    private static final class TopDocuments {
+        final int[] documents;
+        final float[] scores;
+        int size;
+
+        TopDocuments(int capacity) {
+            documents = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void offer(int document, float score) {
+            if (size < documents.length) {
+                documents[size] = document;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && weaker(documents[0], scores[0], document, score)) {
+                documents[0] = document;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        boolean isFull() {
+            return size == documents.length;
+        }
+
+        // Remove the weakest document
+        int poll() {
+            int weakest = documents[0];
+            size--;
+            documents[0] = documents[size];
+            scores[0] = scores[size];
+            siftDown(0);
+            return weakest;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!weaker(documents[i], scores[i], documents[parent], scores[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int weakest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (weaker(documents[child], scores[child], documents[weakest], scores[weakest])) {
+                        weakest = child;
+                    }
+                }
+                if (weakest == i) {
+                    return;
+                }
+                swap(i, weakest);
+                i = weakest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int document = documents[i];
+            documents[i] = documents[j];
+            documents[j] = document;
+            float score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+
+        private static boolean weaker(int document, float score, int other, float otherScore) {
+            return score != otherScore ? score < otherScore : document > other;
+        }
+    }
+}
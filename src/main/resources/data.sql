@@ -1,10 +1,12 @@
 -- Insert products into the products table
+-- IDs and versions are given explicitly, so that the script also runs against the tables created by Hibernate
+-- (file profile, see FileDatabaseConfig), which have no column defaults
 
-INSERT INTO products (price, name, description, product_type) VALUES
-(19.99, 'Java Programming Book', 'A comprehensive guide to Java programming', 'BOOK'),
-(49.99, 'Wireless Headphones', 'Noise-cancelling over-ear headphones', 'ELECTRONIC'),
-(29.99, 'Winter Jacket', 'Water-resistant winter jacket', 'CLOTHING'),
-(15.50, 'Sketchbook', 'Hardcover sketchbook with 200 pages', 'BOOK'),
-(99.00, 'Smartwatch', 'Fitness tracker and smartwatch with heart rate monitor', 'ELECTRONIC');
+INSERT INTO products (id, price, name, description, product_type, version) VALUES
+(NEXT VALUE FOR product_seq, 19.99, 'Java Programming Book', 'A comprehensive guide to Java programming', 'BOOK', 0),
+(NEXT VALUE FOR product_seq, 49.99, 'Wireless Headphones', 'Noise-cancelling over-ear headphones', 'ELECTRONIC', 0),
+(NEXT VALUE FOR product_seq, 29.99, 'Winter Jacket', 'Water-resistant winter jacket', 'CLOTHING', 0),
+(NEXT VALUE FOR product_seq, 15.50, 'Sketchbook', 'Hardcover sketchbook with 200 pages', 'BOOK', 0),
+(NEXT VALUE FOR product_seq, 99.00, 'Smartwatch', 'Fitness tracker and smartwatch with heart rate monitor', 'ELECTRONIC', 0);
 
 
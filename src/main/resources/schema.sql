@@ -1,5 +1,11 @@
+-- Customers, products and discounts take their IDs from a sequence of their own. Hibernate reserves a block of 50 IDs per call (pooled-lo
+-- optimizer, see IdGeneration) so that inserts can be batched; rows inserted by SQL take a single value of their own
+CREATE SEQUENCE IF NOT EXISTS customer_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS product_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS discount_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS customers (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT DEFAULT NEXT VALUE FOR customer_seq PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     last_name VARCHAR(255) NOT NULL,
     birth_date DATE,
@@ -9,21 +15,23 @@ CREATE TABLE IF NOT EXISTS customers (
 );
 
 CREATE TABLE IF NOT EXISTS products (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT DEFAULT NEXT VALUE FOR product_seq PRIMARY KEY,
     price DECIMAL(10, 2) NOT NULL,
     name VARCHAR(255) NOT NULL,
     description VARCHAR(255),
-    product_type VARCHAR(31) NOT NULL
+    product_type VARCHAR(31) NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL
 );
 
+-- Order and cart IDs are Snowflake IDs made by the application (timestamp, node ID, sequence; see Snowflake)
 CREATE TABLE IF NOT EXISTS orders (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     order_type VARCHAR(50),
     total_amount DECIMAL(10, 2) NULL
 );
 
 CREATE TABLE IF NOT EXISTS discounts (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT DEFAULT NEXT VALUE FOR discount_seq PRIMARY KEY,
     rate DECIMAL(5, 4) NOT NULL,
     category VARCHAR(255),
     type VARCHAR(255),
@@ -53,7 +61,7 @@ CREATE TABLE IF NOT EXISTS standard_orders (
 );
 
 CREATE TABLE IF NOT EXISTS shopping_carts (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     customer_id BIGINT,
     status VARCHAR(20) NOT NULL,
     FOREIGN KEY (customer_id) REFERENCES customers(id) ON DELETE CASCADE
@@ -68,3 +76,19 @@ CREATE TABLE IF NOT EXISTS shopping_cart_products (
     FOREIGN KEY (shopping_cart_id) REFERENCES shopping_carts(id) ON DELETE CASCADE
 );
 
+-- Secondary indexes, one per finder (the same set is declared on the entities for Hibernate's schema generation).
+-- Composite where a finder filters on a prefix and a related query on more columns; plain B-trees only, as H2 has
+-- neither partial nor INCLUDE indexes. Customer names are searched with LIKE '%...%', which no B-tree can serve
+CREATE INDEX IF NOT EXISTS idx_customers_email ON customers (email);
+CREATE INDEX IF NOT EXISTS idx_customers_last_name ON customers (last_name);
+CREATE INDEX IF NOT EXISTS idx_products_type_price ON products (product_type, price);
+CREATE INDEX IF NOT EXISTS idx_products_name ON products (name);
+CREATE INDEX IF NOT EXISTS idx_orders_total_amount ON orders (total_amount);
+CREATE INDEX IF NOT EXISTS idx_discounts_category ON discounts (category);
+CREATE INDEX IF NOT EXISTS idx_discounts_end_date ON discounts (end_date);
+CREATE INDEX IF NOT EXISTS idx_shopping_carts_customer_status ON shopping_carts (customer_id, status);
+CREATE INDEX IF NOT EXISTS idx_shopping_carts_status ON shopping_carts (status);
+-- Join tables: the primary key serves one direction, these the other
+CREATE INDEX IF NOT EXISTS idx_order_products_product ON order_products (product_id, order_id);
+CREATE INDEX IF NOT EXISTS idx_order_discounts_discount ON order_discounts (discount_id, order_id);
+CREATE INDEX IF NOT EXISTS idx_shopping_cart_products_cart ON shopping_cart_products (shopping_cart_id, product_id);
@@ -0,0 +1,19 @@
+-- Tables of a cart shard (see CartShards): the carts of the customers the ring gives the shard, and their products.
+-- Same columns and indexes as in schema.sql. customers and products are read-only links to the main database,
+-- created by CartShards, so there are no foreign keys to them
+CREATE TABLE IF NOT EXISTS shopping_carts (
+    id BIGINT PRIMARY KEY,
+    customer_id BIGINT,
+    status VARCHAR(20) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS shopping_cart_products (
+    product_id BIGINT NOT NULL,
+    shopping_cart_id BIGINT NOT NULL,
+    PRIMARY KEY (product_id, shopping_cart_id),
+    FOREIGN KEY (shopping_cart_id) REFERENCES shopping_carts(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_shopping_carts_customer_status ON shopping_carts (customer_id, status);
+CREATE INDEX IF NOT EXISTS idx_shopping_carts_status ON shopping_carts (status);
+CREATE INDEX IF NOT EXISTS idx_shopping_cart_products_cart ON shopping_cart_products (shopping_cart_id, product_id);
@@ -0,0 +1,36 @@
+// Sugerencias mientras se escribe en el buscador de productos
+const searchInput = document.getElementById('product-search');
+const suggestionList = document.getElementById('product-suggestions');
+let pendingRequest = null;
+
+searchInput.addEventListener('input', function() {
+    const prefix = this.value.trim();
+    if (pendingRequest) {
+        pendingRequest.abort(); // Only the latest prefix matters
+    }
+    if (prefix.length === 0) {
+        suggestionList.innerHTML = '';
+        return;
+    }
+    pendingRequest = new AbortController();
+    fetch(`/products/autocomplete?prefix=${encodeURIComponent(prefix)}`, { signal: pendingRequest.signal })
+        .then(response => {
+            if (!response.ok) {
+                throw new Error('Network response was not ok');
+            }
+            return response.json();
+        })
+        .then(suggestions => {
+            suggestionList.innerHTML = '';
+            suggestions.forEach(suggestion => {
+                const option = document.createElement('option');
+                option.value = suggestion.name;
+                suggestionList.appendChild(option);
+            });
+        })
+        .catch(error => {
+            if (error.name !== 'AbortError') {
+                console.error('Error al obtener sugerencias:', error);
+            }
+        });
+});
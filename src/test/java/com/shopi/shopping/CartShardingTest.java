@@ -0,0 +1,248 @@
+package com.shopi.shopping;
+import com.shopi.shopping.datasource.CartResharder;
+import com.shopi.shopping.datasource.CartShards;
+import com.shopi.shopping.models.Customer;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.repositories.CustomerRepository;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import com.shopi.shopping.services.CustomerService;
+import com.shopi.shopping.services.ShoppingCartServices;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Carts sharded over two H2 files (a third one is added by resharding), customers and products in the main in-memory
+// database. Where a cart is stored is checked with plain SQL on every shard
+@SpringBootTest
+@DirtiesContext // The shard files go with the temporary directory
+public class CartShardingTest {
+
+    private static final int CUSTOMERS = 30;
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        registry.add("shopi.sharding.shard-urls", () -> shardUrl("carts-0") + "," + shardUrl("carts-1"));
+    }
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Autowired
+    private ShoppingCartServices shoppingCartServices;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartShards cartShards;
+
+    @Autowired
+    private CartResharder cartResharder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Customer> customers = new ArrayList<>();
+    private final List<ShoppingCart> carts = new ArrayList<>();
+    private List<Product> products;
+
+    @BeforeEach
+    public void setUp() {
+        products = productRepository.saveAll(List.of(
+                new Book(new BigDecimal("10.00"), "Sharded Book", "Default description"),
+                new Book(new BigDecimal("12.00"), "Sharded Atlas", "Default description")));
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = customerRepository.save(new Customer.CustomerBuilder("Sharded", "Customer" + i)
+                    .setEmail("sharded" + i + "@example.com")
+                    .build());
+            customers.add(customer);
+            carts.add(cart(customer, ShoppingCart.Status.DRAFT));
+            carts.add(cart(customer, ShoppingCart.Status.SUBMIT));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        customers.forEach(customer -> shoppingCartRepository.findByCustomerId(customer.getId())
+                .forEach(cart -> shoppingCartRepository.deleteById(cart.getId())));
+        customerRepository.deleteAll(customers);
+        productRepository.deleteAll(products);
+    }
+
+    @Test
+    public void testCartsAreStoredOnTheShardOfTheirCustomer() {
+        Set<String> used = new HashSet<>();
+        for (ShoppingCart cart : carts) {
+            String owner = cartShards.ownerOf(cart.getCustomer().getId());
+            assertEquals(List.of(owner), shardsHolding(cart.getId()));
+            used.add(owner);
+        }
+        assertEquals(Set.copyOf(cartShards.names()), used);
+        // Nothing in the main database
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM shopping_carts", Long.class));
+    }
+
+    @Test
+    public void testCartsAreReadFromTheirShard() {
+        ShoppingCart cart = carts.get(0);
+        Customer customer = cart.getCustomer();
+
+        // Customer and products joined on the shard, through its links to the main database
+        ShoppingCart found = shoppingCartRepository.findById(cart.getId()).orElseThrow();
+        assertEquals(customer.getEmail(), found.getCustomer().getEmail());
+        assertEquals(List.of("Sharded Book", "Sharded Atlas"), found.getProducts().stream().map(Product::getName).toList());
+        assertEquals(2, shoppingCartRepository.findByCustomerId(customer.getId()).size());
+        // From within a transaction on the main database
+        assertEquals(cart.getId(), shoppingCartServices.getCartByIdWithCache(cart.getId()).orElseThrow().id());
+
+        assertTrue(shoppingCartRepository.existsById(cart.getId()));
+        shoppingCartRepository.deleteById(cart.getId());
+        assertFalse(shoppingCartRepository.existsById(cart.getId()));
+        assertTrue(shoppingCartRepository.findById(cart.getId()).isEmpty());
+        assertEquals(List.of(), shardsHolding(cart.getId()));
+    }
+
+    @Test
+    public void testListingsGatherEveryShard() {
+        Set<Long> all = ids(shoppingCartServices.getAllCarts());
+        carts.forEach(cart -> assertTrue(all.contains(cart.getId())));
+
+        Set<Long> submitted = ids(shoppingCartServices.getCartsByStatus(ShoppingCart.Status.SUBMIT));
+        for (ShoppingCart cart : carts) {
+            assertEquals(cart.getStatus() == ShoppingCart.Status.SUBMIT, submitted.contains(cart.getId()));
+        }
+        assertEquals(all.size(), shoppingCartRepository.count());
+    }
+
+    @Test
+    public void testCustomerCartsAndProductPopularityComeFromTheShards() {
+        // Every cart holds both products
+        Map<Long, Long> popularity = new HashMap<>();
+        shoppingCartRepository.countCartsByProduct().forEach(row -> popularity.put(row.productId(), row.carts()));
+        products.forEach(product -> assertEquals((long) carts.size(), popularity.get(product.getId())));
+
+        // Deleting a customer deletes their carts on their shard
+        Customer customer = customers.remove(0);
+        List<ShoppingCart> customerCarts = carts.stream()
+                .filter(cart -> cart.getCustomer().getId().equals(customer.getId()))
+                .toList();
+        customerService.deleteCustomer(customer.getId());
+        assertTrue(customerRepository.findById(customer.getId()).isEmpty());
+        customerCarts.forEach(cart -> assertEquals(List.of(), shardsHolding(cart.getId())));
+    }
+
+    @Test
+    public void testAddingAShardMovesOnlyItsRanges() throws Exception {
+        Map<Long, String> before = new HashMap<>();
+        carts.forEach(cart -> before.put(cart.getId(), cartShards.ownerOf(cart.getCustomer().getId())));
+
+        // Carts keep being written, and some of them deleted, while the ranges move
+        List<ShoppingCart> deleted = List.copyOf(carts.subList(0, CUSTOMERS));
+        AtomicBoolean resharding = new AtomicBoolean(true);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Future<List<ShoppingCart>> written = writer.submit(() -> {
+            List<ShoppingCart> writes = new ArrayList<>();
+            for (int i = 0; i < CUSTOMERS * 10 && (resharding.get() || i < CUSTOMERS); i++) {
+                writes.add(cart(customers.get(i % CUSTOMERS), ShoppingCart.Status.DRAFT));
+                if (i < deleted.size()) {
+                    shoppingCartRepository.deleteById(deleted.get(i).getId());
+                }
+            }
+            return writes;
+        });
+        String url = shardUrl("carts-" + cartShards.names().size());
+        CartResharder.ReshardReport report;
+        try {
+            report = cartResharder.addShard(url);
+        } finally {
+            resharding.set(false);
+        }
+        carts.addAll(written.get());
+        carts.removeAll(deleted);
+        writer.shutdown();
+
+        assertFalse(cartShards.isResharding());
+        assertTrue(report.carts() > 0);
+        for (ShoppingCart cart : carts) {
+            String owner = cartShards.ownerOf(cart.getCustomer().getId());
+            assertEquals(List.of(owner), shardsHolding(cart.getId()));
+            // A cart either stays where it was or goes to the new shard
+            String previous = before.get(cart.getId());
+            assertTrue(previous == null || previous.equals(owner) || owner.equals(report.shard()));
+            if (owner.equals(report.shard())) { // Moved with its products
+                assertEquals(products.size(), shoppingCartRepository.findById(cart.getId()).orElseThrow().getProducts().size());
+            }
+        }
+        deleted.forEach(cart -> assertEquals(List.of(), shardsHolding(cart.getId())));
+        for (Customer customer : customers) {
+            Set<Long> expected = new HashSet<>();
+            carts.stream().filter(cart -> cart.getCustomer().getId().equals(customer.getId()))
+                    .forEach(cart -> expected.add(cart.getId()));
+            assertEquals(expected, ids(shoppingCartRepository.findByCustomerId(customer.getId())));
+        }
+    }
+
+    private ShoppingCart cart(Customer customer, ShoppingCart.Status status) {
+        ShoppingCart cart = new ShoppingCart(customer);
+        cart.setStatus(status);
+        cart.setProducts(new ArrayList<>(products));
+        return shoppingCartRepository.save(cart);
+    }
+
+    // The shards on which the cart's row is found
+    private List<String> shardsHolding(long cartId) {
+        List<String> holding = new ArrayList<>();
+        for (String shard : cartShards.names()) {
+            Long count = new JdbcTemplate(cartShards.dataSource(shard))
+                    .queryForObject("SELECT COUNT(*) FROM shopping_carts WHERE id = ?", Long.class, cartId);
+            if (count != null && count > 0) {
+                holding.add(shard);
+            }
+        }
+        return holding;
+    }
+
+    private static Set<Long> ids(List<ShoppingCart> carts) {
+        Set<Long> ids = new HashSet<>();
+        carts.forEach(cart -> ids.add(cart.getId()));
+        return ids;
+    }
+
+    private static String shardUrl(String name) {
+        return "jdbc:h2:file:" + directory.resolve(name);
+    }
+}
@@ -0,0 +1,159 @@
+package com.shopi.shopping;
+import com.shopi.shopping.datasource.ConnectionPoolMonitor;
+import com.shopi.shopping.datasource.PoolSizeController;
+import com.shopi.shopping.monitoring.ConnectionPoolEndpoint;
+import com.shopi.shopping.repositories.CustomerRepository;
+import com.shopi.shopping.services.CustomerService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A pool of 2 connections, sized by the controller between 2 and 8. The scheduled leak check and resizing are
+// disabled; the test runs them itself
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "shopi.datasource.pool.leak-threshold-ms=200",
+        "shopi.datasource.pool.leak-check-ms=3600000",
+        "shopi.datasource.pool.leak-stack-traces=true",
+        "shopi.datasource.pool.adaptive.enabled=true",
+        "shopi.datasource.pool.adaptive.interval-ms=3600000",
+        "shopi.datasource.pool.adaptive.min-size=2",
+        "shopi.datasource.pool.adaptive.max-size=8",
+        "shopi.datasource.pool.adaptive.step=2",
+        "shopi.datasource.pool.adaptive.calm-windows=2"
+})
+public class ConnectionPoolInstrumentationTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ConnectionPoolMonitor monitor;
+
+    @Autowired
+    private PoolSizeController poolSizeController;
+
+    @Autowired
+    private ConnectionPoolEndpoint connectionPoolEndpoint;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testConnectionsAreTimedByCallSite() {
+        long repositoryCalls = count("shopi.db.connection.acquire", "CustomerRepository.findAll");
+        customerRepository.findAll();
+        assertEquals(repositoryCalls + 1, count("shopi.db.connection.acquire", "CustomerRepository.findAll"));
+        assertTrue(count("shopi.db.connection.usage", "CustomerRepository.findAll") > 0);
+
+        // A service transaction takes its connection before calling the repository
+        long serviceCalls = count("shopi.db.connection.acquire", "CustomerService.getAllCustomers");
+        customerService.getAllCustomers();
+        assertEquals(serviceCalls + 1, count("shopi.db.connection.acquire", "CustomerService.getAllCustomers"));
+
+        // Hikari's own pool metrics, and all of it on the endpoint
+        assertNotNull(meterRegistry.find("hikaricp.connections.pending").tag("pool", "shopi").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections.acquire").tag("pool", "shopi").timer());
+        ConnectionPoolEndpoint.ConnectionPoolReport report = connectionPoolEndpoint.pool();
+        assertEquals("shopi", report.pool().name());
+        assertTrue(report.callSites().get("CustomerRepository.findAll").connections() > 0);
+        assertNotNull(report.adaptiveSizing());
+    }
+
+    @Test
+    public void testHeldConnectionsAreReportedAsLeaks() throws Exception {
+        String callSite = "ConnectionPoolInstrumentationTest.testHeldConnectionsAreReportedAsLeaks";
+        Connection connection = dataSource.getConnection();
+        try {
+            Thread.sleep(300);
+            monitor.checkForLeaks();
+            ConnectionPoolMonitor.Leak leak = leakOf(callSite, false);
+            assertTrue(leak.heldMillis() >= 200);
+            assertTrue(leak.stackTrace().stream().anyMatch(frame -> frame.contains("testHeldConnectionsAreReportedAsLeaks")));
+            assertEquals(1, meterRegistry.find("shopi.db.connection.leaks").tag("call_site", callSite).counter().count());
+        } finally {
+            connection.close();
+        }
+        assertTrue(leakOf(callSite, true).heldMillis() >= 300);
+        monitor.checkForLeaks(); // Reported once only
+        assertEquals(1, meterRegistry.find("shopi.db.connection.leaks").tag("call_site", callSite).counter().count());
+    }
+
+    @Test
+    public void testPoolGrowsWhileCallersWaitAndShrinksOnceIdle() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        poolSizeController.adjust(); // Starts a new interval
+        assertEquals(2, pool.getMaximumPoolSize());
+
+        // 6 callers holding a connection 50 ms at a time share 2 connections: each waits about twice as long as it holds one
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            calls.add(callers.submit(() -> {
+                for (int j = 0; j < 5; j++) {
+                    try (Connection connection = dataSource.getConnection()) {
+                        Thread.sleep(50);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> call : calls) {
+            call.get();
+        }
+        callers.shutdown();
+
+        PoolSizeController.Decision grown = poolSizeController.adjust();
+        assertEquals(4, grown.toSize(), grown.reason());
+        assertTrue(grown.meanWaitMillis() > grown.meanUsageMillis());
+        assertEquals(4, pool.getMaximumPoolSize());
+
+        // Nothing waits any more: back to the minimum after 2 calm intervals
+        assertEquals(4, poolSizeController.adjust().toSize());
+        assertEquals(2, poolSizeController.adjust().toSize());
+        assertEquals(2, pool.getMaximumPoolSize());
+    }
+
+    @Test
+    public void testPoolDoesNotGrowWhenTheDatabaseSlowsDown() {
+        PoolSizeController controller = new PoolSizeController(dataSource, monitor, 2, 8, 2, 0.5, 1.5, 2);
+        assertEquals(6, controller.decide(4, 4, 3, 20, 10).toSize());
+        // Waiting as much, but every connection is held twice as long: the database is the bottleneck
+        PoolSizeController.Decision slower = controller.decide(6, 6, 3, 40, 20);
+        assertEquals(6, slower.toSize());
+        assertTrue(slower.reason().contains("slower"));
+        assertEquals(8, controller.decide(6, 6, 3, 30, 12).toSize());
+        assertEquals(8, controller.decide(8, 8, 5, 30, 12).toSize()); // Bounded
+    }
+
+    private long count(String timer, String callSite) {
+        Timer found = meterRegistry.find(timer).tag("call_site", callSite).timer();
+        return found != null ? found.count() : 0;
+    }
+
+    private ConnectionPoolMonitor.Leak leakOf(String callSite, boolean returned) {
+        return monitor.leaks().stream()
+                .filter(leak -> leak.callSite().equals(callSite) && leak.returned() == returned)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No leak reported for " + callSite + ": " + monitor.leaks()));
+    }
+}
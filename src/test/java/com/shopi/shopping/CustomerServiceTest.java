@@ -9,10 +9,12 @@ import java.util.List;
 import java.util.Optional;
 import com.shopi.shopping.models.Customer;
 import com.shopi.shopping.repositories.CustomerRepository;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
 import com.shopi.shopping.services.CustomerService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -23,6 +25,9 @@ public class CustomerServiceTest {
     @Mock
     private CustomerRepository customerRepository; // Mocking the CustomerRepository for testing
 
+    @Mock
+    private ShoppingCartRepository shoppingCartRepository; // Mocking the ShoppingCartRepository for testing
+
     @InjectMocks
     private CustomerService customerService; // Injecting the mock repository into the CustomerService
 
@@ -119,6 +124,10 @@ public class CustomerServiceTest {
 
         // Assert
         verify(customerRepository, times(1)).deleteById(1L); // Verifying that the deleteById method was called once
+        verify(shoppingCartRepository, times(1)).deleteByCustomerId(1L); // Along with the customer's carts
+        InOrder order = inOrder(shoppingCartRepository, customerRepository); // The carts first, then the customer
+        order.verify(shoppingCartRepository).deleteByCustomerId(1L);
+        order.verify(customerRepository).deleteById(1L);
     }
 
     @Test
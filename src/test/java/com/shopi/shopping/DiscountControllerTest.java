@@ -1,6 +1,7 @@
 package com.shopi.shopping;
 import com.shopi.shopping.controllers.DiscountController;
 import com.shopi.shopping.models.Discount;
+import com.shopi.shopping.models.snapshots.DiscountSnapshot;
 import com.shopi.shopping.services.DiscountService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -74,10 +75,10 @@ public class DiscountControllerTest {
     // Test case for getting all discounts
     @Test
     public void testGetAllDiscounts() {
-        List<Discount> discounts = Collections.singletonList(discount); // Create a list of discounts
+        List<DiscountSnapshot> discounts = Collections.singletonList(DiscountSnapshot.of(discount)); // Create a list of discounts
         when(discountService.findActiveDiscounts()).thenReturn(discounts); // Mock service call
 
-        ResponseEntity<List<Discount>> response = discountController.getAllDiscounts(); // Call the controller method
+        ResponseEntity<List<DiscountSnapshot>> response = discountController.getAllDiscounts(); // Call the controller method
 
         assertEquals(HttpStatus.OK, response.getStatusCode()); // Assert status code
         assertEquals(discounts, response.getBody()); // Assert response body
@@ -4,6 +4,7 @@ import com.shopi.shopping.models.Discount;
 import com.shopi.shopping.models.StandardOrder;
 import com.shopi.shopping.models.products.Clothing;
 import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.DiscountSnapshot;
 import com.shopi.shopping.repositories.DiscountRepository;
 import com.shopi.shopping.services.DiscountService;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,8 +12,10 @@ import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
 import com.shopi.shopping.models.Order;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -110,4 +113,17 @@ class DiscountServiceTest {
         // Verify that the final price remains 50.0
         assertEquals(BigDecimal.valueOf(50.0), finalPrice, "Price of T-Shirt should remain 50.0 when discount is invalid");
     }
+
+    @Test
+    public void testFindActiveDiscounts_ReturnsDetachedSnapshots() {
+        discount.setId(7L);
+        when(discountRepository.findByEndDateAfter(LocalDate.now())).thenReturn(List.of(discount));
+
+        List<DiscountSnapshot> active = discountService.findActiveDiscounts();
+
+        // The cached list is shared by every caller: neither it nor its discounts can be changed
+        assertEquals(List.of(DiscountSnapshot.of(discount)), active);
+        assertEquals(7L, active.get(0).id());
+        assertThrows(UnsupportedOperationException.class, () -> active.remove(0));
+    }
 }
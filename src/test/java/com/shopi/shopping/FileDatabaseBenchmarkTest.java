@@ -0,0 +1,129 @@
+package com.shopi.shopping;
+import com.shopi.shopping.configuration.MvStoreCompactor;
+import com.shopi.shopping.models.Customer;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.repositories.CustomerRepository;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The file profile against the default in-memory database: data survives a restart, the seed data is loaded only
+// once, and the same write/read workload runs in both modes. Timings are only logged (they depend on the machine and
+// its disk); the assertions are on what is stored. Each run starts its own application on a random port
+public class FileDatabaseBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDatabaseBenchmarkTest.class);
+
+    private static final int ROWS = 1_000;
+    private static final int SEED_PRODUCTS = 5; // Rows of data.sql
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testFileDatabaseSurvivesRestart() {
+        Path file = directory.resolve("shopi");
+        long cartId;
+        try (ConfigurableApplicationContext context = start(file)) {
+            assertEquals(SEED_PRODUCTS, context.getBean(ProductRepository.class).count());
+            Customer customer = context.getBean(CustomerRepository.class).save(
+                    new Customer.CustomerBuilder("Restart", "Survivor").setEmail("restart.survivor@example.com").build());
+            ShoppingCart cart = new ShoppingCart(customer);
+            cart.setProducts(new ArrayList<>(context.getBean(ProductRepository.class).findAll()));
+            cartId = context.getBean(ShoppingCartRepository.class).save(cart).getId();
+
+            // The MVStore settings of application-file.properties are in effect
+            assertTrue(settings(context, "WRITE_DELAY").contains("1000"));
+        }
+        assertTrue(Files.exists(directory.resolve("shopi.mv.db")));
+
+        try (ConfigurableApplicationContext context = start(file)) {
+            assertEquals(SEED_PRODUCTS, context.getBean(ProductRepository.class).count()); // Not seeded again
+            assertTrue(context.getBean(CustomerRepository.class).findByEmail("restart.survivor@example.com").isPresent());
+            ShoppingCart cart = context.getBean(ShoppingCartRepository.class).findAll().stream()
+                    .filter(existing -> existing.getId() == cartId).findFirst().orElseThrow();
+            assertEquals(SEED_PRODUCTS, cart.getProducts().size());
+        }
+    }
+
+    @Test
+    public void testThroughputAgainstInMemory() throws Exception {
+        double inMemory;
+        try (ConfigurableApplicationContext context = start(null)) {
+            workload(context, "warm-up"); // Each application warms up before the measured run
+            inMemory = workload(context, "in-memory");
+        }
+        double file;
+        try (ConfigurableApplicationContext context = start(directory.resolve("benchmark"))) {
+            workload(context, "warm-up");
+            file = workload(context, "file");
+
+            // The workload leaves dead chunks behind (the deleted rows), which a compaction run re-writes
+            int fillRate = context.getBean(MvStoreCompactor.class).compact();
+            assertTrue(fillRate >= 0 && fillRate <= 100, "fill rate: " + fillRate);
+        }
+        logger.info("File database throughput: {}% of in-memory", Math.round(file * 100 / inMemory));
+    }
+
+    // Start the application on the file database at the given path, or in memory when the path is null
+    private static ConfigurableApplicationContext start(Path file) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(ShoppingApp.class)
+                .properties("server.port=0", "shopi.cache.invalidation.transport=in-process");
+        if (file == null) {
+            return builder.run();
+        }
+        // An argument, as the default properties of the builder would lose to application-file.properties
+        return builder.profiles("file").run("--shopi.h2.file.path=" + file.toAbsolutePath());
+    }
+
+    // Insert ROWS customers in batches, look each one up by email, then delete them;
+    // returns the operations per second
+    private static double workload(ConfigurableApplicationContext context, String run) {
+        CustomerRepository customerRepository = context.getBean(CustomerRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        List<Customer> customers = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            customers.add(new Customer.CustomerBuilder("Benchmark", run + i)
+                    .setEmail("benchmark." + run + i + "@example.com")
+                    .build());
+        }
+
+        long start = System.nanoTime();
+        for (int from = 0; from < ROWS; from += 500) {
+            List<Customer> chunk = customers.subList(from, Math.min(ROWS, from + 500));
+            transactionTemplate.executeWithoutResult(status -> customerRepository.saveAll(chunk));
+        }
+        for (Customer customer : customers) {
+            assertTrue(customerRepository.findByEmail(customer.getEmail()).isPresent());
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                context.getBean(JdbcTemplate.class).update("DELETE FROM customers WHERE name = 'Benchmark'"));
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        double operationsPerSecond = ROWS * 2 * 1000.0 / elapsedMillis;
+        logger.info("{} database: {} inserts and {} lookups in {} ms, {} operations/s",
+                run, ROWS, ROWS, elapsedMillis, Math.round(operationsPerSecond));
+        assertEquals(0, customerRepository.findAll().stream().filter(c -> c.getName().equals("Benchmark")).count());
+        return operationsPerSecond;
+    }
+
+    private static List<String> settings(ConfigurableApplicationContext context, String name) {
+        return context.getBean(JdbcTemplate.class).queryForList(
+                "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = ?", String.class, name);
+    }
+}
@@ -0,0 +1,116 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.Customer;
+import com.shopi.shopping.models.IdGeneration;
+import com.shopi.shopping.repositories.CustomerRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Insert throughput with sequence IDs: the same rows are written once in JDBC batches and once a statement per row.
+// Timings are only logged (they depend on the machine); the assertions are on the statements sent to the database.
+// Customers are named "Benchmark ..." and deleted after each test
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class InsertBatchingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(InsertBatchingBenchmarkTest.class);
+
+    private static final int ROWS = 2_000;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        transactionTemplate.executeWithoutResult(status ->
+                entityManager.createQuery("DELETE FROM Customer c WHERE c.name = 'Benchmark'").executeUpdate());
+    }
+
+    @Test
+    public void testInsertsAreBatched() {
+        long unbatchedStatements = insert("unbatched", 1); // First, so that it also pays for the warm-up
+        long batchedStatements = insert("batched", null);
+
+        // Batched: one sequence call per block of IDs, and a handful of insert batches
+        assertTrue(batchedStatements <= ROWS / IdGeneration.BLOCK_SIZE + 10, "statements: " + batchedStatements);
+        // One statement per row without batching: the batched run saves at least 90% of them
+        assertTrue(unbatchedStatements >= ROWS);
+        assertTrue(batchedStatements * 10 < unbatchedStatements);
+    }
+
+    @Test
+    public void testIdsAreReservedInBlocks() {
+        List<Long> ids = transactionTemplate.execute(status -> customerRepository.saveAll(customers("blocks", 3)))
+                .stream().map(Customer::getId).toList();
+
+        // Pooled-lo: consecutive IDs from the block reserved by the first sequence call
+        assertEquals(ids.get(0) + 1, ids.get(1));
+        assertEquals(ids.get(0) + 2, ids.get(2));
+    }
+
+    // Insert ROWS customers in one transaction (batchSize null keeps the configured JDBC batch size);
+    // returns the number of statements prepared
+    private long insert(String run, Integer batchSize) {
+        List<Customer> customers = customers(run, ROWS);
+        statistics.clear();
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (batchSize != null) {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            }
+            customers.forEach(entityManager::persist);
+            entityManager.flush();
+            entityManager.clear();
+        });
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long statements = statistics.getPrepareStatementCount();
+        logger.info("Inserted {} customers ({}) in {} ms: {} rows/s, {} statements",
+                ROWS, run, elapsedMillis, ROWS * 1000L / elapsedMillis, statements);
+        assertEquals(ROWS, statistics.getEntityInsertCount());
+        return statements;
+    }
+
+    private static List<Customer> customers(String run, int count) {
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            customers.add(new Customer.CustomerBuilder("Benchmark", run + i)
+                    .setEmail("benchmark." + run + i + "@example.com")
+                    .build());
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,141 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.Customer;
+import com.shopi.shopping.models.Discount;
+import com.shopi.shopping.models.Order;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.StandardOrder;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Clothing;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.repositories.CustomerRepository;
+import com.shopi.shopping.repositories.DiscountRepository;
+import com.shopi.shopping.repositories.OrderRepository;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Runs against the real (in-memory) database: every cart and order listing, serialized to JSON with all its
+// associations, costs the same few SQL statements whatever the number of rows (no N+1 loads)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ListingFetchPlanTest {
+
+    // Statements allowed per listing: the listing itself, plus the subselect of the order discounts
+    private static final int MAX_STATEMENTS = 2;
+
+    private static final int CUSTOMERS = 4;
+    private static final int CARTS_PER_CUSTOMER = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DiscountRepository discountRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<Customer> customers = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private List<Product> products;
+    private List<Discount> discounts;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        products = productRepository.saveAll(List.of(
+                new Book(new BigDecimal("10.00"), "Fetch Plan Book", "Default description"),
+                new Clothing(new BigDecimal("20.00"), "Fetch Plan Shirt", "Default description"),
+                new Clothing(new BigDecimal("30.00"), "Fetch Plan Coat", "Default description")));
+        discounts = discountRepository.saveAll(List.of(
+                new Discount(new BigDecimal("0.10"), "BOOK", "Fetch Plan", LocalDate.now(), LocalDate.now().plusDays(5)),
+                new Discount(new BigDecimal("0.05"), "CLOTHING", "Fetch Plan", LocalDate.now(), LocalDate.now().plusDays(5))));
+
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = customerRepository.save(new Customer.CustomerBuilder("Fetch", "Plan" + i)
+                    .setEmail("fetch.plan" + i + "@example.com")
+                    .build());
+            customers.add(customer);
+            for (int j = 0; j < CARTS_PER_CUSTOMER; j++) {
+                ShoppingCart cart = new ShoppingCart(customer);
+                cart.setProducts(new ArrayList<>(products));
+                shoppingCartRepository.save(cart);
+            }
+            Order order = new StandardOrder(new ArrayList<>(products));
+            order.setAppliedDiscounts(new ArrayList<>(discounts));
+            orders.add(orderRepository.save(order));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        orderRepository.deleteAll(orders);
+        customers.forEach(customer -> shoppingCartRepository.deleteAll(shoppingCartRepository.findByCustomerId(customer.getId())));
+        customerRepository.deleteAll(customers);
+        discountRepository.deleteAll(discounts);
+        productRepository.deleteAll(products);
+    }
+
+    @Test
+    public void testCartListings() throws Exception {
+        assertListing("/api/shopping-carts", jsonPath("$[0].customer.name").exists(), jsonPath("$[0].products").isArray());
+        assertListing("/api/shopping-carts/status/DRAFT", jsonPath("$[0].customer.name").exists());
+        assertListing("/api/shopping-carts/customer/" + customers.get(0).getId(),
+                jsonPath("$", hasSize(CARTS_PER_CUSTOMER)), jsonPath("$[0].products", hasSize(products.size())));
+    }
+
+    @Test
+    public void testOrderListings() throws Exception {
+        assertListing("/api/orders", jsonPath("$[0].products").isArray(), jsonPath("$[0].appliedDiscounts").isArray());
+        // Filtered on one product or discount, the orders still list all of theirs
+        assertListing("/api/orders/product/" + products.get(0).getId(),
+                jsonPath("$", hasSize(CUSTOMERS)), jsonPath("$[0].products", hasSize(products.size())),
+                jsonPath("$[0].appliedDiscounts", hasSize(discounts.size())));
+        assertListing("/api/orders/discount/" + discounts.get(0).getId(),
+                jsonPath("$", hasSize(CUSTOMERS)), jsonPath("$[0].products", hasSize(products.size())),
+                jsonPath("$[0].appliedDiscounts", hasSize(discounts.size())));
+        assertListing("/api/orders/total-greater-than/1", jsonPath("$[0].appliedDiscounts").isArray());
+    }
+
+    // GET the listing and check that the whole response took at most MAX_STATEMENTS statements
+    private void assertListing(String url, ResultMatcher... matchers) throws Exception {
+        long before = statistics.getPrepareStatementCount();
+        mockMvc.perform(get(url)).andExpect(status().isOk()).andExpectAll(matchers);
+        long statements = statistics.getPrepareStatementCount() - before;
+        assertTrue(statements <= MAX_STATEMENTS, url + " took " + statements + " statements");
+    }
+}
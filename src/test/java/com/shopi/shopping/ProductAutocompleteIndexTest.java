@@ -0,0 +1,134 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductPopularity;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSuggestion;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.caching.ProductCatalogChangedEvent;
+import com.shopi.shopping.services.search.ProductAutocompleteIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProductAutocompleteIndexTest {
+
+    private ProductCatalog productCatalog;
+    private ShoppingCartRepository shoppingCartRepository;
+    private ProductAutocompleteIndex autocompleteIndex;
+    private CatalogSnapshot catalog;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = CatalogSnapshot.of(1, List.of(
+                product(1, "Java Programming"),
+                product(2, "Javascript Basics"),
+                product(3, "Jacket"),
+                product(4, "Running Shoes"),
+                product(5, "Java Cookbook")));
+        productCatalog = mock(ProductCatalog.class);
+        when(productCatalog.current()).thenAnswer(invocation -> catalog);
+        shoppingCartRepository = mock(ShoppingCartRepository.class);
+        // Product 2 is in 5 carts, product 5 in 2, product 1 in 1; the others in none
+        when(shoppingCartRepository.countCartsByProduct()).thenReturn(List.of(
+                new ProductPopularity(2, 5), new ProductPopularity(5, 2), new ProductPopularity(1, 1)));
+        autocompleteIndex = new ProductAutocompleteIndex(productCatalog, shoppingCartRepository);
+    }
+
+    @Test
+    public void testCompletesPrefixMostPopularFirst() {
+        assertEquals(List.of(2L, 5L, 1L, 3L), ids(autocompleteIndex.complete("ja", 10)));
+        assertEquals(List.of(2L, 5L, 1L), ids(autocompleteIndex.complete("JAV", 10))); // Case-insensitive
+        assertEquals(List.of(5L), ids(autocompleteIndex.complete("java--c", 10))); // Runs of other characters count as one space
+        assertEquals(List.of(2L), ids(autocompleteIndex.complete("ja", 1)));
+        assertEquals(new ProductSuggestion(2L, "Javascript Basics", 5), autocompleteIndex.complete("javas", 10).get(0));
+
+        assertTrue(autocompleteIndex.complete("jaz", 10).isEmpty());
+        assertTrue(autocompleteIndex.complete("java programming language", 10).isEmpty());
+        assertTrue(autocompleteIndex.complete("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void testCompletesLaterWordsOfTheName() {
+        assertEquals(List.of(4L), ids(autocompleteIndex.complete("sho", 10)));
+        assertEquals(List.of(5L), ids(autocompleteIndex.complete("cook", 10)));
+        assertEquals(List.of(4L), ids(autocompleteIndex.complete("running s", 10)));
+    }
+
+    @Test
+    public void testIndexFollowsCatalogChanges() {
+        assertEquals(5, autocompleteIndex.size()); // Built from the catalog on first use
+
+        // Insert: a new product starts with no carts
+        ProductSnapshot jam = product(6, "Jam Jar");
+        publish(catalog.withProduct(jam), null, jam);
+        assertEquals(List.of(2L, 5L, 1L, 3L, 6L), ids(autocompleteIndex.complete("ja", 10)));
+
+        // Rename: the old name no longer completes, the new one does
+        ProductSnapshot renamed = product(2, "Python Basics");
+        publish(catalog.withProduct(renamed), catalog.find(2), renamed);
+        assertEquals(List.of(5L, 1L), ids(autocompleteIndex.complete("jav", 10)));
+        assertEquals(List.of(2L), ids(autocompleteIndex.complete("py", 10)));
+        assertEquals(List.of(2L), ids(autocompleteIndex.complete("basics", 10)));
+
+        // Delete
+        publish(catalog.withoutProduct(3), catalog.find(3), null);
+        assertEquals(List.of(5L, 1L, 6L), ids(autocompleteIndex.complete("ja", 10)));
+        assertTrue(autocompleteIndex.complete("jack", 10).isEmpty());
+        assertEquals(5, autocompleteIndex.size());
+    }
+
+    @Test
+    public void testRefreshPopularityReranks() {
+        autocompleteIndex.refreshPopularity(); // Not built yet: nothing to refresh
+        verify(shoppingCartRepository, never()).countCartsByProduct();
+
+        assertEquals(List.of(2L, 5L, 1L), ids(autocompleteIndex.complete("jav", 10)));
+        when(shoppingCartRepository.countCartsByProduct()).thenReturn(List.of(new ProductPopularity(1, 9)));
+
+        autocompleteIndex.refreshPopularity();
+
+        assertEquals(List.of(1L, 5L, 2L), ids(autocompleteIndex.complete("jav", 10))); // Then by name
+        assertEquals(9, autocompleteIndex.complete("jav", 1).get(0).popularity());
+    }
+
+    @Test
+    public void testKeepsTheBestSuggestionsOfLargeSubtrees() {
+        List<ProductSnapshot> products = new ArrayList<>();
+        List<ProductPopularity> popularity = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            products.add(product(id, "Widget " + id));
+            popularity.add(new ProductPopularity(id, id));
+        }
+        catalog = CatalogSnapshot.of(1, products);
+        when(shoppingCartRepository.countCartsByProduct()).thenReturn(popularity);
+
+        assertEquals(List.of(200L, 199L, 198L), ids(autocompleteIndex.complete("wid", 3)));
+        assertEquals(ProductAutocompleteIndex.MAX_SUGGESTIONS, autocompleteIndex.complete("w", 50).size());
+        assertEquals(List.of(159L, 158L), ids(autocompleteIndex.complete("widget 15", 2))); // 15 and 150 to 159
+
+        // Removing the most popular product lets the next one in, everywhere up the tree
+        publish(catalog.withoutProduct(200), catalog.find(200), null);
+        assertEquals(List.of(199L, 198L, 197L), ids(autocompleteIndex.complete("w", 3)));
+    }
+
+    // Move the test catalog to the given version and tell the index, as ProductCatalog does
+    private void publish(CatalogSnapshot next, ProductSnapshot previous, ProductSnapshot current) {
+        catalog = next;
+        autocompleteIndex.onCatalogChanged(new ProductCatalogChangedEvent(next, previous, current));
+    }
+
+    private static List<Long> ids(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::id).toList();
+    }
+
+    private static ProductSnapshot product(long id, String name) {
+        return new ProductSnapshot(id, "BOOK", name, "Default description", new BigDecimal("10.00"), 0);
+    }
+}
@@ -1,7 +1,18 @@
 package com.shopi.shopping;
 import com.shopi.shopping.models.products.Book;
 import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.FacetedProducts;
+import com.shopi.shopping.models.snapshots.ProductPage;
+import com.shopi.shopping.models.snapshots.ProductSearchHit;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSuggestion;
 import com.shopi.shopping.services.ProductService;
+import com.shopi.shopping.services.importing.ProductImportReport;
+import com.shopi.shopping.services.importing.ProductImportService;
+import com.shopi.shopping.services.pricing.PriceChange;
+import com.shopi.shopping.services.pricing.PriceUpdateResult;
+import com.shopi.shopping.services.pricing.ProductPricingService;
+import com.shopi.shopping.services.pricing.RepriceResult;
 import com.shopi.shopping.factories.ProductFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,12 +22,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -30,6 +50,12 @@ public class ProductControllerTest {
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductImportService productImportService;
+
+    @MockBean
+    private ProductPricingService productPricingService;
+
     @MockBean
     private ProductFactory productFactory;
 
@@ -46,7 +72,7 @@ public class ProductControllerTest {
     @Test
     public void testGetAllProducts() throws Exception {
         // Mocking the service to return a list of products
-        Mockito.when(productService.getAllProducts()).thenReturn(Arrays.asList(book1, book2));
+        Mockito.when(productService.getCatalog()).thenReturn(Arrays.asList(ProductSnapshot.of(book1), ProductSnapshot.of(book2)));
 
         // Perform GET request
         mockMvc.perform(get("/products"))
@@ -55,10 +81,167 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$[1].name").value("Book2"));
     }
 
+    @Test
+    public void testGetProductPage() throws Exception {
+        // Mocking the service to return a page with a cursor to the next one
+        ProductPage page = new ProductPage(List.of(ProductSnapshot.of(book1)), 1L);
+        Mockito.when(productService.getProductPage(eq(0L), eq(1), eq("BOOK"), isNull(), isNull())).thenReturn(page);
+
+        // Perform GET request for the first page
+        mockMvc.perform(get("/products/page").param("after", "0").param("limit", "1").param("type", "BOOK"))
+                .andExpect(status().isOk()) // Expecting 200 OK
+                .andExpect(jsonPath("$.items[0].name").value("Book1"))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+    }
+
+    @Test
+    public void testGetProductPage_InvalidLimit() throws Exception {
+        // Mocking the service to reject the page size
+        Mockito.when(productService.getProductPage(any(), eq(0), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Limit must be between 1 and 500"));
+
+        mockMvc.perform(get("/products/page").param("limit", "0"))
+                .andExpect(status().isBadRequest()); // Expecting 400 Bad Request
+    }
+
+    @Test
+    public void testStreamProducts() throws Exception {
+        // Mocking the service to hand two products to the consumer
+        Mockito.when(productService.streamProducts(isNull(), isNull(), isNull(), any())).thenAnswer(invocation -> {
+            Consumer<ProductSnapshot> consumer = invocation.getArgument(3);
+            consumer.accept(ProductSnapshot.of(book1));
+            consumer.accept(ProductSnapshot.of(book2));
+            return 2L;
+        });
+
+        // The body is written asynchronously, one JSON object per line
+        MvcResult result = mockMvc.perform(get("/products/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"Book1\""));
+        assertTrue(lines[1].contains("\"name\":\"Book2\""));
+    }
+
+    @Test
+    public void testStreamProducts_InvalidType() throws Exception {
+        // Mocking the service to reject the type before streaming starts
+        Mockito.doThrow(new IllegalArgumentException("Unknown product type: FOOD"))
+                .when(productService).validateFilter(eq("FOOD"), any(), any());
+
+        mockMvc.perform(get("/products/stream").param("type", "FOOD"))
+                .andExpect(status().isBadRequest()); // Expecting 400 Bad Request
+    }
+
+    @Test
+    public void testSearchProducts() throws Exception {
+        // Mocking the service to return the best match
+        Mockito.when(productService.searchProducts("book", null))
+                .thenReturn(List.of(new ProductSearchHit(ProductSnapshot.of(book1), 2.5f)));
+
+        mockMvc.perform(get("/products/search").param("q", "book"))
+                .andExpect(status().isOk()) // Expecting 200 OK
+                .andExpect(jsonPath("$[0].product.name").value("Book1"))
+                .andExpect(jsonPath("$[0].score").value(2.5));
+    }
+
+    @Test
+    public void testFilterProducts() throws Exception {
+        // Mocking the service to return the matches and the facet counts
+        Mockito.when(productService.filterProducts(List.of("BOOK", "CLOTHING"), List.of("10-25"), null))
+                .thenReturn(new FacetedProducts(1, List.of(ProductSnapshot.of(book1)),
+                        Map.of("BOOK", 1, "CLOTHING", 0), Map.of("10-25", 1)));
+
+        mockMvc.perform(get("/products/facets").param("type", "BOOK", "CLOTHING").param("price", "10-25"))
+                .andExpect(status().isOk()) // Expecting 200 OK
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("Book1"))
+                .andExpect(jsonPath("$.typeCounts.CLOTHING").value(0))
+                .andExpect(jsonPath("$.priceCounts['10-25']").value(1));
+    }
+
+    @Test
+    public void testFilterProducts_InvalidPrice() throws Exception {
+        Mockito.when(productService.filterProducts(isNull(), eq(List.of("cheap")), isNull()))
+                .thenThrow(new IllegalArgumentException("Unknown price range: cheap"));
+
+        mockMvc.perform(get("/products/facets").param("price", "cheap"))
+                .andExpect(status().isBadRequest()); // Expecting 400 Bad Request
+    }
+
+    @Test
+    public void testGetProductsByPrice() throws Exception {
+        // Mocking the service to return the cheapest books under 20
+        Mockito.when(productService.getProductsByPrice(List.of("BOOK"), null, new BigDecimal("20"), 5))
+                .thenReturn(List.of(ProductSnapshot.of(book1)));
+
+        mockMvc.perform(get("/products/by-price").param("type", "BOOK").param("maxPrice", "20").param("limit", "5"))
+                .andExpect(status().isOk()) // Expecting 200 OK
+                .andExpect(jsonPath("$[0].name").value("Book1"));
+    }
+
+    @Test
+    public void testGetProductsByPrice_InvalidRange() throws Exception {
+        Mockito.when(productService.getProductsByPrice(isNull(), eq(new BigDecimal("20")), eq(new BigDecimal("10")), isNull()))
+                .thenThrow(new IllegalArgumentException("minPrice cannot be greater than maxPrice"));
+
+        mockMvc.perform(get("/products/by-price").param("minPrice", "20").param("maxPrice", "10"))
+                .andExpect(status().isBadRequest()); // Expecting 400 Bad Request
+    }
+
+    @Test
+    public void testAutocomplete() throws Exception {
+        // Mocking the service to return the suggestions for the prefix
+        Mockito.when(productService.autocomplete("bo", 3))
+                .thenReturn(List.of(new ProductSuggestion(1L, "Book1", 7)));
+
+        mockMvc.perform(get("/products/autocomplete").param("prefix", "bo").param("limit", "3"))
+                .andExpect(status().isOk()) // Expecting 200 OK
+                .andExpect(jsonPath("$[0].name").value("Book1"))
+                .andExpect(jsonPath("$[0].popularity").value(7));
+    }
+
+    @Test
+    public void testAutocomplete_InvalidLimit() throws Exception {
+        Mockito.when(productService.autocomplete("bo", 0)).thenThrow(new IllegalArgumentException("Limit must be between 1 and 10"));
+
+        mockMvc.perform(get("/products/autocomplete").param("prefix", "bo").param("limit", "0"))
+                .andExpect(status().isBadRequest()); // Expecting 400 Bad Request
+    }
+
+    @Test
+    public void testImportProducts() throws Exception {
+        // Mocking the import to report one rejected row
+        Mockito.when(productImportService.importCsv(any()))
+                .thenReturn(new ProductImportReport(1, 1, List.of(new ProductImportReport.RowError(3, "Unknown product type: FOOD"))));
+
+        mockMvc.perform(post("/products/import")
+                        .contentType("text/csv")
+                        .content("type,name,price\nBOOK,Book1,9.99\nFOOD,Bread,2.00\n"))
+                .andExpect(status().isOk()) // Expecting 200 OK
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+        Mockito.verify(productImportService, Mockito.never()).importNdjson(any());
+    }
+
+    @Test
+    public void testImportProducts_UnsupportedFormat() throws Exception {
+        mockMvc.perform(post("/products/import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isUnsupportedMediaType()); // Expecting 415
+    }
+
     @Test
     public void testGetProductById_Found() throws Exception {
         // Mocking the service to return a product by ID
-        Mockito.when(productService.getProductById(anyLong())).thenReturn(book1);
+        Mockito.when(productService.getProductByIdCached(anyLong())).thenReturn(ProductSnapshot.of(book1));
 
         // Perform GET request for a valid ID
         mockMvc.perform(get("/products/{id}", 1L))
@@ -69,7 +252,7 @@ public class ProductControllerTest {
     @Test
     public void testGetProductById_NotFound() throws Exception {
         // Mocking the service to return null for a non-existing product
-        Mockito.when(productService.getProductById(anyLong())).thenReturn(null);
+        Mockito.when(productService.getProductByIdCached(anyLong())).thenReturn(null);
 
         // Perform GET request for an invalid ID
         mockMvc.perform(get("/products/{id}", 999L))
@@ -128,6 +311,53 @@ public class ProductControllerTest {
                 .andExpect(status().isNotFound()); // Expecting 404 Not Found
     }
 
+    @Test
+    public void testUpdateProduct_Conflict() throws Exception {
+        // Mocking the service to fail the version check
+        Mockito.when(productService.getProductById(anyLong())).thenReturn(book1);
+        Mockito.doThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L)).when(productService).updateProduct(any(Product.class));
+
+        mockMvc.perform(put("/products/{id}", 1L)
+                        .param("price", "15.99")
+                        .param("name", "UpdatedBook")
+                        .param("description", "Updated description"))
+                .andExpect(status().isConflict()); // Expecting 409 Conflict
+    }
+
+    @Test
+    public void testRepriceCategory() throws Exception {
+        // Mocking the service to re-price the electronics
+        Mockito.when(productPricingService.repriceCategory("ELECTRONIC", new BigDecimal("-15")))
+                .thenReturn(new RepriceResult("ELECTRONIC", new BigDecimal("-15"), 12));
+
+        mockMvc.perform(post("/products/reprice").param("type", "ELECTRONIC").param("percent", "-15"))
+                .andExpect(status().isOk()) // Expecting 200 OK
+                .andExpect(jsonPath("$.updated").value(12));
+    }
+
+    @Test
+    public void testRepriceCategory_InvalidPercent() throws Exception {
+        Mockito.when(productPricingService.repriceCategory(isNull(), eq(new BigDecimal("-100"))))
+                .thenThrow(new IllegalArgumentException("Percent must be between -99 and 400"));
+
+        mockMvc.perform(post("/products/reprice").param("percent", "-100"))
+                .andExpect(status().isBadRequest()); // Expecting 400 Bad Request
+    }
+
+    @Test
+    public void testUpdatePrices() throws Exception {
+        // Mocking the service to report one stale version
+        List<PriceChange> changes = List.of(new PriceChange(1L, new BigDecimal("9.50"), 3L), new PriceChange(2L, new BigDecimal("20.00"), 1L));
+        Mockito.when(productPricingService.updatePrices(changes)).thenReturn(new PriceUpdateResult(1, List.of(2L)));
+
+        mockMvc.perform(put("/products/prices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1,\"price\":9.50,\"version\":3},{\"id\":2,\"price\":20.00,\"version\":1}]"))
+                .andExpect(status().isOk()) // Expecting 200 OK
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.conflicts[0]").value(2));
+    }
+
     @Test
     public void testDeleteProduct_Success() throws Exception {
         // Mocking the service to successfully delete a product
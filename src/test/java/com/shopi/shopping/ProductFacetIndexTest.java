@@ -0,0 +1,144 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.FacetedProducts;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.caching.ProductCatalogChangedEvent;
+import com.shopi.shopping.services.search.PriceBucket;
+import com.shopi.shopping.services.search.ProductFacetIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProductFacetIndexTest {
+
+    private ProductCatalog productCatalog;
+    private ProductFacetIndex facetIndex;
+    private CatalogSnapshot catalog;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = CatalogSnapshot.of(1, List.of(
+                product(1, "BOOK", "9.99"),
+                product(2, "BOOK", "15.00"),
+                product(3, "ELECTRONIC", "699.99"),
+                product(4, "ELECTRONIC", "1500.00"),
+                product(5, "CLOTHING", "10.00")));
+        productCatalog = mock(ProductCatalog.class);
+        when(productCatalog.current()).thenAnswer(invocation -> catalog);
+        facetIndex = new ProductFacetIndex(productCatalog);
+    }
+
+    @Test
+    public void testPriceBuckets() {
+        assertEquals(PriceBucket.UNDER_10, PriceBucket.of(new BigDecimal("9.99")));
+        assertEquals(PriceBucket.FROM_10_TO_25, PriceBucket.of(new BigDecimal("10.00"))); // Lower bound is inclusive
+        assertEquals(PriceBucket.OVER_1000, PriceBucket.of(new BigDecimal("1000")));
+        assertEquals(PriceBucket.FROM_25_TO_50, PriceBucket.fromLabel("25-50"));
+        assertThrows(IllegalArgumentException.class, () -> PriceBucket.fromLabel("cheap"));
+    }
+
+    @Test
+    public void testNoFilterMatchesEverythingWithCounts() {
+        FacetedProducts result = facetIndex.filter(Set.of(), Set.of(), 10);
+
+        assertEquals(5, result.total());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(result));
+        assertEquals(List.of("BOOK", "CLOTHING", "ELECTRONIC"), List.copyOf(result.typeCounts().keySet()));
+        assertEquals(2, result.typeCounts().get("BOOK"));
+        assertEquals(2, result.priceCounts().get("10-25"));
+        assertEquals(0, result.priceCounts().get("25-50")); // Every bucket is listed
+        assertEquals(PriceBucket.values().length, result.priceCounts().size());
+    }
+
+    @Test
+    public void testOrWithinAFacetAndAcrossFacets() {
+        // (BOOK or CLOTHING) and (10-25)
+        FacetedProducts result = facetIndex.filter(Set.of("BOOK", "CLOTHING"), Set.of(PriceBucket.FROM_10_TO_25), 10);
+        assertEquals(List.of(2L, 5L), ids(result));
+
+        // Type counts follow the price selection, price counts follow the type selection
+        assertEquals(1, result.typeCounts().get("BOOK"));
+        assertEquals(1, result.typeCounts().get("CLOTHING"));
+        assertEquals(0, result.typeCounts().get("ELECTRONIC"));
+        assertEquals(1, result.priceCounts().get("0-10"));
+        assertEquals(2, result.priceCounts().get("10-25"));
+        assertEquals(0, result.priceCounts().get("1000+"));
+
+        // Two price buckets, one type
+        assertEquals(List.of(3L, 4L), ids(facetIndex.filter(Set.of("ELECTRONIC"),
+                Set.of(PriceBucket.FROM_500_TO_1000, PriceBucket.OVER_1000), 10)));
+
+        // Limit keeps the total, and an unknown type matches nothing
+        FacetedProducts limited = facetIndex.filter(Set.of(), Set.of(), 2);
+        assertEquals(List.of(1L, 2L), ids(limited));
+        assertEquals(5, limited.total());
+        assertEquals(0, facetIndex.filter(Set.of("FOOD"), Set.of(), 10).total());
+    }
+
+    @Test
+    public void testIndexFollowsCatalogChanges() {
+        assertEquals(5, facetIndex.size()); // Built from the catalog on first use
+
+        // Insert
+        ProductSnapshot shirt = product(6, "CLOTHING", "20.00");
+        publish(catalog.withProduct(shirt), null, shirt);
+        assertEquals(List.of(2L, 5L, 6L), ids(facetIndex.filter(Set.of(), Set.of(PriceBucket.FROM_10_TO_25), 10)));
+
+        // Update: the book moves to another price bucket
+        ProductSnapshot repriced = product(2, "BOOK", "30.00");
+        publish(catalog.withProduct(repriced), catalog.find(2), repriced);
+        assertEquals(List.of(5L, 6L), ids(facetIndex.filter(Set.of(), Set.of(PriceBucket.FROM_10_TO_25), 10)));
+        assertEquals(List.of(2L), ids(facetIndex.filter(Set.of("BOOK"), Set.of(PriceBucket.FROM_25_TO_50), 10)));
+
+        // Delete
+        publish(catalog.withoutProduct(3), catalog.find(3), null);
+        assertEquals(List.of(4L), ids(facetIndex.filter(Set.of("ELECTRONIC"), Set.of(), 10)));
+        assertEquals(5, facetIndex.size());
+
+        // Insert below the highest ID: still returned in ID order
+        ProductSnapshot restored = product(3, "ELECTRONIC", "499.99");
+        publish(catalog.withProduct(restored), null, restored);
+        assertEquals(List.of(3L, 4L), ids(facetIndex.filter(Set.of("ELECTRONIC"), Set.of(), 10)));
+    }
+
+    @Test
+    public void testDeletesAreCompacted() {
+        List<ProductSnapshot> products = new ArrayList<>();
+        for (long id = 1; id <= 3_000; id++) {
+            products.add(product(id, id % 2 == 0 ? "BOOK" : "CLOTHING", "12.00"));
+        }
+        catalog = CatalogSnapshot.of(1, products);
+        facetIndex.size();
+
+        for (long id = 1; id <= 2_990; id++) {
+            publish(catalog.withoutProduct(id), catalog.find(id), null);
+        }
+
+        assertEquals(10, facetIndex.size());
+        FacetedProducts result = facetIndex.filter(Set.of("BOOK"), Set.of(), 10);
+        assertEquals(List.of(2992L, 2994L, 2996L, 2998L, 3000L), ids(result));
+        assertEquals(5, result.priceCounts().get("10-25"));
+    }
+
+    // Move the test catalog to the given version and tell the index, as ProductCatalog does
+    private void publish(CatalogSnapshot next, ProductSnapshot previous, ProductSnapshot current) {
+        catalog = next;
+        facetIndex.onCatalogChanged(new ProductCatalogChangedEvent(next, previous, current));
+    }
+
+    private static List<Long> ids(FacetedProducts result) {
+        return result.items().stream().map(ProductSnapshot::id).toList();
+    }
+
+    private static ProductSnapshot product(long id, String type, String price) {
+        return new ProductSnapshot(id, type, "Product " + id, "Default description", new BigDecimal(price), 0);
+    }
+}
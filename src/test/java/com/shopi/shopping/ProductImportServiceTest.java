@@ -0,0 +1,115 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.importing.ProductImportReport;
+import com.shopi.shopping.services.importing.ProductImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against the real (in-memory) database: rows are written in chunked transactions, bad rows are reported.
+// Imported products are named "Imported ..." and deleted after each test
+@SpringBootTest
+public class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(productImportService, "chunkSize", 2); // Several chunks even for a small file
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll(imported());
+    }
+
+    @Test
+    public void testImportCsv_ReportsBadRowsAndKeepsGoing() throws Exception {
+        String csv = """
+                type,name,price,description
+                BOOK,Imported Novel,12.50,"A novel, with a comma"
+                ELECTRONIC,Imported Radio,45
+                FOOD,Imported Bread,2.00
+                CLOTHING,Imported Scarf,cheap
+
+                CLOTHING,"Imported ""Wool"" Hat",19.99
+                BOOK,Imported %s,10.00
+                """.formatted("X".repeat(300)); // Too long for the name column: rejected by the database
+
+        ProductImportReport report = productImportService.importCsv(new StringReader(csv));
+
+        assertEquals(3, report.imported());
+        assertEquals(3, report.failed());
+        assertEquals(List.of(4L, 5L, 8L), report.errors().stream().map(ProductImportReport.RowError::line).toList());
+        assertTrue(report.errors().get(0).message().contains("Unknown product type"));
+        assertTrue(report.errors().get(1).message().contains("Invalid price"));
+
+        Product novel = productRepository.findByName("Imported Novel").get(0);
+        assertEquals("BOOK", novel.getType());
+        assertEquals(0, new BigDecimal("12.50").compareTo(novel.getPrice()));
+        assertEquals("A novel, with a comma", novel.getDescription());
+        assertEquals("Default description", productRepository.findByName("Imported Radio").get(0).getDescription());
+        assertEquals(1, productRepository.findByName("Imported \"Wool\" Hat").size());
+
+        // The catalog sees the committed rows
+        assertTrue(productCatalog.getProducts().stream().map(ProductSnapshot::name).anyMatch("Imported Radio"::equals));
+    }
+
+    @Test
+    public void testImportNdjson() throws Exception {
+        String ndjson = """
+                {"type":"ELECTRONIC","name":"Imported Tablet","price":299.99,"description":"10 inch"}
+                {"type":"book","name":"Imported Atlas","price":"35.00"}
+                {"type":"BOOK","name":"Imported Broken"
+                {"type":"BOOK","price":5}
+                """;
+
+        ProductImportReport report = productImportService.importNdjson(new StringReader(ndjson));
+
+        assertEquals(2, report.imported());
+        assertEquals(2, report.failed());
+        assertEquals(List.of(3L, 4L), report.errors().stream().map(ProductImportReport.RowError::line).toList());
+        assertEquals("10 inch", productRepository.findByName("Imported Tablet").get(0).getDescription());
+        assertEquals("BOOK", productRepository.findByName("Imported Atlas").get(0).getType());
+    }
+
+    @Test
+    public void testImportPublishesOneCatalogVersion() throws Exception {
+        int rows = ProductCatalog.BULK_CHANGE_THRESHOLD + 1;
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            csv.append("BOOK,Imported Book ").append(i).append(",1.00\n");
+        }
+        long before = productCatalog.current().version();
+
+        ProductImportReport report = productImportService.importCsv(new StringReader(csv.toString()));
+
+        // 51 chunks, each in its own transaction, but a single new catalog version holding all the rows
+        assertEquals(rows, report.imported());
+        assertEquals(before + 1, productCatalog.current().version());
+        assertEquals(rows, productCatalog.getProducts().stream().filter(product -> product.name().startsWith("Imported")).count());
+    }
+
+    private List<Product> imported() {
+        return productRepository.findAll().stream().filter(product -> product.getName().startsWith("Imported")).toList();
+    }
+}
@@ -0,0 +1,102 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Clothing;
+import com.shopi.shopping.models.products.Electronic;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.ProductPage;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against the real (in-memory) database to check the keyset queries.
+// Other tests share the database, so each query is scoped to the products created here (by cursor or by price band)
+@SpringBootTest
+public class ProductPaginationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private static final BigDecimal BAND_MAX = new BigDecimal("7999.99");
+
+    private long beforeFirstId;
+    private long firstId;
+    private List<Product> products;
+
+    @BeforeEach
+    public void setUp() {
+        products = productRepository.saveAll(List.of(
+                new Book(new BigDecimal("7010.00"), "Book A", "Default description"),
+                new Electronic(new BigDecimal("7500.00"), "Phone", "Default description"),
+                new Book(new BigDecimal("7025.00"), "Book B", "Default description"),
+                new Clothing(new BigDecimal("7040.00"), "Shirt", "Default description"),
+                new Book(new BigDecimal("7060.00"), "Book C", "Default description")));
+        firstId = products.get(0).getId();
+        beforeFirstId = firstId - 1;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAll(products);
+    }
+
+    @Test
+    public void testPagesCoverEveryProductOnce() {
+        List<Long> seen = new ArrayList<>();
+        Long cursor = beforeFirstId;
+        int pages = 0;
+        do {
+            ProductPage page = productService.getProductPage(cursor, 2, null, null, null);
+            page.items().forEach(product -> seen.add(product.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages); // 2 + 2 + 1
+        assertEquals(5, seen.size());
+        assertEquals(seen.stream().sorted().toList(), seen); // Ascending IDs, no duplicates
+    }
+
+    @Test
+    public void testTypeAndPriceFilters() {
+        ProductPage books = productService.getProductPage(beforeFirstId, 10, "book", null, null);
+        assertEquals(List.of("Book A", "Book B", "Book C"), books.items().stream().map(ProductSnapshot::name).toList());
+        assertNull(books.nextCursor());
+
+        ProductPage midRange = productService.getProductPage(beforeFirstId, 10, null, new BigDecimal("7020.00"), new BigDecimal("7050.00"));
+        assertEquals(List.of("Book B", "Shirt"), midRange.items().stream().map(ProductSnapshot::name).toList());
+
+        ProductPage afterFirst = productService.getProductPage(firstId, 10, "BOOK", null, new BigDecimal("7030.00"));
+        assertEquals(List.of("Book B"), afterFirst.items().stream().map(ProductSnapshot::name).toList());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductPage(null, 0, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductPage(null, ProductService.MAX_PAGE_SIZE + 1, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductPage(null, 10, "FOOD", null, null));
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductPage(null, 10, null, BigDecimal.TEN, BigDecimal.ONE));
+    }
+
+    @Test
+    public void testStreamProductsInIdOrder() {
+        List<ProductSnapshot> streamed = new ArrayList<>();
+        long count = productService.streamProducts(null, new BigDecimal("7020.00"), BAND_MAX, streamed::add);
+
+        assertEquals(4, count);
+        assertEquals(List.of("Phone", "Book B", "Shirt", "Book C"), streamed.stream().map(ProductSnapshot::name).toList());
+    }
+}
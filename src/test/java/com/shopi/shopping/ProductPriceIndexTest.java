@@ -0,0 +1,121 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.caching.ProductCatalogChangedEvent;
+import com.shopi.shopping.services.search.ProductPriceIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProductPriceIndexTest {
+
+    private ProductCatalog productCatalog;
+    private ProductPriceIndex priceIndex;
+    private CatalogSnapshot catalog;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = CatalogSnapshot.of(1, List.of(
+                product(1, "BOOK", "15.00"),
+                product(2, "BOOK", "9.99"),
+                product(3, "ELECTRONIC", "699.99"),
+                product(4, "ELECTRONIC", "15.00"),
+                product(5, "CLOTHING", "25.50"),
+                product(6, "BOOK", "40.00")));
+        productCatalog = mock(ProductCatalog.class);
+        when(productCatalog.current()).thenAnswer(invocation -> catalog);
+        priceIndex = new ProductPriceIndex(productCatalog);
+    }
+
+    @Test
+    public void testCheapestOverallAndPerType() {
+        // Equal prices are ordered by ID
+        assertEquals(List.of(2L, 1L, 4L, 5L, 6L, 3L), ids(priceIndex.cheapest(Set.of(), null, null, 10)));
+        assertEquals(List.of(2L, 1L), ids(priceIndex.cheapest(Set.of("BOOK"), null, null, 2)));
+        assertEquals(List.of(4L, 3L), ids(priceIndex.cheapest(Set.of("ELECTRONIC"), null, null, 10)));
+        assertTrue(priceIndex.cheapest(Set.of("FOOD"), null, null, 10).isEmpty());
+    }
+
+    @Test
+    public void testPriceRangeIsInclusive() {
+        assertEquals(List.of(1L, 4L, 5L), ids(priceIndex.cheapest(Set.of(), new BigDecimal("15"), new BigDecimal("25.50"), 10)));
+        assertEquals(List.of(6L, 3L), ids(priceIndex.cheapest(Set.of(), new BigDecimal("25.501"), null, 10))); // Rounded up to the next cent
+        assertEquals(List.of(2L), ids(priceIndex.cheapest(Set.of(), null, new BigDecimal("14.999"), 10))); // Rounded down
+        assertTrue(priceIndex.cheapest(Set.of(), new BigDecimal("700"), null, 10).isEmpty());
+        assertTrue(priceIndex.cheapest(Set.of(), new BigDecimal("20"), new BigDecimal("10"), 10).isEmpty());
+    }
+
+    @Test
+    public void testSeveralTypesAreMergedInPriceOrder() {
+        assertEquals(List.of(2L, 1L, 4L, 6L, 3L), ids(priceIndex.cheapest(Set.of("BOOK", "ELECTRONIC"), null, null, 10)));
+        assertEquals(List.of(1L, 4L, 5L), ids(priceIndex.cheapest(Set.of("BOOK", "ELECTRONIC", "CLOTHING"), new BigDecimal("10"), null, 3)));
+    }
+
+    @Test
+    public void testIndexFollowsCatalogChanges() {
+        assertEquals(6, priceIndex.size()); // Built from the catalog on first use
+
+        // Insert
+        ProductSnapshot cheapBook = product(7, "BOOK", "1.00");
+        publish(catalog.withProduct(cheapBook), null, cheapBook);
+        assertEquals(List.of(7L, 2L), ids(priceIndex.cheapest(Set.of("BOOK"), null, null, 2)));
+
+        // Update: repriced, and moved to another type
+        ProductSnapshot repriced = product(2, "CLOTHING", "800.00");
+        publish(catalog.withProduct(repriced), catalog.find(2), repriced);
+        assertEquals(List.of(7L, 1L, 6L), ids(priceIndex.cheapest(Set.of("BOOK"), null, null, 10)));
+        assertEquals(List.of(5L, 2L), ids(priceIndex.cheapest(Set.of("CLOTHING"), null, null, 10)));
+        assertEquals(new BigDecimal("800.00"), priceIndex.cheapest(Set.of(), new BigDecimal("800"), null, 1).get(0).price());
+
+        // Delete
+        publish(catalog.withoutProduct(7), catalog.find(7), null);
+        assertEquals(List.of(1L), ids(priceIndex.cheapest(Set.of("BOOK"), null, null, 1)));
+        assertEquals(6, priceIndex.size());
+    }
+
+    @Test
+    public void testMatchesSortingTheCatalog() {
+        Random random = new Random(42);
+        List<ProductSnapshot> products = new ArrayList<>();
+        String[] types = { "BOOK", "CLOTHING", "ELECTRONIC" };
+        for (long id = 1; id <= 2_000; id++) {
+            products.add(product(id, types[random.nextInt(types.length)], BigDecimal.valueOf(random.nextInt(100_000), 2).toPlainString()));
+        }
+        catalog = CatalogSnapshot.of(1, products);
+        BigDecimal min = new BigDecimal("100.00");
+        BigDecimal max = new BigDecimal("250.00");
+
+        List<Long> expected = products.stream()
+                .filter(p -> !p.type().equals("CLOTHING"))
+                .filter(p -> p.price().compareTo(min) >= 0 && p.price().compareTo(max) <= 0)
+                .sorted(Comparator.comparing(ProductSnapshot::price).thenComparing(ProductSnapshot::id))
+                .limit(25)
+                .map(ProductSnapshot::id)
+                .toList();
+        assertEquals(expected, ids(priceIndex.cheapest(Set.of("BOOK", "ELECTRONIC"), min, max, 25)));
+    }
+
+    // Move the test catalog to the given version and tell the index, as ProductCatalog does
+    private void publish(CatalogSnapshot next, ProductSnapshot previous, ProductSnapshot current) {
+        catalog = next;
+        priceIndex.onCatalogChanged(new ProductCatalogChangedEvent(next, previous, current));
+    }
+
+    private static List<Long> ids(List<ProductSnapshot> products) {
+        return products.stream().map(ProductSnapshot::id).toList();
+    }
+
+    private static ProductSnapshot product(long id, String type, String price) {
+        return new ProductSnapshot(id, type, "Product " + id, "Default description", new BigDecimal(price), 0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Clothing;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.ProductService;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.pricing.PriceChange;
+import com.shopi.shopping.services.pricing.PriceUpdateResult;
+import com.shopi.shopping.services.pricing.ProductPricingService;
+import com.shopi.shopping.services.pricing.RepriceResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against the real (in-memory) database: the bulk statements bypass the entities, so the versions, the catalog
+// and the products cache must still follow
+@SpringBootTest
+public class ProductPricingServiceTest {
+
+    @Autowired
+    private ProductPricingService productPricingService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    private List<Product> products;
+
+    @BeforeEach
+    public void setUp() {
+        products = productRepository.saveAll(List.of(
+                new Clothing(new BigDecimal("20.00"), "Pricing Shirt", "Default description"),
+                new Clothing(new BigDecimal("33.33"), "Pricing Coat", "Default description"),
+                new Book(new BigDecimal("10.00"), "Pricing Book", "Default description")));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteAllById(products.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    public void testRepriceCategory() {
+        long shirtId = products.get(0).getId();
+        productService.getProductByIdCached(shirtId); // Cached at the old price
+
+        RepriceResult result = productPricingService.repriceCategory("clothing", new BigDecimal("-15"));
+
+        assertEquals("CLOTHING", result.type());
+        assertTrue(result.updated() >= 2);
+        Product shirt = productRepository.findById(shirtId).orElseThrow();
+        assertEquals(0, new BigDecimal("17.00").compareTo(shirt.getPrice()));
+        assertEquals(products.get(0).getVersion() + 1, shirt.getVersion());
+        assertEquals(0, new BigDecimal("28.33").compareTo(productRepository.findById(products.get(1).getId()).orElseThrow().getPrice()));
+        assertEquals(0, new BigDecimal("10.00").compareTo(productRepository.findById(products.get(2).getId()).orElseThrow().getPrice()));
+
+        // The cache and the catalog follow the new prices
+        assertEquals(0, new BigDecimal("17.00").compareTo(productService.getProductByIdCached(shirtId).price()));
+        ProductSnapshot inCatalog = productCatalog.current().find(shirtId);
+        assertEquals(0, new BigDecimal("17.00").compareTo(inCatalog.price()));
+        assertEquals(shirt.getVersion(), inCatalog.version());
+
+        // An entity loaded before the re-pricing can no longer overwrite it
+        Product stale = products.get(0);
+        stale.setName("Stale Shirt");
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productService.updateProduct(stale));
+
+        assertThrows(IllegalArgumentException.class, () -> productPricingService.repriceCategory("FOOD", BigDecimal.TEN));
+        assertThrows(IllegalArgumentException.class, () -> productPricingService.repriceCategory("BOOK", new BigDecimal("-100")));
+    }
+
+    @Test
+    public void testUpdatePrices_ChecksVersions() {
+        Product shirt = products.get(0);
+        Product book = products.get(2);
+        long missingId = Long.MAX_VALUE;
+
+        PriceUpdateResult result = productPricingService.updatePrices(List.of(
+                new PriceChange(shirt.getId(), new BigDecimal("25.00"), shirt.getVersion()),
+                new PriceChange(book.getId(), new BigDecimal("12.00"), book.getVersion() + 7), // Stale version
+                new PriceChange(missingId, new BigDecimal("1.00"), 0L)));
+
+        assertEquals(1, result.updated());
+        assertEquals(List.of(book.getId(), missingId), result.conflicts());
+        assertEquals(0, new BigDecimal("25.00").compareTo(productRepository.findById(shirt.getId()).orElseThrow().getPrice()));
+        assertEquals(0, new BigDecimal("10.00").compareTo(productRepository.findById(book.getId()).orElseThrow().getPrice()));
+        assertEquals(0, new BigDecimal("25.00").compareTo(productCatalog.current().find(shirt.getId()).price()));
+
+        // The same version cannot be used twice
+        PriceUpdateResult again = productPricingService.updatePrices(List.of(
+                new PriceChange(shirt.getId(), new BigDecimal("26.00"), shirt.getVersion())));
+        assertEquals(List.of(shirt.getId()), again.conflicts());
+
+        assertThrows(IllegalArgumentException.class, () -> productPricingService.updatePrices(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> productPricingService.updatePrices(List.of(
+                new PriceChange(shirt.getId(), new BigDecimal("-1"), 0L))));
+        // A change without an id or a version, or no change at all, is rejected rather than failing on the null
+        assertThrows(IllegalArgumentException.class, () -> productPricingService.updatePrices(List.of(
+                new PriceChange(null, new BigDecimal("1.00"), 0L))));
+        assertThrows(IllegalArgumentException.class, () -> productPricingService.updatePrices(List.of(
+                new PriceChange(shirt.getId(), new BigDecimal("1.00"), null))));
+        assertThrows(IllegalArgumentException.class, () -> productPricingService.updatePrices(Arrays.asList(
+                new PriceChange(shirt.getId(), new BigDecimal("1.00"), 0L), null)));
+    }
+}
@@ -0,0 +1,135 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSearchHit;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.search.ProductSearchIndex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Search latency over a catalog of the target size (1M products): a term in half of the products, a term in a few of
+// them, and the two together. Left out of the default test run; mvn test -Pbenchmark runs it, and asserts the p99
+// target set by that profile. Without a target, timings (p50, p99) are only logged, as they depend on the machine.
+// The other assertions are on the hits and on the memory a query allocates, which must not grow with the index
+@Tag("benchmark")
+public class ProductSearchBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchBenchmarkTest.class);
+
+    private static final int PRODUCTS = 1_000_000;
+    private static final int VOCABULARY = 20_000;
+    private static final int QUERIES = 2_000;
+    private static final int LIMIT = 10;
+    // p99 latency target in µs, set by the benchmark profile (0: none)
+    private static final long P99_TARGET_MICROS = Long.getLong("shopi.benchmark.search-p99-micros", 0);
+
+    private static ProductSearchIndex searchIndex;
+
+    @BeforeAll
+    public static void setUp() {
+        Random random = new Random(42);
+        List<ProductSnapshot> products = new ArrayList<>(PRODUCTS);
+        for (int id = 1; id <= PRODUCTS; id++) {
+            // "book" in every other name; the other words skewed towards the start of the vocabulary, and descriptions
+            // of 4 to 12 of them
+            String name = (id % 2 == 0 ? "Book " : "Item ") + word(random) + " " + word(random);
+            StringBuilder description = new StringBuilder();
+            for (int i = 4 + random.nextInt(9); i > 0; i--) {
+                description.append(word(random)).append(' ');
+            }
+            products.add(new ProductSnapshot(id, "BOOK", name, description.toString(), new BigDecimal("10.00"), 0));
+        }
+        CatalogSnapshot catalog = CatalogSnapshot.of(1, products);
+        ProductCatalog productCatalog = mock(ProductCatalog.class);
+        when(productCatalog.current()).thenReturn(catalog);
+        searchIndex = new ProductSearchIndex(productCatalog);
+
+        long start = System.nanoTime();
+        assertEquals(PRODUCTS, searchIndex.size()); // Built on first use
+        logger.info("Search index of {} products built in {} ms", PRODUCTS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Test
+    public void testCommonTermLatency() {
+        List<ProductSearchHit> hits = measure("common term", "book");
+        assertEquals(LIMIT, hits.size());
+        hits.forEach(hit -> assertTrue(hit.product().name().startsWith("Book")));
+        assertSortedByScore(hits);
+    }
+
+    @Test
+    public void testRareTermLatency() {
+        List<ProductSearchHit> hits = measure("rare term", "w" + (VOCABULARY - 1));
+        assertFalse(hits.isEmpty());
+        assertSortedByScore(hits);
+    }
+
+    @Test
+    public void testCommonAndRareTermsLatency() {
+        List<ProductSearchHit> hits = measure("common and rare terms", "book w" + (VOCABULARY - 1));
+        assertEquals(LIMIT, hits.size());
+        assertSortedByScore(hits);
+    }
+
+    @Test
+    public void testQueryMemoryDoesNotGrowWithTheIndex() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        searchIndex.search("book", LIMIT);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100; i++) {
+            searchIndex.search("book", LIMIT);
+        }
+        long perQuery = (threads.getCurrentThreadAllocatedBytes() - before) / 100;
+        logger.info("Search of a term in {} products allocates {} bytes", PRODUCTS / 2, perQuery);
+        // Scoring into an array over the whole index would take PRODUCTS * 4 bytes
+        assertTrue(perQuery < 16 * 1024, "bytes per query: " + perQuery);
+    }
+
+    // Run the query QUERIES times after as many to warm up (the JIT shares a single CPU on small machines), log its
+    // latency percentiles, check the p99 against the target if any and return its hits
+    private static List<ProductSearchHit> measure(String label, String query) {
+        for (int i = 0; i < QUERIES; i++) {
+            searchIndex.search(query, LIMIT);
+        }
+        long[] nanos = new long[QUERIES];
+        List<ProductSearchHit> hits = List.of();
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            hits = searchIndex.search(query, LIMIT);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        long p99 = nanos[QUERIES * 99 / 100] / 1_000;
+        logger.info("Search of {} ({}) over {} products: p50 {} µs, p99 {} µs", label, query, PRODUCTS,
+                nanos[QUERIES / 2] / 1_000, p99);
+        if (P99_TARGET_MICROS > 0) {
+            assertTrue(p99 < P99_TARGET_MICROS, "p99 of " + label + ": " + p99 + " µs");
+        }
+        return hits;
+    }
+
+    private static void assertSortedByScore(List<ProductSearchHit> hits) {
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).score() >= hits.get(i).score());
+        }
+    }
+
+    // Word number n is taken with a probability falling as n grows (cube of a uniform draw)
+    private static String word(Random random) {
+        double draw = random.nextDouble();
+        return "w" + (int) (VOCABULARY * draw * draw * draw);
+    }
+}
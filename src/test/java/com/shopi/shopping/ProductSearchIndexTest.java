@@ -0,0 +1,149 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSearchHit;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.caching.ProductCatalogChangedEvent;
+import com.shopi.shopping.services.search.ProductSearchIndex;
+import com.shopi.shopping.services.search.TextAnalyzer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProductSearchIndexTest {
+
+    private ProductCatalog productCatalog;
+    private ProductSearchIndex searchIndex;
+    private CatalogSnapshot catalog;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = CatalogSnapshot.of(1, List.of(
+                product(1, "BOOK", "Java Programming", "A book about programming in Java"),
+                product(2, "BOOK", "Cooking Basics", "Recipes for beginners"),
+                product(3, "ELECTRONIC", "Smartphone", "Phone with a great camera"),
+                product(4, "CLOTHING", "Running Shoes", "Light shoes for runners")));
+        productCatalog = mock(ProductCatalog.class);
+        when(productCatalog.current()).thenAnswer(invocation -> catalog);
+        searchIndex = new ProductSearchIndex(productCatalog);
+    }
+
+    @Test
+    public void testAnalyzerLowercasesStemsAndDropsStopWords() {
+        assertEquals(List.of("book", "run", "phone", "dress"), TextAnalyzer.analyze("The BOOKS, running; phones & dresses!"));
+        assertEquals(List.of(), TextAnalyzer.analyze(null));
+    }
+
+    @Test
+    public void testSearchRanksNameMatchesFirst() {
+        List<ProductSearchHit> hits = searchIndex.search("programming", 10);
+
+        assertEquals(1, hits.size());
+        assertEquals(1, hits.get(0).product().id());
+        assertTrue(hits.get(0).score() > 0);
+    }
+
+    @Test
+    public void testSearchMatchesStemsAndRanksByScore() {
+        // "shoe" matches the name and the description of product 4, "phone" only product 3
+        List<ProductSearchHit> hits = searchIndex.search("Shoe phones", 10);
+
+        assertEquals(List.of(4L, 3L), hits.stream().map(hit -> hit.product().id()).toList());
+        assertTrue(hits.get(0).score() >= hits.get(1).score());
+        assertEquals(1, searchIndex.search("Shoe phones", 1).size());
+        assertTrue(searchIndex.search("unknown words", 10).isEmpty());
+        assertTrue(searchIndex.search("   ", 10).isEmpty());
+    }
+
+    @Test
+    public void testIndexFollowsCatalogChanges() {
+        assertEquals(4, searchIndex.size()); // Built from the catalog on first use
+
+        // Insert
+        ProductSnapshot tablet = product(5, "ELECTRONIC", "Tablet", "Front camera and rear camera");
+        publish(catalog.withProduct(tablet), null, tablet);
+        assertEquals(List.of(5L, 3L), ids(searchIndex.search("camera", 10)));
+
+        // Update: the old text no longer matches, the new one does
+        ProductSnapshot renamed = product(3, "ELECTRONIC", "Feature Phone", "Basic keypad phone");
+        publish(catalog.withProduct(renamed), catalog.find(3), renamed);
+        assertEquals(List.of(5L), ids(searchIndex.search("camera", 10)));
+        assertEquals(List.of(3L), ids(searchIndex.search("keypad", 10)));
+
+        // Delete
+        publish(catalog.withoutProduct(5), catalog.find(5), null);
+        assertTrue(searchIndex.search("camera", 10).isEmpty());
+        assertEquals(4, searchIndex.size());
+
+        // An event for a version the index already reflects is ignored
+        searchIndex.onCatalogChanged(new ProductCatalogChangedEvent(catalog, null, tablet));
+        assertTrue(searchIndex.search("tablet", 10).isEmpty());
+    }
+
+    @Test
+    public void testChangeBeforeTheFirstBuildIsNotLost() {
+        // The catalog moves on between the index's first read of it and the build, and its event arrives before the
+        // index is built: the build must include it
+        ProductSnapshot tablet = product(5, "ELECTRONIC", "Tablet", "Front camera");
+        CatalogSnapshot next = catalog.withProduct(tablet);
+        when(productCatalog.current()).thenReturn(catalog, next);
+        searchIndex.onCatalogChanged(new ProductCatalogChangedEvent(next, null, tablet));
+
+        assertEquals(List.of(5L), ids(searchIndex.search("tablet", 10)));
+        assertEquals(next.version(), searchIndex.getVersion());
+    }
+
+    @Test
+    public void testRepeatedUpdatesAreCompacted() {
+        searchIndex.size();
+        for (int i = 0; i < 3_000; i++) {
+            ProductSnapshot updated = product(2, "BOOK", "Cooking Basics " + i, "Recipes for beginners");
+            publish(catalog.withProduct(updated), catalog.find(2), updated);
+        }
+
+        assertEquals(4, searchIndex.size());
+        assertEquals(List.of(2L), ids(searchIndex.search("recipes", 10)));
+        assertEquals("Cooking Basics 2999", searchIndex.search("cooking", 10).get(0).product().name());
+    }
+
+    @Test
+    public void testBestHitsAreFoundInAnyBlock() {
+        // 1000 lamps: the shortest descriptions (the best scores) are far down the postings, after several blocks
+        List<ProductSnapshot> lamps = new ArrayList<>();
+        for (int id = 1; id <= 1_000; id++) {
+            int words = id > 500 && id % 97 == 0 ? 1 : 2 + id % 5;
+            lamps.add(product(id, "HOME", "Lamp", "bulb ".repeat(words)));
+        }
+        catalog = CatalogSnapshot.of(1, lamps);
+        searchIndex = new ProductSearchIndex(productCatalog);
+
+        assertEquals(List.of(582L, 679L, 776L, 873L, 970L), ids(searchIndex.search("lamp", 5)));
+        // Then the next best, on equal scores the first indexed
+        assertEquals(List.of(582L, 679L, 776L, 873L, 970L, 5L, 10L), ids(searchIndex.search("lamp", 7)));
+        // With the description term as well, 3 bulbs in 5 words score best
+        assertEquals(List.of(1L, 6L, 11L), ids(searchIndex.search("bulb lamp", 3)));
+
+        publish(catalog.withoutProduct(679), catalog.find(679), null);
+        assertEquals(List.of(582L, 776L, 873L, 970L, 5L), ids(searchIndex.search("lamp", 5)));
+    }
+
+    // Move the test catalog to the given version and tell the index, as ProductCatalog does
+    private void publish(CatalogSnapshot next, ProductSnapshot previous, ProductSnapshot current) {
+        catalog = next;
+        searchIndex.onCatalogChanged(new ProductCatalogChangedEvent(next, previous, current));
+    }
+
+    private static List<Long> ids(List<ProductSearchHit> hits) {
+        return hits.stream().map(hit -> hit.product().id()).toList();
+    }
+
+    private static ProductSnapshot product(long id, String type, String name, String description) {
+        return new ProductSnapshot(id, type, name, description, new BigDecimal("10.00"), 0);
+    }
+}
@@ -2,8 +2,18 @@ package com.shopi.shopping;
 import com.shopi.shopping.factories.ProductFactory;
 import com.shopi.shopping.models.products.Electronic;
 import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.FacetedProducts;
+import com.shopi.shopping.models.snapshots.ProductSearchHit;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSuggestion;
 import com.shopi.shopping.repositories.ProductRepository;
 import com.shopi.shopping.services.ProductService;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import com.shopi.shopping.services.search.PriceBucket;
+import com.shopi.shopping.services.search.ProductAutocompleteIndex;
+import com.shopi.shopping.services.search.ProductFacetIndex;
+import com.shopi.shopping.services.search.ProductPriceIndex;
+import com.shopi.shopping.services.search.ProductSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,7 +23,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.assertNotNull;
@@ -27,6 +39,21 @@ public class ProductServiceTest {
     @Mock
     private ProductFactory productFactory;
 
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductAutocompleteIndex productAutocompleteIndex;
+
+    @Mock
+    private ProductFacetIndex productFacetIndex;
+
+    @Mock
+    private ProductPriceIndex productPriceIndex;
+
     @InjectMocks
     private ProductService productService;
 
@@ -135,6 +162,95 @@ public class ProductServiceTest {
         verify(productRepository, times(1)).findAll();
     }
 
+    @Test
+    public void testGetCatalog() {
+        // Arrange
+        List<ProductSnapshot> catalog = List.of(ProductSnapshot.of(electronicProduct));
+        when(productCatalog.getProducts()).thenReturn(catalog);
+
+        // Act
+        List<ProductSnapshot> fetchedProducts = productService.getCatalog();
+
+        // Assert - served from the in-memory catalog, not the repository
+        assertEquals(catalog, fetchedProducts);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    public void testSearchProducts() {
+        // Arrange
+        List<ProductSearchHit> hits = List.of(new ProductSearchHit(ProductSnapshot.of(electronicProduct), 1.5f));
+        when(productSearchIndex.search("smartphone", ProductService.DEFAULT_SEARCH_LIMIT)).thenReturn(hits);
+
+        // Act
+        List<ProductSearchHit> found = productService.searchProducts("smartphone", null);
+
+        // Assert - served from the in-memory index, not the repository
+        assertEquals(hits, found);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    public void testSearchProducts_InvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProducts("smartphone", 0));
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProducts("smartphone", ProductService.MAX_SEARCH_LIMIT + 1));
+        verifyNoInteractions(productSearchIndex);
+    }
+
+    @Test
+    public void testAutocomplete() {
+        // Arrange
+        List<ProductSuggestion> suggestions = List.of(new ProductSuggestion(1L, "Smartphone", 3));
+        when(productAutocompleteIndex.complete("sma", ProductService.DEFAULT_SUGGESTION_LIMIT)).thenReturn(suggestions);
+
+        // Act & Assert - served from the in-memory index, not the repository
+        assertEquals(suggestions, productService.autocomplete("sma", null));
+        verifyNoInteractions(productRepository);
+        assertThrows(IllegalArgumentException.class, () -> productService.autocomplete("sma", ProductAutocompleteIndex.MAX_SUGGESTIONS + 1));
+    }
+
+    @Test
+    public void testFilterProducts() {
+        // Arrange
+        FacetedProducts result = new FacetedProducts(1, List.of(ProductSnapshot.of(electronicProduct)),
+                Map.of("ELECTRONIC", 1), Map.of("500-1000", 1));
+        when(productFacetIndex.filter(Set.of("ELECTRONIC"), Set.of(PriceBucket.FROM_500_TO_1000), ProductService.DEFAULT_PAGE_SIZE))
+                .thenReturn(result);
+
+        // Act & Assert - type names are case-insensitive, served from the in-memory index
+        assertEquals(result, productService.filterProducts(List.of("electronic"), List.of("500-1000"), null));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    public void testFilterProducts_InvalidFilter() {
+        assertThrows(IllegalArgumentException.class, () -> productService.filterProducts(List.of("FOOD"), null, null));
+        assertThrows(IllegalArgumentException.class, () -> productService.filterProducts(null, List.of("10-20"), null));
+        assertThrows(IllegalArgumentException.class, () -> productService.filterProducts(null, null, 0));
+        verifyNoInteractions(productFacetIndex);
+    }
+
+    @Test
+    public void testGetProductsByPrice() {
+        // Arrange
+        List<ProductSnapshot> cheapest = List.of(ProductSnapshot.of(electronicProduct));
+        BigDecimal maxPrice = new BigDecimal("700");
+        when(productPriceIndex.cheapest(Set.of("ELECTRONIC"), null, maxPrice, 3)).thenReturn(cheapest);
+
+        // Act & Assert - served from the in-memory index, not the repository
+        assertEquals(cheapest, productService.getProductsByPrice(List.of("Electronic"), null, maxPrice, 3));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    public void testGetProductsByPrice_InvalidFilter() {
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsByPrice(List.of("FOOD"), null, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.getProductsByPrice(null, new BigDecimal("20"), new BigDecimal("10"), null));
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsByPrice(null, null, null, ProductService.MAX_PAGE_SIZE + 1));
+        verifyNoInteractions(productPriceIndex);
+    }
+
     @Test
     public void testGetProductsByName() {
         // Arrange
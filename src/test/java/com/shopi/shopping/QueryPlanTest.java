@@ -0,0 +1,175 @@
+package com.shopi.shopping;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.repositories.CustomerRepository;
+import com.shopi.shopping.repositories.DiscountRepository;
+import com.shopi.shopping.repositories.OrderRepository;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Query-plan regression tests: every repository finder is run once to capture the SQL Hibernate generates for it,
+// then that SQL is EXPLAINed with the same arguments against seeded (and ANALYZEd) tables. A plan that scans a table,
+// or drives the query through another index than the one designed for the finder, fails the build.
+// findByNameContaining is left out: a LIKE '%...%' search cannot use a B-tree index.
+// Seeded rows have negative IDs and are deleted afterwards
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.shopi.shopping.QueryPlanTest$SqlCapture")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryPlanTest {
+
+    private static final int CUSTOMERS = 1_000;
+    private static final int PRODUCTS = 1_000;
+    private static final int DISCOUNTS = 300;
+    private static final int CARTS_PER_CUSTOMER = 2;
+    private static final int ORDERS = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DiscountRepository discountRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @BeforeAll
+    public void seed() {
+        List<Object[]> customers = new ArrayList<>();
+        for (int i = 1; i <= CUSTOMERS; i++) {
+            customers.add(new Object[] { -i, "Plan", "Customer" + i, "plan.customer" + i + "@example.com" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers (id, name, last_name, email) VALUES (?, ?, ?, ?)", customers);
+
+        List<Object[]> products = new ArrayList<>();
+        String[] types = { "BOOK", "CLOTHING", "ELECTRONIC" };
+        for (int i = 1; i <= PRODUCTS; i++) {
+            products.add(new Object[] { -i, new BigDecimal(i % 500 + 1), "Plan Product " + i, types[i % types.length] });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (id, price, name, description, product_type, version)"
+                + " VALUES (?, ?, ?, 'Seeded', ?, 0)", products);
+
+        List<Object[]> discounts = new ArrayList<>();
+        for (int i = 1; i <= DISCOUNTS; i++) {
+            LocalDate start = LocalDate.of(2020, 1, 1).plusDays(i * 7L);
+            discounts.add(new Object[] { -i, "PLAN-" + i % 100, Date.valueOf(start), Date.valueOf(start.plusDays(30)) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO discounts (id, rate, category, type, start_date, end_date)"
+                + " VALUES (?, 0.1, ?, 'Seeded', ?, ?)", discounts);
+
+        List<Object[]> carts = new ArrayList<>();
+        for (int i = 1; i <= CUSTOMERS * CARTS_PER_CUSTOMER; i++) {
+            carts.add(new Object[] { -i, -((i - 1) % CUSTOMERS + 1), i % 50 == 0 ? "SUBMIT" : "DRAFT" });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO shopping_carts (id, customer_id, status) VALUES (?, ?, ?)", carts);
+
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderProducts = new ArrayList<>();
+        List<Object[]> orderDiscounts = new ArrayList<>();
+        for (int i = 1; i <= ORDERS; i++) {
+            orders.add(new Object[] { -i, new BigDecimal(i) });
+            orderProducts.add(new Object[] { -i, -i });
+            orderProducts.add(new Object[] { -i, -((i % PRODUCTS) + 1) });
+            orderDiscounts.add(new Object[] { -i, -(i % DISCOUNTS + 1) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, order_type, total_amount) VALUES (?, 'STANDARD-ORDER', ?)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO order_products (order_id, product_id) VALUES (?, ?)", orderProducts);
+        jdbcTemplate.batchUpdate("INSERT INTO order_discounts (order_id, discount_id) VALUES (?, ?)", orderDiscounts);
+
+        jdbcTemplate.execute("ANALYZE"); // Selectivity statistics for the planner
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM order_products WHERE order_id < 0");
+        jdbcTemplate.update("DELETE FROM order_discounts WHERE order_id < 0");
+        jdbcTemplate.update("DELETE FROM orders WHERE id < 0");
+        jdbcTemplate.update("DELETE FROM shopping_carts WHERE id < 0");
+        jdbcTemplate.update("DELETE FROM discounts WHERE id < 0");
+        jdbcTemplate.update("DELETE FROM products WHERE id < 0");
+        jdbcTemplate.update("DELETE FROM customers WHERE id < 0");
+    }
+
+    @Test
+    public void testCustomerFinders() {
+        assertIndexUsed("IDX_CUSTOMERS_EMAIL", () -> customerRepository.findByEmail("plan.customer7@example.com"),
+                "plan.customer7@example.com");
+        assertIndexUsed("IDX_CUSTOMERS_LAST_NAME", () -> customerRepository.findByLastName("Customer7"), "Customer7");
+    }
+
+    @Test
+    public void testProductFinders() {
+        assertIndexUsed("IDX_PRODUCTS_NAME", () -> productRepository.findByName("Plan Product 7"), "Plan Product 7");
+        assertIndexUsed("IDX_PRODUCTS_TYPE_PRICE", () -> productRepository.findByProductType(Book.class), "BOOK");
+    }
+
+    @Test
+    public void testDiscountFinders() {
+        assertIndexUsed("IDX_DISCOUNTS_CATEGORY", () -> discountRepository.findByCategory("PLAN-7"), "PLAN-7");
+        assertIndexUsed("IDX_DISCOUNTS_CATEGORY", () -> discountRepository.countByCategory("PLAN-7"), "PLAN-7");
+        LocalDate late = LocalDate.of(2025, 6, 1); // Only the last few seeded discounts end after it
+        assertIndexUsed("IDX_DISCOUNTS_END_DATE", () -> discountRepository.findByEndDateAfter(late), Date.valueOf(late));
+    }
+
+    @Test
+    public void testOrderFinders() {
+        assertIndexUsed("IDX_ORDERS_TOTAL_AMOUNT", () -> orderRepository.findByTotalAmountGreaterThan(990), 990.0);
+        assertIndexUsed("IDX_ORDER_PRODUCTS_PRODUCT", () -> orderRepository.findByProducts_Id(-7L), -7L);
+        assertIndexUsed("IDX_ORDER_DISCOUNTS_DISCOUNT", () -> orderRepository.findByAppliedDiscounts_Id(-7L), -7L);
+    }
+
+    @Test
+    public void testShoppingCartFinders() {
+        assertIndexUsed("IDX_SHOPPING_CARTS_CUSTOMER_STATUS", () -> shoppingCartRepository.findByCustomerId(-7L), -7L);
+        assertIndexUsed("IDX_SHOPPING_CARTS_STATUS", () -> shoppingCartRepository.findByStatus(ShoppingCart.Status.SUBMIT),
+                "SUBMIT");
+    }
+
+    // Run the finder, EXPLAIN the query it sent with the same arguments, and check the plan
+    private void assertIndexUsed(String index, Runnable finder, Object... arguments) {
+        SqlCapture.statements.clear();
+        finder.run();
+        String sql = SqlCapture.statements.stream().filter(statement -> statement.startsWith("select")).findFirst()
+                .orElseThrow(() -> new AssertionError("No query captured for " + index));
+        assertEquals(arguments.length, sql.chars().filter(c -> c == '?').count(), sql);
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, arguments);
+        assertFalse(plan.contains("tableScan"), "Table scan in plan:\n" + plan);
+        assertTrue(plan.toUpperCase().contains(index), "Expected " + index + " in plan:\n" + plan);
+    }
+
+    // Records every statement Hibernate prepares (registered through the statement_inspector setting)
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.shopi.shopping;
+import com.shopi.shopping.datasource.ReadReplicas;
+import com.shopi.shopping.datasource.ReplicaRoutingDataSource;
+import com.shopi.shopping.models.Customer;
+import com.shopi.shopping.repositories.CustomerRepository;
+import com.shopi.shopping.services.CustomerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two in-memory H2 replicas behind the primary. Replication is played by the test: replicate() copies the whole
+// primary into both replicas, heartbeat included. Writes are made on a thread of their own (another session than the
+// reads of the test thread), except where a session reads its own writes.
+// The scheduled heartbeat is disabled; the test sends it at the points where replication would have carried it
+@SpringBootTest(properties = {
+        "shopi.datasource.replica-urls=" + ReadReplicaRoutingTest.REPLICA_A + "," + ReadReplicaRoutingTest.REPLICA_B,
+        "shopi.datasource.replication.max-lag-ms=" + ReadReplicaRoutingTest.MAX_LAG_MILLIS,
+        "shopi.datasource.replication.heartbeat-ms=3600000"
+})
+public class ReadReplicaRoutingTest {
+
+    static final String REPLICA_A = "jdbc:h2:mem:replica-a;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_B = "jdbc:h2:mem:replica-b;DB_CLOSE_DELAY=-1";
+    static final long MAX_LAG_MILLIS = 1_500;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ReadReplicas readReplicas;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private ExecutorService writer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        writer = Executors.newSingleThreadExecutor();
+        replicate();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writer.shutdownNow();
+        customerRepository.findAll().stream()
+                .filter(customer -> customer.getEmail().endsWith("@replica.example.com"))
+                .forEach(customerRepository::delete);
+    }
+
+    @Test
+    public void testReadOnlyReadsGoToReplicas() throws Exception {
+        Customer written = onWriter(() -> customerService.createCustomer(customer("routed")));
+
+        // The replicas do not have it yet: another session does not see it
+        long replicaReads = replicaReads();
+        assertFalse(emails(customerService.getAllCustomers()).contains(written.getEmail()));
+        assertEquals(replicaReads + 1, replicaReads());
+
+        replicate();
+        assertTrue(emails(customerService.getAllCustomers()).contains(written.getEmail()));
+        assertTrue(customerService.getCustomerByEmail(written.getEmail()).isPresent());
+    }
+
+    @Test
+    public void testSessionReadsItsOwnWrites() throws Exception {
+        Customer written = onWriter(() -> customerService.createCustomer(customer("own")));
+
+        // The writing session is sent to the primary while the replicas do not hold its write
+        long primaryReads = primaryReads();
+        assertTrue(onWriter(() -> emails(customerService.getAllCustomers())).contains(written.getEmail()));
+        assertEquals(primaryReads + 1, primaryReads());
+
+        // Back to the replicas once they have caught up
+        replicate();
+        long replicaReads = replicaReads();
+        assertTrue(onWriter(() -> emails(customerService.getAllCustomers())).contains(written.getEmail()));
+        assertEquals(replicaReads + 1, replicaReads());
+    }
+
+    @Test
+    public void testLaggingReplicasAreSkipped() throws Exception {
+        Customer written = onWriter(() -> customerService.createCustomer(customer("lagging")));
+
+        Thread.sleep(MAX_LAG_MILLIS + 200); // Nothing replicated meanwhile
+        readReplicas.heartbeat();
+        assertTrue(readReplicas.lagMillis().values().stream().allMatch(lag -> lag > MAX_LAG_MILLIS));
+
+        long primaryReads = primaryReads();
+        assertTrue(emails(customerService.getAllCustomers()).contains(written.getEmail()));
+        assertEquals(primaryReads + 1, primaryReads());
+    }
+
+    @Test
+    public void testReadsAreSpreadOverReplicas() {
+        long replicaA = replicaRoutingDataSource.getRoutedConnections().get("replica-0");
+        long replicaB = replicaRoutingDataSource.getRoutedConnections().get("replica-1");
+        for (int i = 0; i < 4; i++) {
+            customerService.getAllCustomers();
+        }
+        assertEquals(replicaA + 2, replicaRoutingDataSource.getRoutedConnections().get("replica-0"));
+        assertEquals(replicaB + 2, replicaRoutingDataSource.getRoutedConnections().get("replica-1"));
+    }
+
+    // Copy the primary into both replicas, with a fresh heartbeat, then let the node sample the replicas
+    private void replicate() throws Exception {
+        readReplicas.heartbeat();
+        String script = directory.resolve("replication.sql").toString();
+        jdbcTemplate.execute("SCRIPT TO '" + script + "'");
+        for (String url : List.of(REPLICA_A, REPLICA_B)) {
+            try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                 Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+                statement.execute("RUNSCRIPT FROM '" + script + "'");
+            }
+        }
+        readReplicas.heartbeat();
+    }
+
+    private <T> T onWriter(Callable<T> task) throws Exception {
+        return writer.submit(task).get();
+    }
+
+    private long primaryReads() {
+        return replicaRoutingDataSource.getRoutedConnections().get("primary");
+    }
+
+    private long replicaReads() {
+        return replicaRoutingDataSource.getRoutedConnections().get("replica-0")
+                + replicaRoutingDataSource.getRoutedConnections().get("replica-1");
+    }
+
+    private static List<String> emails(List<Customer> customers) {
+        return customers.stream().map(Customer::getEmail).toList();
+    }
+
+    private static Customer customer(String name) {
+        return new Customer.CustomerBuilder("Replica", name).setEmail(name + "@replica.example.com").build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.shopi.shopping;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.Snowflake;
+import com.shopi.shopping.models.SnowflakeIdGenerator;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.hibernate.service.ServiceRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Snowflake IDs: unique and increasing on one node, distinct between nodes, and assigned to carts on save
+@SpringBootTest
+public class SnowflakeIdTest {
+
+    private static final long NOW = Instant.parse("2026-03-01T12:00:00Z").toEpochMilli();
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void testIdsCarryTimestampAndNode() {
+        Snowflake snowflake = new Snowflake(7, () -> NOW);
+
+        long first = snowflake.nextId();
+        long second = snowflake.nextId();
+
+        assertEquals(first + 1, second); // Same millisecond: the next sequence number
+        assertEquals(Instant.ofEpochMilli(NOW), Snowflake.timestampOf(first));
+        assertEquals(7, Snowflake.nodeIdOf(first));
+    }
+
+    @Test
+    public void testSequenceOverflowAndClockGoingBackwards() {
+        AtomicLong clock = new AtomicLong(NOW);
+        Snowflake snowflake = new Snowflake(1, clock::get);
+
+        long previous = 0;
+        for (int i = 0; i < 10_000; i++) { // More than 4096 in one millisecond: borrows the next ones
+            long id = snowflake.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertTrue(Snowflake.timestampOf(previous).isAfter(Instant.ofEpochMilli(NOW)));
+
+        clock.set(NOW - 1_000); // Clock set back by a second: IDs keep increasing
+        assertTrue(snowflake.nextId() > previous);
+        assertEquals(1, Snowflake.nodeIdOf(snowflake.nextId()));
+    }
+
+    @Test
+    public void testNodesNeverCollide() {
+        Snowflake first = new Snowflake(1, () -> NOW);
+        Snowflake second = new Snowflake(2, () -> NOW);
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(ids.add(first.nextId()));
+            assertTrue(ids.add(second.nextId()));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new Snowflake(Snowflake.MAX_NODE_ID + 1));
+    }
+
+    @Test
+    public void testConcurrentIdsAreUnique() throws Exception {
+        Snowflake snowflake = new Snowflake(3);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<long[]>> batches = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                batches.add(executor.submit(() -> {
+                    long[] ids = new long[20_000];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = snowflake.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<long[]> batch : batches) {
+                long[] batchIds = batch.get();
+                for (int i = 0; i < batchIds.length; i++) {
+                    assertTrue(ids.add(batchIds[i]));
+                    assertTrue(i == 0 || batchIds[i] > batchIds[i - 1]); // Increasing within each thread
+                }
+            }
+            assertEquals(8 * 20_000, ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCartsGetSnowflakeIds() {
+        ShoppingCart first = shoppingCartRepository.save(new ShoppingCart());
+        ShoppingCart second = shoppingCartRepository.save(new ShoppingCart());
+        try {
+            assertTrue(second.getId() > first.getId());
+            assertEquals(0, Snowflake.nodeIdOf(first.getId())); // shopi.ids.node-id
+            Duration age = Duration.between(Snowflake.timestampOf(first.getId()), Instant.now());
+            assertTrue(age.compareTo(Duration.ofMinutes(1)) < 0);
+            // Above 2^53, so written as a JSON string
+            JsonNode json = objectMapper.valueToTree(first);
+            assertTrue(first.getId() > 1L << 53);
+            assertEquals(String.valueOf(first.getId()), json.get("id").textValue());
+        } finally {
+            shoppingCartRepository.deleteById(first.getId());
+            shoppingCartRepository.deleteById(second.getId());
+        }
+    }
+
+    @Test
+    public void testNodeIdIsRequired() throws Exception {
+        ConfigurationService configuration = mock(ConfigurationService.class);
+        ServiceRegistry serviceRegistry = mock(ServiceRegistry.class);
+        when(serviceRegistry.requireService(ConfigurationService.class)).thenReturn(configuration);
+        CustomIdGeneratorCreationContext context = mock(CustomIdGeneratorCreationContext.class);
+        when(context.getServiceRegistry()).thenReturn(serviceRegistry);
+
+        IllegalStateException missing = assertThrows(IllegalStateException.class,
+                () -> new SnowflakeIdGenerator(null, ShoppingCart.class.getDeclaredField("id"), context));
+        assertTrue(missing.getMessage().contains(SnowflakeIdGenerator.NODE_ID_SETTING));
+
+        when(configuration.getSetting(eq(SnowflakeIdGenerator.NODE_ID_SETTING), any())).thenReturn("5");
+        new SnowflakeIdGenerator(null, ShoppingCart.class.getDeclaredField("id"), context);
+    }
+}
@@ -0,0 +1,112 @@
+package com.shopi.shopping.testCache;
+import com.shopi.shopping.configuration.CacheConfig;
+import com.shopi.shopping.models.Discount;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.DiscountSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.DiscountService;
+import com.shopi.shopping.services.caching.CacheWarmer;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+public class CacheWarmerTest {
+
+    private ProductRepository productRepository;
+    private DiscountService discountService;
+    private CacheManager cacheManager;
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCatalog productCatalog;
+    private CacheWarmer cacheWarmer;
+
+    @BeforeEach
+    public void setUp() {
+        productRepository = mock(ProductRepository.class);
+        discountService = mock(DiscountService.class);
+        cacheManager = new CacheConfig().cacheManager(event -> { });
+        meterRegistry = new SimpleMeterRegistry();
+        productCatalog = mock(ProductCatalog.class);
+        cacheWarmer = new CacheWarmer(productRepository, discountService, cacheManager, meterRegistry, productCatalog);
+        ReflectionTestUtils.setField(cacheWarmer, "batchSize", 2);
+        ReflectionTestUtils.setField(cacheWarmer, "threads", 2);
+
+        // findAllById returns the products for the requested batch of IDs
+        when(productRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            List<Product> products = new ArrayList<>();
+            ids.forEach(id -> products.add(book(id)));
+            return products;
+        });
+    }
+
+    @Test
+    public void testWarmUp_LoadsEveryProductInBatches() {
+        when(productRepository.findAllIds()).thenReturn(LongStream.rangeClosed(1, 5).boxed().toList());
+        Discount discount = new Discount(BigDecimal.valueOf(0.10), "BOOK", "Percentage", LocalDate.now().minusDays(1), LocalDate.now().plusDays(1));
+        when(discountService.findActiveDiscounts()).thenReturn(List.of(DiscountSnapshot.of(discount)));
+
+        cacheWarmer.run(null);
+
+        // 5 IDs with a batch size of 2 means 3 queries
+        verify(productRepository, times(3)).findAllById(anyIterable());
+        for (long id = 1; id <= 5; id++) {
+            assertEquals(ProductSnapshot.of(book(id)), cacheManager.getCache(CacheConfig.PRODUCTS_CACHE).get(id).get());
+        }
+        verify(discountService).findActiveDiscounts();
+        verify(productCatalog).current();
+
+        assertEquals(5.0, meterRegistry.get("cache.warmup.entries").tag("cache", CacheConfig.PRODUCTS_CACHE).gauge().value());
+        assertEquals(1.0, meterRegistry.get("cache.warmup.entries").tag("cache", CacheConfig.ACTIVE_DISCOUNTS_CACHE).gauge().value());
+        assertEquals(1, meterRegistry.get("cache.warmup").timer().count());
+    }
+
+    @Test
+    public void testWarmUp_KeepsEntriesAlreadyCached() {
+        ProductSnapshot live = new ProductSnapshot(1L, "BOOK", "Live Book", "Default description", new BigDecimal("10.00"), 0);
+        cacheManager.getCache(CacheConfig.PRODUCTS_CACHE).put(1L, live);
+        when(productRepository.findAllIds()).thenReturn(List.of(1L));
+        when(discountService.findActiveDiscounts()).thenReturn(List.of());
+
+        cacheWarmer.run(null);
+
+        assertSame(live, cacheManager.getCache(CacheConfig.PRODUCTS_CACHE).get(1L).get());
+    }
+
+    @Test
+    public void testWarmUp_FailureIsNotFatal() {
+        when(productRepository.findAllIds()).thenThrow(new RuntimeException("Database unavailable"));
+
+        assertDoesNotThrow(() -> cacheWarmer.run(null));
+        assertEquals(1, meterRegistry.get("cache.warmup").timer().count());
+    }
+
+    @Test
+    public void testWarmUp_Disabled() {
+        ReflectionTestUtils.setField(cacheWarmer, "enabled", false);
+
+        cacheWarmer.run(null);
+
+        verifyNoInteractions(productRepository, discountService, productCatalog);
+    }
+
+    private static Product book(long id) {
+        Product book = new Book(new BigDecimal("10.00"), "Book " + id, "Default description");
+        book.setId(id);
+        return book;
+    }
+}
@@ -0,0 +1,131 @@
+package com.shopi.shopping.testCache;
+import com.shopi.shopping.configuration.CacheConfig;
+import com.shopi.shopping.configuration.CacheEvictedEvent;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.ProductService;
+import com.shopi.shopping.services.caching.CacheInvalidationBus;
+import com.shopi.shopping.services.caching.CacheInvalidationMessage;
+import com.shopi.shopping.services.caching.ClusterCacheInvalidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+// Two nodes in one JVM: the Spring context is the local node, the peer is built by hand.
+// Both share the in-process invalidation bus instead of a live RabbitMQ.
+@SpringBootTest(properties = "shopi.cache.invalidation.transport=in-process")
+public class ClusterCacheInvalidationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @MockBean
+    private ProductRepository productRepository;
+
+    private CacheManager peerCacheManager;
+
+    @BeforeEach
+    public void startPeer() {
+        // The peer's caches announce their evictions to the peer's own invalidator
+        AtomicReference<ClusterCacheInvalidator> peerInvalidator = new AtomicReference<>();
+        peerCacheManager = new CacheConfig().cacheManager(event -> peerInvalidator.get().onCacheEvicted((CacheEvictedEvent) event));
+        peerInvalidator.set(new ClusterCacheInvalidator(peerCacheManager, cacheInvalidationBus));
+        peerInvalidator.get().subscribe();
+    }
+
+    @AfterEach
+    public void clearCache() {
+        cacheManager.getCache(CacheConfig.PRODUCTS_CACHE).clear();
+    }
+
+    @Test
+    void testUpdateOnOneNodeEvictsPeer() {
+        // Given - the product is cached on both nodes
+        long productId = 1L;
+        Product book = new Book(new BigDecimal("19.99"), "Shared Book", "Default description");
+        book.setId(productId);
+        cacheManager.getCache(CacheConfig.PRODUCTS_CACHE).put(productId, ProductSnapshot.of(book));
+        Cache peerProducts = peerCacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        peerProducts.put(productId, ProductSnapshot.of(book));
+
+        // When - the product is updated on the local node
+        when(productRepository.existsById(productId)).thenReturn(true);
+        productService.updateProductWithCache(book);
+
+        // Then - both nodes dropped their copy
+        assertNull(cacheManager.getCache(CacheConfig.PRODUCTS_CACHE).get(productId));
+        assertNull(peerProducts.get(productId));
+    }
+
+    @Test
+    void testDeleteOnOneNodeEvictsPeer() {
+        // Given - the product is cached on the peer
+        long productId = 2L;
+        Product book = new Book(new BigDecimal("5.00"), "Deleted Book", "Default description");
+        Cache peerProducts = peerCacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        peerProducts.put(productId, ProductSnapshot.of(book));
+
+        // When - the product is deleted on the local node
+        when(productRepository.existsById(productId)).thenReturn(true);
+        productService.deleteProductWithCache(productId);
+
+        // Then - the peer dropped its copy
+        assertNull(peerProducts.get(productId));
+    }
+
+    @Test
+    void testPeerEvictionReachesLocalNodeWithTypedKeys() {
+        // Given - a status bucket cached locally, keyed by enum
+        Cache localBuckets = cacheManager.getCache(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE);
+        localBuckets.put(ShoppingCart.Status.DRAFT, List.of());
+        localBuckets.put(ShoppingCart.Status.SUBMIT, List.of());
+
+        // When - the peer evicts the DRAFT bucket
+        peerCacheManager.getCache(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE).evict(ShoppingCart.Status.DRAFT);
+
+        // Then - only the DRAFT bucket is gone locally
+        assertNull(localBuckets.get(ShoppingCart.Status.DRAFT));
+        assertNotNull(localBuckets.get(ShoppingCart.Status.SUBMIT));
+        localBuckets.clear();
+    }
+
+    @Test
+    void testOnlyKnownKeyTypesAreDecoded() {
+        assertEquals(42L, message("42", Long.class.getName()).decodeKey());
+        assertEquals(7, message("7", Integer.class.getName()).decodeKey());
+        assertEquals("home", message("home", String.class.getName()).decodeKey());
+        assertEquals(ShoppingCart.Status.DRAFT, message("DRAFT", ShoppingCart.Status.class.getName()).decodeKey());
+
+        // Any other type, or a key its type does not accept, is not rebuilt: the receiver clears the whole cache
+        assertNull(message("MONDAY", java.time.DayOfWeek.class.getName()).decodeKey());
+        assertNull(message("2026-01-01", java.time.LocalDate.class.getName()).decodeKey());
+        assertNull(message("x", "com.example.Unknown").decodeKey());
+        assertNull(message("not a number", Long.class.getName()).decodeKey());
+        assertNull(message("CLOSED", ShoppingCart.Status.class.getName()).decodeKey());
+    }
+
+    private static CacheInvalidationMessage message(String key, String keyType) {
+        return new CacheInvalidationMessage("peer", CacheConfig.PRODUCTS_CACHE, key, keyType);
+    }
+}
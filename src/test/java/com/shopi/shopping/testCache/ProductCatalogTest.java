@@ -0,0 +1,115 @@
+package com.shopi.shopping.testCache;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.CatalogSnapshot;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.ProductService;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against the real (in-memory) database: every committed product write must produce a new catalog version
+@SpringBootTest
+public class ProductCatalogTest {
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void testCatalogFollowsProductWrites() {
+        CatalogSnapshot initial = productCatalog.current();
+
+        // Create - a new version lists the product, the previous version is untouched
+        Product book = productService.createProduct("BOOK", "Catalog Book", new BigDecimal("10.00"));
+        CatalogSnapshot afterCreate = productCatalog.current();
+        assertTrue(afterCreate.version() > initial.version());
+        assertTrue(afterCreate.products().contains(ProductSnapshot.of(book)));
+        assertFalse(ids(initial).contains(book.getId()));
+
+        // Update - the product is replaced in place
+        book.setPrice(new BigDecimal("12.00"));
+        productService.updateProduct(book);
+        CatalogSnapshot afterUpdate = productCatalog.current();
+        assertTrue(afterUpdate.version() > afterCreate.version());
+        assertEquals(afterCreate.size(), afterUpdate.size());
+        // The stored row carries the new version, the detached entity does not
+        assertTrue(afterUpdate.products().contains(ProductSnapshot.of(productRepository.findById(book.getId()).orElseThrow())));
+
+        // Delete - the product is gone
+        productService.deleteProduct(book.getId());
+        CatalogSnapshot afterDelete = productCatalog.current();
+        assertFalse(ids(afterDelete).contains(book.getId()));
+        assertEquals(initial.size(), afterDelete.size());
+    }
+
+    @Test
+    void testCatalogIsOrderedAndReadOnly() {
+        productRepository.save(new Book(new BigDecimal("5.00"), "Second Book", "Default description"));
+        productRepository.save(new Book(new BigDecimal("6.00"), "Third Book", "Default description"));
+
+        List<ProductSnapshot> products = productService.getCatalog();
+        List<Long> ids = products.stream().map(ProductSnapshot::id).toList();
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertThrows(UnsupportedOperationException.class, () -> products.remove(0));
+
+        // Without writes, every read returns the very same version
+        assertSame(productCatalog.current(), productCatalog.current());
+    }
+
+    @Test
+    void testBulkTransactionProducesOneVersion() {
+        CatalogSnapshot before = productCatalog.current();
+        List<Product> books = new ArrayList<>();
+        for (int i = 0; i <= ProductCatalog.BULK_CHANGE_THRESHOLD; i++) {
+            books.add(new Book(new BigDecimal("3.00"), "Bulk Book " + i, "Default description"));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(books));
+
+        // All the products of the transaction arrive in a single new version, in ID order
+        CatalogSnapshot after = productCatalog.current();
+        assertEquals(before.version() + 1, after.version());
+        assertEquals(before.size() + books.size(), after.size());
+        List<Long> ids = ids(after);
+        assertEquals(ids.stream().sorted().toList(), ids);
+        productRepository.deleteAll(books);
+        assertEquals(before.size(), productCatalog.current().size());
+    }
+
+    @Test
+    void testReloadMatchesDatabase() {
+        CatalogSnapshot reloaded = productCatalog.reload();
+        assertEquals(productRepository.count(), reloaded.size());
+    }
+
+    private static List<Long> ids(CatalogSnapshot catalog) {
+        return catalog.products().stream().map(ProductSnapshot::id).toList();
+    }
+}
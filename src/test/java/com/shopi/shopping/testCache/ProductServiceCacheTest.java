@@ -1,8 +1,12 @@
 package com.shopi.shopping.testCache;
+import com.shopi.shopping.configuration.CacheConfig;
 import com.shopi.shopping.models.products.Electronic;
 import com.shopi.shopping.models.products.Book;
 import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.ProductSnapshot;
 import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.monitoring.CacheStatsEndpoint;
+import com.shopi.shopping.monitoring.CacheStatsEndpoint.CacheStatistics;
 import com.shopi.shopping.services.ProductService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -14,9 +18,18 @@ import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.*;
 
 
@@ -35,6 +48,9 @@ public class ProductServiceCacheTest {
     @Autowired
     private CacheManager cacheManager; // Autowired to access the cache manager
 
+    @Autowired
+    private CacheStatsEndpoint cacheStatsEndpoint; // Autowired to read the cache counters
+
     @AfterEach
     public void clearCache() {
         // Limpia el caché después de cada prueba
@@ -47,18 +63,116 @@ public class ProductServiceCacheTest {
         long productId = 1L;
         Book book = new Book(new BigDecimal("19.99"), "Test Book", "A test book description");
         when(productRepository.findById(productId)).thenReturn(Optional.of(book)); // Mock repository
+        CacheStatistics before = productStats();
+
+        // When - First call should miss the cache and go to the repository
+        ProductSnapshot result1 = productService.getProductByIdCached(productId);
+        CacheStatistics afterFirstCall = productStats();
+        assertEquals(1, afterFirstCall.misses() - before.misses()); // One miss
+        assertEquals(0, afterFirstCall.hits() - before.hits()); // No hit yet
+        assertEquals(1, afterFirstCall.size()); // The product is now cached
+
+        // When - Second call should come from cache
+        ProductSnapshot result2 = productService.getProductByIdCached(productId);
+        CacheStatistics afterSecondCall = productStats();
+        assertEquals(1, afterSecondCall.hits() - afterFirstCall.hits()); // One hit
+        assertEquals(0, afterSecondCall.misses() - afterFirstCall.misses()); // No new miss
+
+        // Then - Assert the result: both calls return the same cached snapshot of the book
+        assertEquals(ProductSnapshot.of(book), result1);
+        assertSame(result1, result2);
+    }
 
-        // When - First call should hit the repository
-        Product result1 = productService.getProductByIdCached(productId);
-        verify(productRepository, times(1)).findById(productId); // Verify repository is called once
+    @Test
+    void testGetProductByIdCached_StoresSnapshotNotEntity() {
+        // Given
+        long productId = 6L;
+        Book book = new Book(new BigDecimal("15.00"), "Snapshot Book", "Default description");
+        book.setId(productId);
+        when(productRepository.findById(productId)).thenReturn(Optional.of(book));
+
+        // When
+        productService.getProductByIdCached(productId);
+        book.setPrice(new BigDecimal("99.00")); // The entity changes after it was cached
+
+        // Then - the cache holds an immutable copy, unaffected by later changes to the entity
+        Object cached = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE).get(productId).get();
+        assertEquals(new ProductSnapshot(productId, "BOOK", "Snapshot Book", "Default description", new BigDecimal("15.00"), 0), cached);
+    }
 
-        // When - Second call should come from cache, repository shouldn't be called
-        Product result2 = productService.getProductByIdCached(productId);
-        verify(productRepository, times(1)).findById(productId); // Ensure repository is not called again
+    @Test
+    void testGetProductByIdCached_ConcurrentMissesLoadOnce() throws Exception {
+        // Given - a slow repository, so that all callers miss the cache at the same time
+        long productId = 3L;
+        int callers = 16;
+        Book book = new Book(new BigDecimal("29.99"), "Concurrent Book", "A popular book");
+        when(productRepository.findById(productId)).thenAnswer(invocation -> {
+            Thread.sleep(200); // Simulate a slow database lookup
+            return Optional.of(book);
+        });
+        CacheStatistics before = productStats();
+
+        // When - N callers ask for the same product in parallel
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<ProductSnapshot>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    startGate.await();
+                    return productService.getProductByIdCached(productId);
+                }));
+            }
+            startGate.countDown();
+            for (Future<ProductSnapshot> result : results) {
+                assertEquals(ProductSnapshot.of(book), result.get(5, TimeUnit.SECONDS)); // Every caller gets the loaded product
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then - exactly one load reached the repository
+        verify(productRepository, times(1)).findById(productId);
+        assertEquals(1, productStats().loads() - before.loads());
+    }
 
-        // Then - Assert the result
-        assertEquals(book, result1);
-        assertEquals(book, result2);
+    @Test
+    void testGetProductByIdCached_MissingIdIsNegativelyCached() {
+        // Given - an ID that does not exist
+        long missingId = 404L;
+        when(productRepository.findById(missingId)).thenReturn(Optional.empty());
+        CacheStatistics before = productStats();
+
+        // When - the missing ID is requested twice
+        assertNull(productService.getProductByIdCached(missingId));
+        assertNull(productService.getProductByIdCached(missingId));
+
+        // Then - only the first lookup reached the repository, the second was a negative hit
+        verify(productRepository, times(1)).findById(missingId);
+        CacheStatistics after = productStats();
+        assertEquals(1, after.negativeHits() - before.negativeHits());
+        assertEquals(1, after.negativeSize());
+        assertEquals(0, after.size()); // Missing IDs do not take room in the main cache
+    }
+
+    @Test
+    void testCreateProduct_InvalidatesNegativeEntry() {
+        // Given - a missing ID that has been negatively cached
+        long newId = 405L;
+        Book book = new Book(new BigDecimal("9.99"), "New Book", "Default description");
+        book.setId(newId);
+        when(productRepository.findById(newId)).thenReturn(Optional.empty());
+        assertNull(productService.getProductByIdCached(newId));
+
+        // When - a product is created with that ID
+        when(productRepository.save(any(Product.class))).thenReturn(book);
+        when(productRepository.findById(newId)).thenReturn(Optional.of(book));
+        productService.createProduct("BOOK", "New Book", new BigDecimal("9.99"));
+
+        // Then - the negative entry is gone and the next lookup finds the product
+        assertEquals(0, productStats().negativeSize());
+        assertEquals(ProductSnapshot.of(book), productService.getProductByIdCached(newId));
+        verify(productRepository, times(2)).findById(newId);
     }
 
     @Test
@@ -123,24 +237,34 @@ public class ProductServiceCacheTest {
         when(productRepository.save(existingProduct)).thenReturn(existingProduct); // Simulate save behavior
         when(productRepository.findById(productId)).thenReturn(Optional.of(existingProduct)); // Simulate finding by ID
 
+        CacheStatistics before = productStats();
+
         // Call the method to get the product, this should go to the cache
-        Product cachedProduct = productService.getProductByIdCached(productId); // Call the real method that uses cache
+        ProductSnapshot cachedProduct = productService.getProductByIdCached(productId); // Call the real method that uses cache
 
         // Verify that the product was obtained from the cache
         assertNotNull(cachedProduct);
-        assertEquals(existingProduct, cachedProduct);
+        assertEquals(ProductSnapshot.of(existingProduct), cachedProduct);
 
         // Call the update method with cache eviction
         productService.updateProductWithCache(existingProduct);
+        assertEquals(0, productStats().size()); // The entry was evicted
 
         // Verify that the save method was called
         verify(productRepository, times(1)).save(existingProduct);
 
         // After the update, try to get the product again
-        Product updatedProduct = productService.getProductByIdCached(productId); // Should go to the repository now
+        ProductSnapshot updatedProduct = productService.getProductByIdCached(productId); // Should go to the repository now
+
+        // Verify that both reads missed the cache: before and after the update
+        CacheStatistics after = productStats();
+        assertEquals(2, after.misses() - before.misses());
+        assertEquals(0, after.hits() - before.hits());
+        assertEquals(ProductSnapshot.of(existingProduct), updatedProduct);
+    }
 
-        // Verify that the repository was called to get the updated product
-        verify(productRepository, times(2)).findById(productId); // Should have been called twice: before and after the update
-        assertEquals(existingProduct, updatedProduct);
+    // Current counters of the products cache
+    private CacheStatistics productStats() {
+        return cacheStatsEndpoint.cache(CacheConfig.PRODUCTS_CACHE);
     }
 }
\ No newline at end of file
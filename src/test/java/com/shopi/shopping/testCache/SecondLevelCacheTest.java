@@ -0,0 +1,124 @@
+package com.shopi.shopping.testCache;
+import com.shopi.shopping.configuration.SecondLevelCacheConfig;
+import com.shopi.shopping.models.Discount;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.monitoring.HibernateCacheStatsEndpoint;
+import com.shopi.shopping.repositories.DiscountRepository;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.services.pricing.PriceChange;
+import com.shopi.shopping.services.pricing.ProductPricingService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against the real (in-memory) database: products and discounts are served from the Hibernate second-level
+// cache, which follows every write, including the price batches that bypass Hibernate
+@SpringBootTest
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DiscountRepository discountRepository;
+
+    @Autowired
+    private ProductPricingService productPricingService;
+
+    @Autowired
+    private HibernateCacheStatsEndpoint hibernateCacheStatsEndpoint;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Product book;
+    private Discount discount;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        book = productRepository.save(new Book(new BigDecimal("10.00"), "Second Level Book", "Default description"));
+        discount = discountRepository.save(new Discount(new BigDecimal("0.10"), "BOOK", "Second Level",
+                LocalDate.now().minusDays(1), LocalDate.now().plusDays(30)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productRepository.deleteById(book.getId());
+        discountRepository.findAll().stream()
+                .filter(existing -> existing.getType() != null && existing.getType().startsWith("Second Level"))
+                .forEach(discountRepository::delete);
+    }
+
+    @Test
+    public void testProductLookupsHitTheCache() {
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.PRODUCT_REGION);
+        productRepository.findById(book.getId()); // Cached on save or on this first load
+        long hits = region.getHitCount();
+        long loads = statistics.getEntityLoadCount();
+
+        Product cached = productRepository.findById(book.getId()).orElseThrow();
+
+        assertEquals("Second Level Book", cached.getName());
+        assertEquals(hits + 1, region.getHitCount());
+        assertEquals(loads, statistics.getEntityLoadCount()); // Not read from the database
+    }
+
+    @Test
+    public void testCachedProductFollowsUpdates() {
+        Product loaded = productRepository.findById(book.getId()).orElseThrow();
+        loaded.setPrice(new BigDecimal("12.00"));
+        productRepository.save(loaded);
+        assertEquals(0, new BigDecimal("12.00").compareTo(productRepository.findById(book.getId()).orElseThrow().getPrice()));
+
+        // A price batch goes around Hibernate: the cached row is evicted
+        Product current = productRepository.findById(book.getId()).orElseThrow();
+        productPricingService.updatePrices(List.of(new PriceChange(book.getId(), new BigDecimal("14.00"), current.getVersion())));
+        assertEquals(0, new BigDecimal("14.00").compareTo(productRepository.findById(book.getId()).orElseThrow().getPrice()));
+    }
+
+    @Test
+    public void testActiveDiscountsQueryIsCachedUntilDiscountsChange() {
+        LocalDate today = LocalDate.now();
+        discountRepository.findByEndDateAfter(today);
+        long hits = statistics.getQueryCacheHitCount();
+
+        List<Discount> cached = discountRepository.findByEndDateAfter(today);
+        assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+        assertTrue(cached.contains(discount));
+
+        // A new discount invalidates the cached result
+        Discount added = discountRepository.save(new Discount(new BigDecimal("0.20"), "BOOK", "Second Level Added",
+                today.minusDays(1), today.plusDays(10)));
+        assertTrue(discountRepository.findByEndDateAfter(today).contains(added));
+    }
+
+    @Test
+    public void testStatisticsEndpoint() {
+        productRepository.findById(book.getId());
+        productRepository.findById(book.getId());
+
+        HibernateCacheStatsEndpoint.SecondLevelCacheStatistics caches = hibernateCacheStatsEndpoint.caches();
+
+        assertTrue(caches.statisticsEnabled());
+        assertTrue(caches.regions().containsKey(SecondLevelCacheConfig.PRODUCT_REGION));
+        assertTrue(caches.regions().containsKey(SecondLevelCacheConfig.DISCOUNT_REGION));
+        assertTrue(caches.entities().hits() > 0);
+        assertTrue(hibernateCacheStatsEndpoint.region(SecondLevelCacheConfig.PRODUCT_REGION).counters().hitRatio() > 0);
+        assertNull(hibernateCacheStatsEndpoint.region("unknown"));
+    }
+}
@@ -1,15 +1,26 @@
 package com.shopi.shopping.testCache;
+import com.shopi.shopping.configuration.CacheConfig;
 import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.snapshots.ShoppingCartSnapshot;
 import com.shopi.shopping.repositories.ShoppingCartRepository;
+import com.shopi.shopping.monitoring.CacheStatsEndpoint;
+import com.shopi.shopping.monitoring.CacheStatsEndpoint.CacheStatistics;
 import com.shopi.shopping.services.ShoppingCartServices;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -23,6 +34,19 @@ public class ShoppingCartServiceCacheTest {
     @MockBean
     private ShoppingCartRepository shoppingCartRepository; // MockBean for the repository
 
+    @Autowired
+    private CacheManager cacheManager; // Autowired to access the cache manager
+
+    @Autowired
+    private CacheStatsEndpoint cacheStatsEndpoint; // Autowired to read the cache counters
+
+    @AfterEach
+    public void clearCache() {
+        // Clear the caches after each test
+        cacheManager.getCache(CacheConfig.SHOPPING_CARTS_CACHE).clear();
+        cacheManager.getCache(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE).clear();
+    }
+
     @Test
     void testGetCartsByStatusWithCache_UsesCache() {
         // Setup
@@ -36,20 +60,27 @@ public class ShoppingCartServiceCacheTest {
 
         // Simulate that the carts are not in the cache and are retrieved from the repository
         when(shoppingCartRepository.findByStatus(status)).thenReturn(mockCarts);
+        CacheStatistics before = stats(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE);
 
-        // Call the method - First call should access the repository
-        List<ShoppingCart> cartsFromCache = shoppingCartService.getCartsByStatusWithCache(status);
+        // Call the method - First call should miss the cache and access the repository
+        List<ShoppingCartSnapshot> cartsFromCache = shoppingCartService.getCartsByStatusWithCache(status);
+        CacheStatistics afterFirstCall = stats(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE);
+        assertEquals(1, afterFirstCall.misses() - before.misses());
+        assertEquals(0, afterFirstCall.hits() - before.hits());
 
         // Verify that the carts were obtained from the repository
         assertNotNull(cartsFromCache);
         assertEquals(1, cartsFromCache.size());
-        assertEquals(mockCart1, cartsFromCache.get(0));
+        assertEquals(ShoppingCartSnapshot.of(mockCart1), cartsFromCache.get(0));
 
         // Call the method - Second call should use the cache
-        List<ShoppingCart> cartsFromCacheAgain = shoppingCartService.getCartsByStatusWithCache(status);
+        List<ShoppingCartSnapshot> cartsFromCacheAgain = shoppingCartService.getCartsByStatusWithCache(status);
 
-        // Verify that the repository was not called this second time
-        verify(shoppingCartRepository, times(1)).findByStatus(status); // Should only be one call
+        // Verify that the second call was served by the cache
+        CacheStatistics afterSecondCall = stats(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE);
+        assertEquals(1, afterSecondCall.hits() - afterFirstCall.hits()); // Should only be one hit
+        assertEquals(0, afterSecondCall.misses() - afterFirstCall.misses());
+        assertEquals(1, afterSecondCall.size());
         assertEquals(cartsFromCache, cartsFromCacheAgain);
     }
 
@@ -58,8 +89,14 @@ public class ShoppingCartServiceCacheTest {
         // Setup
         long cartId = 2L;
 
-        // Simulate that the cart exists
+        ShoppingCart mockCart = new ShoppingCart();
+        mockCart.setId(cartId);
+
+        // Simulate that the cart exists and cache it
         when(shoppingCartRepository.existsById(cartId)).thenReturn(true);
+        when(shoppingCartRepository.findById(cartId)).thenReturn(Optional.of(mockCart));
+        shoppingCartService.getCartByIdWithCache(cartId);
+        assertEquals(1, stats(CacheConfig.SHOPPING_CARTS_CACHE).size());
 
         // Call the method to delete the cart with cache eviction
         shoppingCartService.deleteCartByIdWithCache(cartId);
@@ -67,7 +104,11 @@ public class ShoppingCartServiceCacheTest {
         // Verify that the delete method of the repository was called
         verify(shoppingCartRepository, times(1)).deleteById(cartId);
 
-        // Verify if the cache was invalidated (optionally, you can check if the cacheManager invalidates it)
+        // Verify that the cache was invalidated: the next read misses again
+        CacheStatistics before = stats(CacheConfig.SHOPPING_CARTS_CACHE);
+        assertEquals(0, before.size());
+        shoppingCartService.getCartByIdWithCache(cartId);
+        assertEquals(1, stats(CacheConfig.SHOPPING_CARTS_CACHE).misses() - before.misses());
     }
 
     @Test
@@ -81,19 +122,94 @@ public class ShoppingCartServiceCacheTest {
 
         // Simulate that the cart is not in the cache and is retrieved from the repository
         when(shoppingCartRepository.findById(cartId)).thenReturn(Optional.of(mockCart));
+        CacheStatistics before = stats(CacheConfig.SHOPPING_CARTS_CACHE);
 
-        // Call the method - First time, should get the cart from the repository
-        Optional<ShoppingCart> cartFromCache = shoppingCartService.getCartByIdWithCache(cartId);
+        // Call the method - First time, should miss the cache and get the cart from the repository
+        Optional<ShoppingCartSnapshot> cartFromCache = shoppingCartService.getCartByIdWithCache(cartId);
+        CacheStatistics afterFirstCall = stats(CacheConfig.SHOPPING_CARTS_CACHE);
+        assertEquals(1, afterFirstCall.misses() - before.misses());
 
         // Verify that the cart was obtained from the repository
         assertTrue(cartFromCache.isPresent());
-        assertEquals(mockCart, cartFromCache.get());
+        assertEquals(ShoppingCartSnapshot.of(mockCart), cartFromCache.get());
 
         // Call the method - Second time, should use the cache
-        Optional<ShoppingCart> cartFromCacheAgain = shoppingCartService.getCartByIdWithCache(cartId);
+        Optional<ShoppingCartSnapshot> cartFromCacheAgain = shoppingCartService.getCartByIdWithCache(cartId);
+
+        // Verify that the second call was a cache hit
+        CacheStatistics afterSecondCall = stats(CacheConfig.SHOPPING_CARTS_CACHE);
+        assertEquals(1, afterSecondCall.hits() - afterFirstCall.hits()); // Should only be one hit
+        assertEquals(0, afterSecondCall.misses() - afterFirstCall.misses());
+        assertSame(cartFromCache.get(), cartFromCacheAgain.get());
+    }
+
+    @Test
+    void testGetCartByIdWithCache_ConcurrentMissesLoadOnce() throws Exception {
+        // Setup - a slow repository, so that all callers miss the cache at the same time
+        long cartId = 3L;
+        int callers = 16;
+        ShoppingCart mockCart = new ShoppingCart();
+        mockCart.setId(cartId);
+        when(shoppingCartRepository.findById(cartId)).thenAnswer(invocation -> {
+            Thread.sleep(200); // Simulate a slow database lookup
+            return Optional.of(mockCart);
+        });
+        CacheStatistics before = stats(CacheConfig.SHOPPING_CARTS_CACHE);
+
+        // N callers ask for the same cart in parallel
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<Optional<ShoppingCartSnapshot>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    startGate.await();
+                    return shoppingCartService.getCartByIdWithCache(cartId);
+                }));
+            }
+            startGate.countDown();
+            for (Future<Optional<ShoppingCartSnapshot>> result : results) {
+                assertEquals(ShoppingCartSnapshot.of(mockCart), result.get(5, TimeUnit.SECONDS).orElseThrow()); // Every caller gets the loaded cart
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Verify that exactly one load reached the repository
+        verify(shoppingCartRepository, times(1)).findById(cartId);
+        assertEquals(1, stats(CacheConfig.SHOPPING_CARTS_CACHE).loads() - before.loads());
+    }
+
+    @Test
+    void testGetCartByIdWithCache_MissingIdIsNegativelyCached() {
+        // Setup - an ID that does not exist
+        long missingId = 404L;
+        when(shoppingCartRepository.findById(missingId)).thenReturn(Optional.empty());
+        CacheStatistics before = stats(CacheConfig.SHOPPING_CARTS_CACHE);
+
+        // The missing ID is requested twice
+        assertTrue(shoppingCartService.getCartByIdWithCache(missingId).isEmpty());
+        assertTrue(shoppingCartService.getCartByIdWithCache(missingId).isEmpty());
+
+        // Verify that only the first lookup reached the repository, the second was a negative hit
+        verify(shoppingCartRepository, times(1)).findById(missingId);
+        CacheStatistics after = stats(CacheConfig.SHOPPING_CARTS_CACHE);
+        assertEquals(1, after.negativeHits() - before.negativeHits());
+        assertEquals(1, after.negativeSize());
+
+        // Creating a cart with that ID drops the negative entry right away
+        ShoppingCart newCart = new ShoppingCart();
+        newCart.setId(missingId);
+        when(shoppingCartRepository.save(newCart)).thenReturn(newCart);
+        when(shoppingCartRepository.findById(missingId)).thenReturn(Optional.of(newCart));
+        shoppingCartService.createShoppingCart(newCart);
+
+        assertEquals(0, stats(CacheConfig.SHOPPING_CARTS_CACHE).negativeSize());
+        assertEquals(ShoppingCartSnapshot.of(newCart), shoppingCartService.getCartByIdWithCache(missingId).orElseThrow());
+    }
 
-        // Verify that the repository was not called the second time
-        verify(shoppingCartRepository, times(1)).findById(cartId); // Should only be one call
-        assertEquals(mockCart, cartFromCacheAgain.get());
+    // Current counters of the given cache
+    private CacheStatistics stats(String cacheName) {
+        return cacheStatsEndpoint.cache(cacheName);
     }
 }
@@ -0,0 +1,125 @@
+package com.shopi.shopping.testCache;
+import com.shopi.shopping.configuration.CacheConfig;
+import com.shopi.shopping.models.ShoppingCart;
+import com.shopi.shopping.models.products.Book;
+import com.shopi.shopping.models.products.Product;
+import com.shopi.shopping.models.snapshots.ShoppingCartSnapshot;
+import com.shopi.shopping.repositories.ProductRepository;
+import com.shopi.shopping.repositories.ShoppingCartRepository;
+import com.shopi.shopping.services.ShoppingCartServices;
+import com.shopi.shopping.services.caching.ProductCatalog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against the real (in-memory) database: the status buckets must follow every cart write
+@SpringBootTest
+public class ShoppingCartStatusCacheInvalidationTest {
+
+    @Autowired
+    private ShoppingCartServices shoppingCartService;
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void testStatusChangeMovesCartBetweenCachedBuckets() {
+        // Setup - a draft cart, listed (and cached) under DRAFT
+        ShoppingCart cart = new ShoppingCart();
+        cart.setStatus(ShoppingCart.Status.DRAFT);
+        cart = shoppingCartRepository.save(cart);
+        assertTrue(idsOf(shoppingCartService.getCartsByStatusWithCache(ShoppingCart.Status.DRAFT)).contains(cart.getId()));
+        assertFalse(idsOf(shoppingCartService.getCartsByStatusWithCache(ShoppingCart.Status.SUBMIT)).contains(cart.getId()));
+
+        // The cart is submitted through a plain repository save
+        cart.setStatus(ShoppingCart.Status.SUBMIT);
+        shoppingCartRepository.save(cart);
+
+        // Verify that both cached buckets reflect the change
+        assertFalse(idsOf(shoppingCartService.getCartsByStatusWithCache(ShoppingCart.Status.DRAFT)).contains(cart.getId()));
+        assertTrue(idsOf(shoppingCartService.getCartsByStatusWithCache(ShoppingCart.Status.SUBMIT)).contains(cart.getId()));
+    }
+
+    @Test
+    void testCreateAndDeleteUpdateCachedBucket() {
+        // Setup - cache the DRAFT bucket first
+        List<Long> before = idsOf(shoppingCartService.getCartsByStatusWithCache(ShoppingCart.Status.DRAFT));
+
+        // A new cart appears in the cached bucket
+        ShoppingCart cart = new ShoppingCart();
+        cart.setStatus(ShoppingCart.Status.DRAFT);
+        cart = shoppingCartService.createShoppingCart(cart);
+        List<Long> afterCreate = idsOf(shoppingCartService.getCartsByStatusWithCache(ShoppingCart.Status.DRAFT));
+        assertFalse(before.contains(cart.getId()));
+        assertTrue(afterCreate.contains(cart.getId()));
+
+        // A deleted cart disappears from it
+        shoppingCartRepository.deleteById(cart.getId());
+        assertFalse(idsOf(shoppingCartService.getCartsByStatusWithCache(ShoppingCart.Status.DRAFT)).contains(cart.getId()));
+    }
+
+    @Test
+    void testProductChangeEvictsCachedCart() {
+        // Setup - a draft cart cached by ID and by status
+        Product book = productRepository.save(new Book(new BigDecimal("12.50"), "Cached Book", "Default description"));
+        ShoppingCart cart = new ShoppingCart();
+        cart.setStatus(ShoppingCart.Status.DRAFT);
+        cart = shoppingCartRepository.save(cart);
+        long cartId = cart.getId();
+        shoppingCartService.getCartByIdWithCache(cartId);
+        shoppingCartService.getCartsByStatusWithCache(ShoppingCart.Status.DRAFT);
+        assertNotNull(cacheManager.getCache(CacheConfig.SHOPPING_CARTS_CACHE).get(cartId));
+        assertNotNull(cacheManager.getCache(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE).get(ShoppingCart.Status.DRAFT));
+
+        // A product is added to the cart
+        shoppingCartService.addProductToCart(cart, book);
+
+        // Verify that the cached cart and its status bucket were evicted
+        assertNull(cacheManager.getCache(CacheConfig.SHOPPING_CARTS_CACHE).get(cartId));
+        assertNull(cacheManager.getCache(CacheConfig.SHOPPING_CARTS_BY_STATUS_CACHE).get(ShoppingCart.Status.DRAFT));
+
+        // The next read caches a snapshot with the new product and total, outside any session
+        ShoppingCartSnapshot snapshot = shoppingCartService.getCartByIdWithCache(cartId).orElseThrow();
+        assertArrayEquals(new long[]{book.getId()}, snapshot.productIds());
+        assertEquals(0, new BigDecimal("12.50").compareTo(snapshot.totalPrice(productCatalog.current())));
+        assertSame(snapshot, cacheManager.getCache(CacheConfig.SHOPPING_CARTS_CACHE).get(cartId).get());
+    }
+
+    @Test
+    void testPriceChangeShowsInCachedCartTotal() {
+        // Setup - a cart with two books, cached by ID
+        Product book = productRepository.save(new Book(new BigDecimal("12.50"), "Priced Book", "Default description"));
+        Product other = productRepository.save(new Book(new BigDecimal("7.50"), "Other Book", "Default description"));
+        ShoppingCart cart = new ShoppingCart();
+        cart.setStatus(ShoppingCart.Status.DRAFT);
+        cart.setProducts(List.of(book, other));
+        long cartId = shoppingCartRepository.save(cart).getId();
+        ShoppingCartSnapshot snapshot = shoppingCartService.getCartByIdWithCache(cartId).orElseThrow();
+        assertEquals(0, new BigDecimal("20.00").compareTo(shoppingCartService.calculateCachedTotalPrice(snapshot)));
+
+        // The price of a book changes: the cart stays cached, its total follows
+        book.setPrice(new BigDecimal("15.00"));
+        productRepository.save(book);
+        assertSame(snapshot, shoppingCartService.getCartByIdWithCache(cartId).orElseThrow());
+        assertEquals(0, new BigDecimal("22.50").compareTo(shoppingCartService.calculateCachedTotalPrice(snapshot)));
+    }
+
+    private static List<Long> idsOf(List<ShoppingCartSnapshot> carts) {
+        return carts.stream().map(ShoppingCartSnapshot::id).toList();
+    }
+}